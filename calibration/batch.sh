@@ -0,0 +1,3 @@
+#!/bin/bash
+# usage: batch.sh [-java|-direct|-fast|-robust] log_directory [output_directory]
+java -cp autofocus.jar ihm.BatchCalibration "$@"
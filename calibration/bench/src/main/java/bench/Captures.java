@@ -0,0 +1,114 @@
+package bench;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import data.TelemetryDecoder;
+
+/**
+ * Loads the captures of calibration/test used by the benchmarks. The
+ * directory is given by the property "captures", calibration/test by default
+ * when run from calibration/bench.
+ */
+public final class Captures {
+
+	/** directory of the .data files */
+	public static final String DIRECTORY = System.getProperty("captures",
+			"../test");
+
+	private Captures() {
+	}
+
+	/**
+	 * @param name
+	 *            name of the capture in the directory
+	 * @return the file of the capture
+	 */
+	public static File file(String name) {
+		return new File(DIRECTORY, name);
+	}
+
+	/**
+	 * @param name
+	 *            name of the capture in the directory
+	 * @return the non empty lines of the capture
+	 * @throws IOException
+	 */
+	public static String[] lines(String name) throws IOException {
+		List<String> lines = new ArrayList<String>();
+		BufferedReader br = new BufferedReader(new InputStreamReader(
+				new FileInputStream(file(name)), "ISO-8859-1"));
+		try {
+			String line;
+			while ((line = br.readLine()) != null) {
+				if (!line.trim().isEmpty()) {
+					lines.add(line);
+				}
+			}
+		} finally {
+			br.close();
+		}
+		return lines.toArray(new String[lines.size()]);
+	}
+
+	/**
+	 * @param lines
+	 *            lines of a capture
+	 * @return the messages of the lines, without the timestamp
+	 */
+	public static String[] messages(String[] lines) {
+		String[] messages = new String[lines.length];
+		for (int i = 0; i < lines.length; i++) {
+			messages[i] = lines[i].substring(lines[i].indexOf(' ') + 1);
+		}
+		return messages;
+	}
+
+	/**
+	 * @param lines
+	 *            lines of a capture
+	 * @return the payloads "x y z" of the IMU_*_RAW messages
+	 */
+	public static String[] rawPayloads(String[] lines) {
+		List<String> payloads = new ArrayList<String>();
+		for (String line : lines) {
+			String tokens[] = line.split(" ", 4);
+			if (tokens.length == 4 && tokens[2].startsWith("IMU_")
+					&& tokens[2].endsWith("_RAW")) {
+				payloads.add(tokens[3]);
+			}
+		}
+		return payloads.toArray(new String[payloads.size()]);
+	}
+
+	/**
+	 * @param lines
+	 *            lines of a capture
+	 * @param message
+	 *            name of the raw message (IMU_MAG_RAW...)
+	 * @return the samples of the message, as three columns x, y, z
+	 */
+	public static int[][] samples(String[] lines, String message) {
+		TelemetryDecoder decoder = new TelemetryDecoder();
+		int[][] samples = new int[3][lines.length];
+		int n = 0;
+		for (String line : lines) {
+			if (decoder.reset(line).skip(2).nextEquals(message)) {
+				samples[0][n] = decoder.nextInt();
+				samples[1][n] = decoder.nextInt();
+				samples[2][n] = decoder.nextInt();
+				n++;
+			}
+		}
+		for (int i = 0; i < 3; i++) {
+			samples[i] = Arrays.copyOf(samples[i], n);
+		}
+		return samples;
+	}
+}
@@ -0,0 +1,74 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import calibrate.CalibrateJava;
+import calibrate.CalibrationResult;
+import calibrate.DirectEllipsoidFit;
+import calibrate.FitMethod;
+
+import common.TypeCalibration;
+import filtre.EllipsoidFit;
+
+/**
+ * Cost of the direct ellipsoid fit of the samples of a capture, alone and as
+ * the initial guess of the least squares fit, against the min/max guess.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class DirectFitBenchmark {
+
+	@Param({ "14_03_04__11_25_31.data", "calib_prod16.data" })
+	public String capture;
+
+	@Param({ "MAGNETOMETER", "ACCELEROMETER" })
+	public TypeCalibration type;
+
+	private double[][] meas;
+
+	@Setup
+	public void load() throws Exception {
+		int[][] samples = Captures.samples(Captures.lines(capture),
+				type.getRawMessage());
+		meas = new double[samples[0].length][];
+		for (int i = 0; i < meas.length; i++) {
+			meas[i] = new double[] { samples[0][i], samples[1][i],
+					samples[2][i] };
+		}
+	}
+
+	@Benchmark
+	public EllipsoidFit directFit() {
+		return new DirectEllipsoidFit(false).fit(meas, type.getSensorRef());
+	}
+
+	@Benchmark
+	public EllipsoidFit directFitCrossAxis() {
+		return new DirectEllipsoidFit(true).fit(meas, type.getSensorRef());
+	}
+
+	@Benchmark
+	public CalibrationResult solveMinMax() {
+		return CalibrateJava.solve(meas, type, 14, FitMethod.MIN_MAX);
+	}
+
+	@Benchmark
+	public CalibrationResult solveDirect() {
+		return CalibrateJava.solve(meas, type, 14, FitMethod.DIRECT);
+	}
+
+	@Benchmark
+	public CalibrationResult solveFast() {
+		return CalibrateJava.solve(meas, type, 14, FitMethod.FAST);
+	}
+}
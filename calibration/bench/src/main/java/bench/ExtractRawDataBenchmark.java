@@ -0,0 +1,70 @@
+package bench;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import rawmode.ExtractRawData;
+
+/**
+ * Cost of reading the telemetry modes of an aircraft from its settings.xml,
+ * done for each aircraft appearing on the bus : the first time, and when the
+ * aircraft appears again with the same file.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ExtractRawDataBenchmark {
+
+	private File settings;
+
+	@Setup
+	public void copySettings() throws Exception {
+		settings = File.createTempFile("settings", ".xml");
+		InputStream in = ExtractRawDataBenchmark.class
+				.getResourceAsStream("/settings.xml");
+		OutputStream out = new FileOutputStream(settings);
+		try {
+			byte[] buffer = new byte[8192];
+			int n;
+			while ((n = in.read(buffer)) > 0) {
+				out.write(buffer, 0, n);
+			}
+		} finally {
+			in.close();
+			out.close();
+		}
+	}
+
+	@TearDown
+	public void delete() {
+		settings.delete();
+	}
+
+	@Benchmark
+	public List<String> extractUncached() throws Exception {
+		ExtractRawData.clearCache();
+		ExtractRawData modes = new ExtractRawData(settings.getPath());
+		modes.getIndex();
+		return modes.extract();
+	}
+
+	@Benchmark
+	public List<String> extract() throws Exception {
+		ExtractRawData modes = new ExtractRawData(settings.getPath());
+		modes.getIndex();
+		return modes.extract();
+	}
+}
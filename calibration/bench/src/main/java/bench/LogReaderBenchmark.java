@@ -0,0 +1,77 @@
+package bench;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import data.TelemetryDecoder;
+
+import testData.MappedLogReader;
+
+/**
+ * Cost of reading the IMU_MAG_RAW samples of a capture : lines loaded in a
+ * list as DataReader did, then parsed, against the records of the mapped
+ * reader decoded in place.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class LogReaderBenchmark {
+
+	@Param({ "14_03_04__11_25_31.data", "calib_prod16.data" })
+	public String capture;
+
+	private final TelemetryDecoder decoder = new TelemetryDecoder();
+
+	@Benchmark
+	public long bufferedReaderList() throws Exception {
+		ArrayList<String> lignes = new ArrayList<String>();
+		BufferedReader br = new BufferedReader(new InputStreamReader(
+				new FileInputStream(Captures.file(capture)), "ISO-8859-1"));
+		try {
+			String ligne;
+			while ((ligne = br.readLine()) != null) {
+				lignes.add(ligne.substring(ligne.indexOf(" ") + 1));
+			}
+		} finally {
+			br.close();
+		}
+		long sum = 0;
+		for (String ligne : lignes) {
+			if (decoder.reset(ligne).skip().nextEquals("IMU_MAG_RAW")) {
+				sum += decoder.nextInt() + decoder.nextInt() + decoder.nextInt();
+			}
+		}
+		return sum;
+	}
+
+	@Benchmark
+	public long mappedCursor() throws Exception {
+		MappedLogReader log = new MappedLogReader(Captures.file(capture)
+				.getPath());
+		long sum = 0;
+		try {
+			MappedLogReader.Cursor record = log.cursor();
+			while (record.next()) {
+				if (record.nameEquals("IMU_MAG_RAW")) {
+					record.payload(decoder);
+					sum += decoder.nextInt() + decoder.nextInt()
+							+ decoder.nextInt();
+				}
+			}
+		} finally {
+			log.close();
+		}
+		return sum;
+	}
+}
@@ -0,0 +1,93 @@
+package bench;
+
+import imu.IMU;
+import imu.LoopbackBus;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import calibrate.SessionManager;
+
+import ellipsoide.Sphere;
+import filtre.FilterMagneto;
+
+/**
+ * Cost of a message of the capture sent on a loopback bus : regexp bindings,
+ * router, presence of the aircraft and, for IMU_MAG_RAW, the calibration
+ * session of the aircraft. The messages of the capture are sent in turn by
+ * each aircraft, all of them being calibrated.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class LoopbackBusBenchmark {
+
+	@Param({ "14_03_04__11_25_31.data" })
+	public String capture;
+
+	@Param({ "1", "8" })
+	public int nbAircrafts;
+
+	/** Payloads of the messages, after the aircraft id */
+	private String[] payloads;
+	/** Messages of the capture, for each aircraft */
+	private String[][] messages;
+	private int next = 0;
+
+	private LoopbackBus bus;
+	private IMU imu;
+	private SessionManager manager;
+
+	@Setup
+	public void load() throws Exception {
+		String[] lines = Captures.messages(Captures.lines(capture));
+		payloads = new String[lines.length];
+		for (int i = 0; i < lines.length; i++) {
+			payloads[i] = lines[i].substring(lines[i].indexOf(' ') + 1);
+		}
+		messages = new String[nbAircrafts][payloads.length];
+		for (int ac = 0; ac < nbAircrafts; ac++) {
+			for (int i = 0; i < payloads.length; i++) {
+				messages[ac][i] = (ac + 1) + " " + payloads[i];
+			}
+		}
+		bus = new LoopbackBus();
+		imu = new IMU(bus);
+		manager = new SessionManager(imu, 1);
+		startSessions();
+	}
+
+	private void startSessions() {
+		for (int ac = 0; ac < nbAircrafts; ac++) {
+			manager.start(ac + 1, new FilterMagneto(new Sphere(7, 7, 100)));
+		}
+	}
+
+	@TearDown
+	public void shutdown() {
+		manager.shutdown();
+		imu.close();
+	}
+
+	@Benchmark
+	public int send() {
+		int i = next / nbAircrafts;
+		int ac = next % nbAircrafts;
+		next++;
+		if (next == payloads.length * nbAircrafts) {
+			next = 0;
+			// le log des sessions grandit : des sessions par passage
+			startSessions();
+		}
+		return bus.sendMsg(messages[ac][i]);
+	}
+}
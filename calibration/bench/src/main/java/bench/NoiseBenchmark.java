@@ -0,0 +1,86 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import calibrate.CalibrationUtils;
+
+import common.SlidingWindow;
+import common.TypeCalibration;
+
+import filtre.NoiseDetector;
+
+/**
+ * Cost of the noise filter on the samples of a capture : the live detector
+ * on its sliding window, one sample per operation, and the filter of the
+ * solver on the whole capture.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class NoiseBenchmark {
+
+	@Param({ "14_03_04__11_25_31.data" })
+	public String capture;
+
+	@Param({ "ACCELEROMETER", "MAGNETOMETER" })
+	public TypeCalibration type;
+
+	private int[] x;
+	private int[] y;
+	private int[] z;
+	private double[][] meas;
+	private int next = 0;
+
+	private NoiseDetector detector;
+	private SlidingWindow window;
+
+	@Setup
+	public void load() throws Exception {
+		int[][] samples = Captures.samples(Captures.lines(capture),
+				type.getRawMessage());
+		x = samples[0];
+		y = samples[1];
+		z = samples[2];
+		meas = new double[x.length][];
+		for (int i = 0; i < x.length; i++) {
+			meas[i] = new double[] { x[i], y[i], z[i] };
+		}
+		detector = new NoiseDetector(type);
+		window = new SlidingWindow(2 * type.getNoiseWindow());
+	}
+
+	private int nextIndex() {
+		int i = next;
+		next = i + 1 == x.length ? 0 : i + 1;
+		return i;
+	}
+
+	@Benchmark
+	public int windowAdd() {
+		int i = nextIndex();
+		window.add(x[i], y[i], z[i]);
+		return window.getX(0);
+	}
+
+	@Benchmark
+	public boolean detectorAdd() {
+		int i = nextIndex();
+		return detector.add(x[i], y[i], z[i]) && detector.isClean();
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public int[] filterMeas() {
+		return CalibrationUtils.filterMeas(meas, type.getNoiseWindow(),
+				type.getNoiseThreshold());
+	}
+}
@@ -0,0 +1,98 @@
+package bench;
+
+import ihm.DrawMagneto;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import calibrate.CalibrationSession;
+
+import common.TypeCalibration;
+
+import data.Data;
+import ellipsoide.Sphere;
+import filtre.Filter;
+import filtre.FilterMagneto;
+
+/**
+ * Cost of a sample received from the bus : Data.store then Filter.add, with
+ * the filter alone, with the magnetometer view (sphere update and frame
+ * request) and in a background calibration session (sphere update and log).
+ * One operation is one sample of the capture.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PipelineBenchmark {
+
+	@Param({ "14_03_04__11_25_31.data", "calib_prod16.data" })
+	public String capture;
+
+	/** IMU_MAG_RAW samples of the capture */
+	private int[] x;
+	private int[] y;
+	private int[] z;
+	private int next = 0;
+
+	private Data filterOnly;
+	private Data withView;
+	private CalibrationSession session;
+
+	@Setup
+	public void load() throws Exception {
+		int[][] samples = Captures.samples(Captures.lines(capture),
+				TypeCalibration.MAGNETOMETER.getRawMessage());
+		x = samples[0];
+		y = samples[1];
+		z = samples[2];
+		filterOnly = new Data(new Filter(TypeCalibration.MAGNETOMETER, true));
+		FilterMagneto filter = new FilterMagneto(new Sphere(7, 7, 100));
+		DrawMagneto view = new DrawMagneto(new Sphere(7, 7, 100), 30);
+		view.show(filter.getSphere(), filter);
+		filter.attach(view);
+		withView = new Data(filter);
+		session = newSession();
+	}
+
+	private static CalibrationSession newSession() {
+		return new CalibrationSession(14, new FilterMagneto(new Sphere(7, 7,
+				100)));
+	}
+
+	private int nextIndex() {
+		int i = next;
+		next = i + 1 == x.length ? 0 : i + 1;
+		return i;
+	}
+
+	@Benchmark
+	public long storeFilter() {
+		int i = nextIndex();
+		return filterOnly.store(x[i], y[i], z[i], System.nanoTime());
+	}
+
+	@Benchmark
+	public long storeFilterMagneto() {
+		int i = nextIndex();
+		return withView.store(x[i], y[i], z[i], System.nanoTime());
+	}
+
+	@Benchmark
+	public int storeSession() {
+		int i = nextIndex();
+		if (i == 0) {
+			// le log de la session grandit : une session par passage
+			session = newSession();
+		}
+		session.store(x[i], y[i], z[i], System.nanoTime());
+		return session.size();
+	}
+}
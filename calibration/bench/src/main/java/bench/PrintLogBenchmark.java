@@ -0,0 +1,74 @@
+package bench;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import calibrate.PrintLog;
+
+import common.TypeCalibration;
+
+import data.SampleRing;
+
+/**
+ * Cost of the calibration log : adding all the IMU_MAG_RAW samples of a
+ * capture to a new log, and writing the log of a capture.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PrintLogBenchmark {
+
+	@Param({ "14_03_04__11_25_31.data", "calib_prod16.data" })
+	public String capture;
+
+	/** the samples of the capture, as received by the log */
+	private SampleRing ring;
+	private int nbSamples;
+	/** log of the whole capture, to print */
+	private PrintLog full;
+	private File output;
+
+	@Setup
+	public void load() throws Exception {
+		int[][] samples = Captures.samples(Captures.lines(capture),
+				TypeCalibration.MAGNETOMETER.getRawMessage());
+		nbSamples = samples[0].length;
+		int capacity = Integer.highestOneBit(nbSamples) * 2;
+		ring = new SampleRing(capacity);
+		for (int i = 0; i < nbSamples; i++) {
+			ring.put(samples[0][i], samples[1][i], samples[2][i],
+					i * 20000000L);
+		}
+		full = add();
+		output = File.createTempFile("calibration", ".data");
+	}
+
+	@TearDown
+	public void delete() {
+		output.delete();
+	}
+
+	@Benchmark
+	public PrintLog add() {
+		PrintLog log = new PrintLog();
+		for (long seq = 0; seq < nbSamples; seq++) {
+			log.add(14, TypeCalibration.MAGNETOMETER, ring, seq);
+		}
+		return log;
+	}
+
+	@Benchmark
+	public void print() {
+		full.print(output.getPath());
+	}
+}
@@ -0,0 +1,63 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import calibrate.CalibrateJava;
+import calibrate.CalibrationResult;
+import calibrate.FitMethod;
+import calibrate.RansacFit;
+
+import common.TypeCalibration;
+
+/**
+ * Cost of the robust fit of the magnetometer samples of a capture : the
+ * consensus search alone, and the whole calibration with and without the
+ * rejection of the outliers.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class RansacBenchmark {
+
+	@Param({ "14_03_04__11_25_31.data", "calib_prod16.data" })
+	public String capture;
+
+	private double[][] meas;
+
+	@Setup
+	public void load() throws Exception {
+		int[][] samples = Captures.samples(Captures.lines(capture),
+				TypeCalibration.MAGNETOMETER.getRawMessage());
+		meas = new double[samples[0].length][];
+		for (int i = 0; i < meas.length; i++) {
+			meas[i] = new double[] { samples[0][i], samples[1][i],
+					samples[2][i] };
+		}
+	}
+
+	@Benchmark
+	public RansacFit.Consensus consensus() {
+		return new RansacFit().fit(meas);
+	}
+
+	@Benchmark
+	public CalibrationResult solve() {
+		return CalibrateJava.solve(meas, TypeCalibration.MAGNETOMETER, 14,
+				FitMethod.MIN_MAX);
+	}
+
+	@Benchmark
+	public CalibrationResult solveRobust() {
+		return CalibrateJava.solve(meas, TypeCalibration.MAGNETOMETER, 14,
+				FitMethod.ROBUST);
+	}
+}
@@ -0,0 +1,98 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import common.TypeCalibration;
+
+import data.Vector;
+import ellipsoide.Sphere;
+import ellipsoide.Zone;
+
+/**
+ * Cost of the coverage sphere for one sample, at several grid resolutions
+ * (the grid has as many latitudes as longitudes) : Sphere.update with its
+ * zone index, and the scan of all the zones with Zone.containsVector it
+ * replaced.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SphereBenchmark {
+
+	@Param({ "7", "15", "31", "63" })
+	public int grid;
+
+	@Param({ "14_03_04__11_25_31.data" })
+	public String capture;
+
+	private int[] x;
+	private int[] y;
+	private int[] z;
+	private int next = 0;
+
+	private Sphere sphere;
+	private Zone[] zones;
+	private Vector center;
+	private double radius;
+
+	@Setup
+	public void load() throws Exception {
+		int[][] samples = Captures.samples(Captures.lines(capture),
+				TypeCalibration.MAGNETOMETER.getRawMessage());
+		x = samples[0];
+		y = samples[1];
+		z = samples[2];
+		double[] min = { Integer.MAX_VALUE, Integer.MAX_VALUE,
+				Integer.MAX_VALUE };
+		double[] max = { Integer.MIN_VALUE, Integer.MIN_VALUE,
+				Integer.MIN_VALUE };
+		for (int i = 0; i < x.length; i++) {
+			int[] v = { x[i], y[i], z[i] };
+			for (int k = 0; k < 3; k++) {
+				min[k] = Math.min(min[k], v[k]);
+				max[k] = Math.max(max[k], v[k]);
+			}
+		}
+		center = new Vector((max[0] + min[0]) / 2, (max[1] + min[1]) / 2,
+				(max[2] + min[2]) / 2);
+		radius = Math.max(max[0] - min[0],
+				Math.max(max[1] - min[1], max[2] - min[2])) / 2;
+		sphere = new Sphere(grid, grid, 100);
+		// première mise à jour : contours et surfaces des zones
+		sphere.update(radius, center, x[0], y[0], z[0], true);
+		zones = sphere.getZones().toArray(new Zone[0]);
+	}
+
+	private int nextIndex() {
+		int i = next;
+		next = i + 1 == x.length ? 0 : i + 1;
+		return i;
+	}
+
+	@Benchmark
+	public void update() {
+		int i = nextIndex();
+		sphere.update(radius, center, x[i], y[i], z[i], true);
+	}
+
+	@Benchmark
+	public void scanContainsVector(Blackhole bh) {
+		int i = nextIndex();
+		Vector v = new Vector(x[i], y[i], z[i]);
+		for (Zone zone : zones) {
+			if (zone.containsVector(v, center)) {
+				bh.consume(zone);
+			}
+		}
+	}
+}
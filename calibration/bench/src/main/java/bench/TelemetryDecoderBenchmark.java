@@ -0,0 +1,144 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import data.TelemetryDecoder;
+
+/**
+ * Decoding of the telemetry read from the captures : TelemetryDecoder against
+ * the split / valueOf path it replaces, and the decoding of the whole raw
+ * messages with a regexp by aircraft and by sensor against the coarse regexp
+ * of the MessageRouter followed by the decoder. Each operation decodes a
+ * whole capture.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TelemetryDecoderBenchmark {
+
+	@Param({ "14_03_04__11_25_31.data", "calib_prod16.data" })
+	public String capture;
+
+	/** lines of the capture, with their timestamp */
+	private String[] lines;
+	/** payloads of the IMU_*_RAW messages, "x y z" */
+	private String[] rawPayloads;
+	/** lines of the capture, without their timestamp */
+	private String[] messages;
+
+	/** regexp bound by IMU.ListenRaw before the router */
+	private final Pattern rawPattern = Pattern
+			.compile("^14 IMU_MAG_RAW ([\\-]*[0-9]+) ([\\-]*[0-9]+) ([\\-]*[0-9]+)");
+	/** regexp bound by the router for all the aircraft messages */
+	private final Pattern routerPattern = Pattern
+			.compile("^([0-9]+) ([A-Z_0-9]+) ?(.*)");
+
+	private final TelemetryDecoder decoder = new TelemetryDecoder();
+
+	@Setup
+	public void load() throws Exception {
+		lines = Captures.lines(capture);
+		rawPayloads = Captures.rawPayloads(lines);
+		messages = Captures.messages(lines);
+	}
+
+	/** IMU_*_RAW payload, as IMU.ListenRaw did before */
+	@Benchmark
+	public void rawSplitValueOf(Blackhole bh) {
+		for (String payload : rawPayloads) {
+			String values[] = payload.split(" ");
+			bh.consume(Integer.valueOf(values[0]).intValue());
+			bh.consume(Integer.valueOf(values[1]).intValue());
+			bh.consume(Integer.valueOf(values[2]).intValue());
+		}
+	}
+
+	/** IMU_*_RAW payload, as IMU.ListenRaw does now */
+	@Benchmark
+	public void rawDecoder(Blackhole bh) {
+		for (String payload : rawPayloads) {
+			decoder.reset(payload);
+			bh.consume(decoder.nextInt());
+			bh.consume(decoder.nextInt());
+			bh.consume(decoder.nextInt());
+		}
+	}
+
+	/** every number of every line read with split and Double.valueOf */
+	@Benchmark
+	public void linesSplitValueOf(Blackhole bh) {
+		for (String line : lines) {
+			String tokens[] = line.split(" ");
+			bh.consume(Double.valueOf(tokens[0]).doubleValue());
+			bh.consume(Integer.valueOf(tokens[1]).intValue());
+			bh.consume(tokens[2]);
+			for (int i = 3; i < tokens.length; i++) {
+				for (String value : tokens[i].split(",")) {
+					try {
+						bh.consume(Double.valueOf(value).doubleValue());
+					} catch (NumberFormatException e) {
+						bh.consume(value);
+					}
+				}
+			}
+		}
+	}
+
+	/** every number of every line read with the decoder */
+	@Benchmark
+	public void linesDecoder(Blackhole bh) {
+		for (String line : lines) {
+			decoder.reset(line);
+			bh.consume(decoder.nextDouble());
+			bh.consume(decoder.nextInt());
+			decoder.skip();
+			while (decoder.hasNext()) {
+				try {
+					bh.consume(decoder.nextDouble());
+				} catch (NumberFormatException e) {
+					bh.consume(e);
+				}
+			}
+		}
+	}
+
+	/** IMU_MAG_RAW messages, with the regexp of the sensor and parseInt */
+	@Benchmark
+	public void messagesRawRegexp(Blackhole bh) {
+		for (String message : messages) {
+			Matcher m = rawPattern.matcher(message);
+			if (m.find()) {
+				bh.consume(Integer.parseInt(m.group(1)));
+				bh.consume(Integer.parseInt(m.group(2)));
+				bh.consume(Integer.parseInt(m.group(3)));
+			}
+		}
+	}
+
+	/** IMU_MAG_RAW messages, with the regexp of the router and the decoder */
+	@Benchmark
+	public void messagesRouterDecoder(Blackhole bh) {
+		for (String message : messages) {
+			Matcher m = routerPattern.matcher(message);
+			if (m.find() && Integer.parseInt(m.group(1)) == 14
+					&& "IMU_MAG_RAW".equals(m.group(2))) {
+				decoder.reset(m.group(3));
+				bh.consume(decoder.nextInt());
+				bh.consume(decoder.nextInt());
+				bh.consume(decoder.nextInt());
+			}
+		}
+	}
+}
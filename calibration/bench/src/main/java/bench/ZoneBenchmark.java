@@ -0,0 +1,58 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import common.TypeCalibration;
+
+import data.Vector;
+import ellipsoide.Zone;
+
+/**
+ * Cost of the operations of a single zone : the test of a sample of the
+ * capture and the computation of its contour when the sphere changes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ZoneBenchmark {
+
+	private Vector[] vectors;
+	private int next = 0;
+	private Vector center = new Vector(0, 0, 0);
+	private Zone zone;
+
+	@Setup
+	public void load() throws Exception {
+		int[][] samples = Captures.samples(
+				Captures.lines("14_03_04__11_25_31.data"),
+				TypeCalibration.MAGNETOMETER.getRawMessage());
+		vectors = new Vector[samples[0].length];
+		for (int i = 0; i < vectors.length; i++) {
+			vectors[i] = new Vector(samples[0][i], samples[1][i],
+					samples[2][i]);
+		}
+		// une zone de la grille 7x7 de l'application
+		zone = new Zone(-Math.PI / 14, Math.PI / 14, 0, 2 * Math.PI / 7, 100);
+	}
+
+	@Benchmark
+	public boolean containsVector() {
+		Vector v = vectors[next];
+		next = next + 1 == vectors.length ? 0 : next + 1;
+		return zone.containsVector(v, center);
+	}
+
+	@Benchmark
+	public Zone majListContour() {
+		zone.majListContour(500);
+		return zone;
+	}
+}
@@ -0,0 +1,242 @@
+package calibrate;
+
+import java.util.Locale;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import common.TypeCalibration;
+
+import ellipsoide.Sphere;
+import filtre.EllipsoidFit;
+import filtre.Filter;
+
+/**
+ * Decides when a calibration has collected enough samples : the zones of the
+ * sphere must be covered, and the live fit of the ellipsoid must not move
+ * anymore over the last checks. The criteria are checked every window of
+ * correct samples, so that the cost of a sample stays negligible.
+ */
+public class AutoStop {
+
+	private static Logger logger = Logger.getLogger(AutoStop.class.getName());
+
+	/** Number of consecutive checks under the tolerance */
+	private static final int STABLE_CHECKS = 2;
+
+	/**
+	 * The criteria of the auto stop of a sensor
+	 */
+	public static class Criteria {
+		/** Fraction of the zones of the sphere to cover, in [0;1] */
+		private final double coverage;
+		/** Number of correct samples between two checks */
+		private final int window;
+		/** Largest relative change of the fit over a window */
+		private final double tolerance;
+
+		/**
+		 * @param coverage
+		 *            fraction of the zones of the sphere to cover, in [0;1]
+		 * @param window
+		 *            number of correct samples between two checks
+		 * @param tolerance
+		 *            largest relative change of the neutrals and the
+		 *            sensitivities over a window
+		 */
+		public Criteria(double coverage, int window, double tolerance) {
+			if (window < 1) {
+				throw new IllegalArgumentException("invalid auto stop window "
+						+ window);
+			}
+			this.coverage = coverage;
+			this.window = window;
+			this.tolerance = tolerance;
+		}
+
+		/**
+		 * @param t
+		 *            the sensor
+		 * @return the default criteria of the sensor, tuned on the captures
+		 *         of test : the magnetometer is turned in all directions, the
+		 *         accelerometer is held in a few positions only
+		 */
+		public static Criteria getDefault(TypeCalibration t) {
+			if (t == TypeCalibration.ACCELEROMETER) {
+				return new Criteria(0.15, 400, 0.002);
+			}
+			return new Criteria(0.2, 250, 0.005);
+		}
+
+		/**
+		 * Reads the criteria of a sensor in the properties,
+		 * autostop_coverage_MAG for example, the missing ones being the
+		 * defaults of the sensor
+		 *
+		 * @param prop
+		 *            the properties of the application
+		 * @param t
+		 *            the sensor
+		 * @return the criteria
+		 */
+		public static Criteria fromProperties(Properties prop,
+				TypeCalibration t) {
+			Criteria d = getDefault(t);
+			String suffix = "_" + t.getSensor();
+			return new Criteria(getDouble(prop, "autostop_coverage" + suffix,
+					d.coverage), (int) getDouble(prop, "autostop_window"
+					+ suffix, d.window), getDouble(prop, "autostop_tolerance"
+					+ suffix, d.tolerance));
+		}
+
+		private static double getDouble(Properties prop, String key,
+				double defaultValue) {
+			String value = prop.getProperty(key);
+			if (value == null || value.trim().isEmpty()) {
+				return defaultValue;
+			}
+			try {
+				return Double.parseDouble(value.trim());
+			} catch (NumberFormatException e) {
+				logger.warning("invalid " + key + " " + value + ", using "
+						+ defaultValue);
+				return defaultValue;
+			}
+		}
+
+		public double getCoverage() {
+			return coverage;
+		}
+
+		public int getWindow() {
+			return window;
+		}
+
+		public double getTolerance() {
+			return tolerance;
+		}
+
+		@Override
+		public String toString() {
+			return String.format(Locale.US,
+					"coverage %.0f %%, change under %.2f %% over %d samples",
+					coverage * 100, tolerance * 100, window);
+		}
+	}
+
+	/**
+	 * @param prop
+	 *            the properties of the application
+	 * @return true if autostop is set to true
+	 */
+	public static boolean isEnabled(Properties prop) {
+		return Boolean.parseBoolean(prop.getProperty("autostop", "false")
+				.trim());
+	}
+
+	private final Criteria criteria;
+	/** Number of correct samples of the next check */
+	private long next;
+	/** The fit of the last check, null before it */
+	private EllipsoidFit previous = null;
+	/** Number of consecutive checks under the tolerance */
+	private int stable = 0;
+	/** State of the last check */
+	private volatile double coverage = 0;
+	private volatile double change = Double.POSITIVE_INFINITY;
+	private volatile boolean reached = false;
+
+	/**
+	 * @param criteria
+	 *            the criteria of the sensor
+	 */
+	public AutoStop(Criteria criteria) {
+		this.criteria = criteria;
+		this.next = criteria.window;
+	}
+
+	/**
+	 * Checks the criteria if a window of correct samples has been added since
+	 * the last check. Called by the thread adding the samples to the filter
+	 *
+	 * @param filter
+	 *            the filter of the calibration
+	 * @return true once, when the criteria are met for the first time
+	 */
+	public boolean update(Filter filter) {
+		if (reached) {
+			return false;
+		}
+		long n = filter.getNbFitted();
+		if (n < next) {
+			return false;
+		}
+		next = n + criteria.window;
+		Sphere sphere = filter.getSphere();
+		coverage = sphere == null ? 1 : sphere.getCoverage();
+		EllipsoidFit fit = filter.getFit();
+		change = change(previous, fit, filter.getType().getSensorRef());
+		previous = fit;
+		// une seule fenetre stable peut venir d'une position repetee
+		stable = change <= criteria.tolerance ? stable + 1 : 0;
+		if (coverage >= criteria.coverage && stable >= STABLE_CHECKS) {
+			reached = true;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * @return the largest change between two fits, relative to the radius
+	 *         for the neutrals and to the sensitivity for the sensitivities,
+	 *         infinite if one of them is missing
+	 */
+	private static double change(EllipsoidFit before, EllipsoidFit after,
+			double sensorRef) {
+		if (before == null || after == null) {
+			return Double.POSITIVE_INFINITY;
+		}
+		double[] o0 = before.getOffset();
+		double[] o1 = after.getOffset();
+		double[] s0 = before.getScale();
+		double[] s1 = after.getScale();
+		double max = 0;
+		for (int a = 0; a < 3; a++) {
+			// le rayon de l'axe vaut sensorRef / s en unites brutes
+			max = Math.max(max, Math.abs(o1[a] - o0[a]) * s1[a] / sensorRef);
+			max = Math.max(max, Math.abs(s1[a] - s0[a]) / s0[a]);
+		}
+		return Double.isNaN(max) ? Double.POSITIVE_INFINITY : max;
+	}
+
+	public Criteria getCriteria() {
+		return criteria;
+	}
+
+	/**
+	 * @return the coverage of the sphere at the last check
+	 */
+	public double getCoverage() {
+		return coverage;
+	}
+
+	/**
+	 * @return the change of the fit at the last check
+	 */
+	public double getChange() {
+		return change;
+	}
+
+	/**
+	 * @return true if the criteria have been met
+	 */
+	public boolean isReached() {
+		return reached;
+	}
+
+	@Override
+	public String toString() {
+		return String.format(Locale.US,
+				"coverage %.0f %%, change %.2f %% over %d samples",
+				coverage * 100, change * 100, criteria.window);
+	}
+}
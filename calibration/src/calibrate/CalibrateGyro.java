@@ -0,0 +1,262 @@
+package calibrate;
+
+import java.util.logging.Logger;
+
+import common.TypeCalibration;
+
+/**
+ * Computes the calibration of the gyrometers inside the application, as
+ * calibrate_gyro.py with the rate of a turntable, or with the magnetometer
+ * of the same log as reference of the rotations when there is no turntable
+ */
+public class CalibrateGyro {
+
+	private static Logger logger = Logger.getLogger(CalibrateGyro.class
+			.getName());
+
+	/** Message giving the rate of the turntable, in rad/s */
+	public static final String TURNTABLE_MESSAGE = "IMU_TURNTABLE";
+	/**
+	 * Largest error on the rotation of the magnetometer, in rad/s : above,
+	 * the sensitivities are not given, only the neutrals
+	 */
+	public static final double MAX_RESIDUAL = 0.1;
+
+	/**
+	 * Computes the neutrals and the sensitivities of the gyrometers. The
+	 * records are counted as the filtered ones of the other sensors, and the
+	 * average and deviation are the calibrated rate at rest and the error on
+	 * the rotation of the magnetometer, both in rad/s
+	 *
+	 * @param gyro
+	 *            the samples of the gyrometers : x, y, z, time
+	 * @param mag
+	 *            the samples of the magnetometer : x, y, z, time
+	 * @param magParameters
+	 *            the neutrals and sensitivities of the magnetometer, null if
+	 *            it is not calibrated
+	 * @param idDrone
+	 * @return the result, with the neutrals only (partial) if the rotations
+	 *         of the magnetometer do not give the sensitivities within
+	 *         MAX_RESIDUAL
+	 */
+	public static CalibrationResult solve(double[][] gyro, double[][] mag,
+			double[] magParameters, int idDrone) {
+		CalibrationResult result = new CalibrationResult(idDrone,
+				TypeCalibration.GYROSCOPE);
+		if (!isTimed(gyro, idDrone) || !isTimed(mag, idDrone)) {
+			result.setRecords(gyro.length);
+			result.setFiltered(gyro.length);
+			return result;
+		}
+		GyroEstimator estimator = new GyroEstimator(magParameters);
+		// les deux capteurs dans l'ordre de leurs dates
+		int m = 0;
+		for (double[] g : gyro) {
+			while (m < mag.length && mag[m][3] <= g[3]) {
+				estimator.addMag(mag[m][0], mag[m][1], mag[m][2], mag[m][3]);
+				m++;
+			}
+			estimator.addGyro((int) g[0], (int) g[1], (int) g[2], g[3]);
+		}
+		result.setRecords(estimator.getNbRecords());
+		result.setFiltered(estimator.getNbStationary());
+
+		double[] neutrals = estimator.getNeutrals();
+		if (neutrals == null) {
+			logger.info("gyrometers of aircraft " + idDrone
+					+ " not solved : no stationary sample");
+			result.setNotEnoughMotion();
+			return result;
+		}
+		double[] sens = estimator.getSensitivities();
+		double residual = estimator.getResidual();
+		if (sens == null) {
+			logger.info("sensitivities of the gyrometers of aircraft "
+					+ idDrone + " not solved : " + estimator.getNbPairs()
+					+ " rotations"
+					+ (magParameters == null ? ", magnetometer not calibrated"
+							: ""));
+			return setNeutrals(result, neutrals, Double.NaN);
+		}
+		if (!(residual <= MAX_RESIDUAL)) {
+			// des valeurs plausibles mais fausses : seuls les neutres
+			logger.warning("sensitivities of the gyrometers of aircraft "
+					+ idDrone + " not given : error of " + residual
+					+ " rad/s on the rotation of the magnetometer");
+			return setNeutrals(result, neutrals, residual);
+		}
+		double[] p = new double[CalibrationUtils.NB_PARAMETERS];
+		for (int a = 0; a < 3; a++) {
+			p[a] = neutrals[a];
+			p[a + 3] = sens[a];
+		}
+		result.setOptimized(p, estimator.getRestRate(sens), residual);
+		logger.fine("gyrometers of aircraft " + idDrone + " : "
+				+ estimator.getNbPairs() + " rotations");
+		return result;
+	}
+
+	/**
+	 * Computes the calibration of the gyrometers with a turntable, as
+	 * calibrate_gyro.py : each sample of the gyrometers is taken at the last
+	 * rate received from the turntable
+	 *
+	 * @param gyro
+	 *            the samples of the gyrometers : x, y, z, time
+	 * @param turntable
+	 *            the rates of the turntable : rate in rad/s, time
+	 * @param idDrone
+	 * @return the result, with the sensitivities of the axes turned by the
+	 *         turntable
+	 * @see #solve(GyroEstimator, TurntableRegression, int, int)
+	 */
+	public static CalibrationResult solveTurntable(double[][] gyro,
+			double[][] turntable, int idDrone) {
+		if (!isTimed(gyro, idDrone)) {
+			CalibrationResult result = new CalibrationResult(idDrone,
+					TypeCalibration.GYROSCOPE);
+			result.setRecords(gyro.length);
+			result.setFiltered(gyro.length);
+			return result;
+		}
+		GyroEstimator still = new GyroEstimator(null);
+		TurntableRegression regression = new TurntableRegression();
+		double rate = Double.NaN;
+		int t = 0;
+		for (double[] g : gyro) {
+			while (t < turntable.length && turntable[t][1] <= g[3]) {
+				rate = turntable[t][0];
+				t++;
+			}
+			add(still, regression, rate, (int) g[0], (int) g[1], (int) g[2],
+					g[3]);
+		}
+		return solve(still, regression, gyro.length, idDrone);
+	}
+
+	/**
+	 * Adds a sample of the gyrometers taken on a turntable
+	 *
+	 * @param still
+	 *            receives the samples taken while the turntable is stopped,
+	 *            a constant rotation looking stationary to the noise filter
+	 * @param regression
+	 *            receives the samples taken while it turns
+	 * @param rate
+	 *            the last rate received from the turntable, NaN if none
+	 * @param x
+	 * @param y
+	 * @param z
+	 * @param t
+	 *            time of the sample, in s
+	 */
+	public static void add(GyroEstimator still,
+			TurntableRegression regression, double rate, int x, int y, int z,
+			double t) {
+		if (!(Math.abs(rate) > 0)) {
+			still.addGyro(x, y, z, t);
+		}
+		regression.add(rate, x, y, z);
+	}
+
+	/**
+	 * Computes the calibration of the gyrometers turned by a turntable : the
+	 * axes turned get the neutral and the sensitivity of their regression,
+	 * the other ones the neutral of the stationary intervals. The records
+	 * filtered are the samples taken while the turntable turns, the average
+	 * and the deviation are the calibrated rate at rest and the error on the
+	 * rate of the turntable, both in rad/s
+	 *
+	 * @param still
+	 *            the samples of the gyrometers, without magnetometer
+	 * @param regression
+	 *            the samples against the rate of the turntable
+	 * @param nbRecords
+	 *            number of samples of the gyrometers
+	 * @param idDrone
+	 * @return the result, partial if the turntable has not turned around the
+	 *         three axes, with the neutrals only if it has not turned
+	 * @see #add(GyroEstimator, TurntableRegression, double, int, int, int,
+	 *      double)
+	 */
+	public static CalibrationResult solve(GyroEstimator still,
+			TurntableRegression regression, int nbRecords, int idDrone) {
+		CalibrationResult result = new CalibrationResult(idDrone,
+				TypeCalibration.GYROSCOPE);
+		result.setRecords(nbRecords);
+		result.setFiltered((int) regression.getNbSamples());
+		double[] neutrals = still.getNeutrals();
+		if (!regression.isSolved()) {
+			logger.info("sensitivities of the gyrometers of aircraft "
+					+ idDrone + " not solved with the turntable : "
+					+ regression);
+			if (neutrals == null) {
+				result.setNotEnoughMotion();
+				return result;
+			}
+			return setNeutrals(result, neutrals, Double.NaN);
+		}
+		boolean[] axes = regression.getCalibratedAxes();
+		double[] slopes = regression.getSlopes();
+		double[] intercepts = regression.getIntercepts();
+		double[] p = new double[CalibrationUtils.NB_PARAMETERS];
+		boolean[] defined = new boolean[CalibrationUtils.NB_PARAMETERS];
+		double[] sens = new double[3];
+		for (int a = 0; a < 3; a++) {
+			if (axes[a]) {
+				// GYRO_SENS = 2^12 / a, signe compris
+				p[a] = intercepts[a];
+				p[a + 3] = 1 / slopes[a];
+				defined[a] = true;
+				defined[a + 3] = true;
+				sens[a] = Math.abs(p[a + 3]);
+			} else if (neutrals != null) {
+				p[a] = neutrals[a];
+				defined[a] = true;
+			}
+		}
+		result.setPartial(p, defined, still.getRestRate(sens),
+				regression.getResidual());
+		logger.fine("gyrometers of aircraft " + idDrone
+				+ " with the turntable : " + regression);
+		return result;
+	}
+
+	/**
+	 * Gives the neutrals only, the result being partial
+	 *
+	 * @param result
+	 * @param neutrals
+	 *            the mean of the stationary samples
+	 * @param std
+	 *            the error of the sensitivities not given, NaN if none
+	 * @return the result
+	 */
+	static CalibrationResult setNeutrals(CalibrationResult result,
+			double[] neutrals, double std) {
+		double[] p = new double[CalibrationUtils.NB_PARAMETERS];
+		boolean[] defined = new boolean[CalibrationUtils.NB_PARAMETERS];
+		for (int a = 0; a < 3; a++) {
+			p[a] = neutrals[a];
+			defined[a] = true;
+		}
+		result.setPartial(p, defined, Double.NaN, std);
+		return result;
+	}
+
+	/**
+	 * @return true if the samples have their time, false for the samples of a
+	 *         .afs session which can't be synchronized
+	 */
+	private static boolean isTimed(double[][] samples, int idDrone) {
+		for (double[] s : samples) {
+			if (s.length < 4) {
+				logger.warning("gyrometers of aircraft " + idDrone
+						+ " not solved : samples without time");
+				return false;
+			}
+		}
+		return true;
+	}
+}
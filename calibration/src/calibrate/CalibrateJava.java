@@ -0,0 +1,162 @@
+package calibrate;
+
+import java.io.IOException;
+import java.util.logging.Logger;
+
+import common.TypeCalibration;
+import filtre.EllipsoidFit;
+
+/**
+ * Computes the calibration inside the application, on the samples kept in
+ * memory by the log, as calibrate.py would do it
+ */
+public final class CalibrateJava {
+
+	private static Logger logger = Logger.getLogger(CalibrateJava.class
+			.getName());
+
+	private CalibrateJava() {
+	}
+
+	/**
+	 * Computes the calibration of the measurements, with the same steps and
+	 * the same output as calibrate.py in verbose mode
+	 *
+	 * @param measurements
+	 * @param type
+	 * @param idDrone
+	 * @return the text printed by calibrate.py
+	 */
+	public static String calibrates(double[][] measurements,
+			TypeCalibration type, int idDrone) {
+		return solve(measurements, type, idDrone).toString();
+	}
+
+	/**
+	 * Computes the calibration of the measurements
+	 *
+	 * @param measurements
+	 * @param type
+	 * @param idDrone
+	 * @param method
+	 *            the fit of the neutrals and the sensitivities
+	 * @return the text printed by calibrate.py, with the steps of the method
+	 */
+	public static String calibrates(double[][] measurements,
+			TypeCalibration type, int idDrone, FitMethod method) {
+		return solve(measurements, type, idDrone, method).toString();
+	}
+
+	/**
+	 * Computes the calibration of the measurements, with the same steps as
+	 * calibrate.py
+	 *
+	 * @param measurements
+	 * @param type
+	 * @param idDrone
+	 * @return the result of each step
+	 */
+	public static CalibrationResult solve(double[][] measurements,
+			TypeCalibration type, int idDrone) {
+		return solve(measurements, type, idDrone, FitMethod.MIN_MAX);
+	}
+
+	/**
+	 * Computes the calibration of the measurements. In robust mode, the
+	 * measurements out of the consensus of a RansacFit are removed after the
+	 * noise filter, and the best candidate of the fit is the initial guess.
+	 * In direct mode, the initial guess is given by a DirectEllipsoidFit, which
+	 * is the result itself in fast mode
+	 *
+	 * @param measurements
+	 * @param type
+	 * @param idDrone
+	 * @param method
+	 *            the fit of the neutrals and the sensitivities
+	 * @return the result of each step
+	 */
+	public static CalibrationResult solve(double[][] measurements,
+			TypeCalibration type, int idDrone, FitMethod method) {
+		CalibrationResult result = new CalibrationResult(idDrone, type);
+		result.setRecords(measurements.length);
+		if (measurements.length == 0) {
+			return result;
+		}
+
+		// filter out noisy measurements
+		double[][] fltMeas = CalibrationUtils.select(measurements,
+				CalibrationUtils.filterMeas(measurements,
+						type.getNoiseWindow(), type.getNoiseThreshold()));
+		result.setFiltered(fltMeas.length);
+		if (fltMeas.length == 0) {
+			return result;
+		}
+
+		double[] p0 = null;
+		boolean direct = false;
+		if (method == FitMethod.ROBUST) {
+			// rejet des valeurs aberrantes (saturations, pics)
+			RansacFit.Consensus consensus = new RansacFit().fit(fltMeas);
+			if (consensus != null) {
+				fltMeas = CalibrationUtils.select(fltMeas,
+						consensus.getInliers());
+				p0 = consensus.getGuess(type.getSensorRef());
+			}
+			result.setInliers(fltMeas.length);
+		} else if (method == FitMethod.DIRECT || method == FitMethod.FAST) {
+			// ellipsoide aligne sur les axes, comme le modele optimise
+			EllipsoidFit fit = new DirectEllipsoidFit(false).fit(fltMeas,
+					type.getSensorRef());
+			if (fit != null) {
+				p0 = DirectEllipsoidFit.getParameters(fit);
+				direct = true;
+			}
+		}
+		if (p0 == null) {
+			// get an initial min/max guess
+			p0 = CalibrationUtils.getMinMaxGuess(fltMeas, type.getSensorRef());
+		}
+		double[] np0 = CalibrationUtils.scaleMeasurements(fltMeas, p0);
+		result.setInitialGuess(CalibrationUtils.mean(np0),
+				CalibrationUtils.std(np0));
+		if (method == FitMethod.FAST) {
+			// pas d'optimisation : l'ellipsoide direct est le resultat
+			if (direct) {
+				result.setDirect(p0, CalibrationUtils.mean(np0),
+						CalibrationUtils.std(np0));
+			}
+			return result;
+		}
+
+		double[] p1 = CalibrationUtils.leastSquares(fltMeas,
+				type.getSensorRef(), p0);
+		if (p1 == null) {
+			return result;
+		}
+		double[] np1 = CalibrationUtils.scaleMeasurements(fltMeas, p1);
+		result.setOptimized(p1, CalibrationUtils.mean(np1),
+				CalibrationUtils.std(np1));
+		return result;
+	}
+
+	/**
+	 * Calibrates a session recorded by SessionWriter
+	 * 
+	 * @param args
+	 *            the session file
+	 */
+	public static void main(String args[]) {
+		if (args.length != 1) {
+			System.err.println("usage: CalibrateJava session_file");
+			System.exit(1);
+		}
+		try {
+			SessionReader session = new SessionReader(args[0]);
+			System.out.print(calibrates(session.getMeasurements(),
+					session.getType(), session.getAcId()));
+		} catch (IOException e) {
+			logger.warning(e.getMessage());
+			System.exit(1);
+		}
+	}
+}
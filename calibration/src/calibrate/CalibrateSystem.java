@@ -5,9 +5,6 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.util.logging.Logger;
 
-import javax.swing.JTextArea;
-import javax.swing.SwingUtilities;
-
 import common.TypeCalibration;
 
 /**
@@ -23,72 +20,44 @@ import common.TypeCalibration;
  * @author Guillaume
  * 
  */
-public class CalibrateSystem extends Thread {
+public final class CalibrateSystem {
 
 	private static Logger logger = Logger.getLogger(CalibrateSystem.class
 			.getName());
 
-	/**
-	 * Allows to determine the string to launch the extern program
-	 */
-	private TypeCalibration type;
-
-	/**
-	 * The name of the file we pull the parameters of
-	 */
-	private String logName;
-
-	/**
-	 * The script to be executed
-	 */
-	private String paparazziScriptCalibration;
-
-	/**
-	 * The string displayed in the area
-	 */
-	private String parameters = "calcul en cours";
-
-	/**
-	 * the textArea to print to
-	 */
-	private JTextArea result;
-
-	/**
-	 * Initialize the values of the attributes
-	 * 
-	 * @param t
-	 * @param paparazziHome
-	 * @param logName
-	 * @param result
-	 *            the textArea to print to
-	 * @param textResult
-	 *            the textArea with results
-	 */
-	public CalibrateSystem(TypeCalibration t,
-			String paparazziScriptCalibration, String logName, JTextArea result) {
-		type = t;
-		this.logName = logName;
-		this.paparazziScriptCalibration = paparazziScriptCalibration;
-		this.parameters = "calcul en cours";
-		this.result = result;
+	private CalibrateSystem() {
 	}
 
 	/**
 	 * The procedure used to get the calibration values
 	 * 
+	 * @param type
+	 *            the sensor to calibrate
+	 * @param paparazziScriptCalibration
+	 *            the script to be executed
 	 * @param logName
+	 *            the log of the calibration
+	 * @return the text printed by the script
 	 * @throws IOException
 	 * @throws InterruptedException
+	 * @throws IllegalArgumentException
+	 *             if the sensor is not calibrated by the script
 	 */
-	private void calibrates() throws InterruptedException, IOException {
+	public static String calibrates(TypeCalibration type,
+			String paparazziScriptCalibration, String logName)
+			throws InterruptedException, IOException {
+		// calibrate.py ne calibre que les capteurs ajustes sur une sphere
+		if (type != TypeCalibration.ACCELEROMETER
+				&& type != TypeCalibration.MAGNETOMETER) {
+			throw new IllegalArgumentException(
+					"calibrate.py can't calibrate the sensor " + type);
+		}
 		String newline = System.getProperty("line.separator");
+		String parameters;
 		Runtime runtime = Runtime.getRuntime();
 
-		String command = "python "
-				+ paparazziScriptCalibration
-				+ " -s "
-				+ (type.equals(TypeCalibration.ACCELEROMETER) ? "ACCEL "
-						: "MAG ") + " -v " + logName;
+		String command = "python " + paparazziScriptCalibration + " -s "
+				+ type.getSensor() + " -v " + logName;
 		logger.info("executing : " + command);
 		final Process process = runtime.exec(command);
 
@@ -115,30 +84,6 @@ public class CalibrateSystem extends Thread {
 			logger.warning(e.getMessage());
 		}
 		logger.info("end of python script for " + type);
-	}
-
-	/**
-	 * Update the string displayed in the textArea
-	 */
-	public void run() {
-		try {
-			calibrates();
-		} catch (InterruptedException e) {
-			logger.warning("can't get python script to calibrate : "
-					+ e.getMessage());
-		} catch (IOException e) {
-			logger.warning(" can't get result file to calibrate : "
-					+ e.getMessage());
-		} catch (Exception e) {
-			logger.warning(" can't get calibration : " + e.getMessage());
-			e.printStackTrace();
-		}
-
-		// Affichage des résultats
-		SwingUtilities.invokeLater(new Runnable() {
-			public void run() {
-				result.setText(parameters);
-			}
-		});
+		return parameters;
 	}
 }
@@ -0,0 +1,37 @@
+package calibrate;
+
+import java.util.Properties;
+
+import common.TypeCalibration;
+
+/**
+ * A calibration in progress of an aircraft, whose result is displayed with
+ * the others : the calibration of a sensor or of the magnetometer against
+ * the current.
+ */
+public interface Calibration {
+
+	/**
+	 * @return id of the calibrated aircraft
+	 */
+	int getAcId();
+
+	/**
+	 * @return what is calibrated
+	 */
+	TypeCalibration getType();
+
+	/**
+	 * @return the number of samples received
+	 */
+	int size();
+
+	/**
+	 * Computes the calibration with the samples received so far
+	 *
+	 * @param prop
+	 *            the properties of the application
+	 * @return the text of the result
+	 */
+	String solve(Properties prop);
+}
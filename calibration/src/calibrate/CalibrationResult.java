@@ -0,0 +1,305 @@
+package calibrate;
+
+import java.util.Locale;
+
+import common.TypeCalibration;
+
+/**
+ * Result of the calibration of a sensor of an aircraft, with the
+ * intermediate steps printed by calibrate.py
+ */
+public class CalibrationResult {
+
+	/** Id of the calibrated aircraft */
+	private final int acId;
+	/** The sensor calibrated */
+	private final TypeCalibration type;
+	/** Number of measurements read */
+	private int nbRecords;
+	/** Number of measurements remaining after the noise filter */
+	private int nbFiltered;
+	/** Number of measurements in the consensus set, -1 if not robust */
+	private int nbInliers = -1;
+	/** Average and deviation of the norm with the min/max guess */
+	private double initialAvg;
+	private double initialStd;
+	/** false if the calibration has no initial guess (gyrometers) */
+	private boolean guessed = false;
+	/** Neutrals and sensitivities optimized, null if not computed */
+	private double[] parameters;
+	/**
+	 * The parameters computed, null if all : the turntable only gives the
+	 * sensitivities of the axes it turns around
+	 */
+	private boolean[] defined = null;
+	/** true if the sensor has not moved or not stayed still enough */
+	private boolean notEnoughMotion = false;
+	/** true if the parameters are given by the direct fit, not optimized */
+	private boolean direct = false;
+	/** Average and deviation of the norm with the optimized parameters */
+	private double optimizedAvg;
+	private double optimizedStd;
+
+	/**
+	 * @param acId
+	 *            id of the aircraft
+	 * @param type
+	 *            the sensor
+	 */
+	CalibrationResult(int acId, TypeCalibration type) {
+		this.acId = acId;
+		this.type = type;
+	}
+
+	void setRecords(int nbRecords) {
+		this.nbRecords = nbRecords;
+	}
+
+	void setFiltered(int nbFiltered) {
+		this.nbFiltered = nbFiltered;
+	}
+
+	void setInliers(int nbInliers) {
+		this.nbInliers = nbInliers;
+	}
+
+	void setInitialGuess(double avg, double std) {
+		this.initialAvg = avg;
+		this.initialStd = std;
+		this.guessed = true;
+	}
+
+	void setOptimized(double[] p, double avg, double std) {
+		this.parameters = p.clone();
+		this.optimizedAvg = avg;
+		this.optimizedStd = std;
+	}
+
+	/**
+	 * @param p
+	 *            the neutrals and sensitivities, the ones not computed being
+	 *            ignored
+	 * @param defined
+	 *            the parameters computed
+	 */
+	void setPartial(double[] p, boolean[] defined, double avg, double std) {
+		setOptimized(p, avg, std);
+		boolean all = true;
+		for (boolean d : defined) {
+			all &= d;
+		}
+		this.defined = all ? null : defined.clone();
+	}
+
+	/**
+	 * The calibration is not solved because the samples lack stationary
+	 * intervals or rotations (gyrometers)
+	 */
+	void setNotEnoughMotion() {
+		this.notEnoughMotion = true;
+	}
+
+	void setDirect(double[] p, double avg, double std) {
+		setOptimized(p, avg, std);
+		this.direct = true;
+	}
+
+	public int getAcId() {
+		return acId;
+	}
+
+	public TypeCalibration getType() {
+		return type;
+	}
+
+	public int getNbRecords() {
+		return nbRecords;
+	}
+
+	public int getNbFiltered() {
+		return nbFiltered;
+	}
+
+	/**
+	 * @return the number of measurements kept by the robust fit, -1 if the
+	 *         fit was not robust
+	 */
+	public int getNbInliers() {
+		return nbInliers;
+	}
+
+	public double getInitialAvg() {
+		return initialAvg;
+	}
+
+	public double getInitialStd() {
+		return initialStd;
+	}
+
+	public double getOptimizedAvg() {
+		return optimizedAvg;
+	}
+
+	public double getOptimizedStd() {
+		return optimizedStd;
+	}
+
+	/**
+	 * @return true if the neutrals and sensitivities have been optimized, or
+	 *         given by the direct fit
+	 */
+	public boolean isSolved() {
+		return parameters != null;
+	}
+
+	/**
+	 * @return true if the parameters are given by the direct fit, without
+	 *         least squares optimization
+	 */
+	public boolean isDirect() {
+		return direct;
+	}
+
+	/**
+	 * @return the neutrals and the sensitivities, null if not solved
+	 */
+	public double[] getParameters() {
+		return parameters == null ? null : parameters.clone();
+	}
+
+	/**
+	 * @param i
+	 *            index of a neutral (0 to 2) or of a sensitivity (3 to 5)
+	 * @return true if the parameter has been computed
+	 */
+	public boolean isDefined(int i) {
+		return isSolved() && (defined == null || defined[i]);
+	}
+
+	/**
+	 * @return the state of the calibration, as a single word
+	 */
+	public String getStatus() {
+		if (nbRecords == 0) {
+			return "no_data";
+		}
+		if (notEnoughMotion && !isSolved()) {
+			return "not_enough_motion";
+		}
+		if (nbFiltered == 0) {
+			return "too_noisy";
+		}
+		if (!isSolved()) {
+			return "optimization_error";
+		}
+		return defined == null ? "ok" : "partial";
+	}
+
+	/**
+	 * @return the defines of the airframe file, empty if not solved
+	 */
+	public String toXml() {
+		if (!isSolved()) {
+			return "";
+		}
+		return CalibrationUtils.printXml(parameters, type.getSensor(),
+				type.getSensorRes(), defined);
+	}
+
+	/**
+	 * @param separator
+	 *            separator of the columns
+	 * @return the line of the result in a summary : id, sensor, records,
+	 *         filtered, avg, std, neutrals, sensitivities, status
+	 */
+	public String toCsv(String separator) {
+		StringBuffer sb = new StringBuffer();
+		sb.append(acId).append(separator);
+		sb.append(type.getSensor()).append(separator);
+		sb.append(nbRecords).append(separator);
+		sb.append(nbFiltered).append(separator);
+		if (isSolved()) {
+			double f = Math.pow(2, type.getSensorRes());
+			// vides si non calcules (neutres seuls des gyrometres)
+			if (!Double.isNaN(optimizedAvg)) {
+				sb.append(String.format(Locale.US, "%.6f", optimizedAvg));
+			}
+			sb.append(separator);
+			if (!Double.isNaN(optimizedStd)) {
+				sb.append(String.format(Locale.US, "%.6f", optimizedStd));
+			}
+			sb.append(separator);
+			for (int a = 0; a < 3; a++) {
+				if (isDefined(a)) {
+					sb.append(Math.round(parameters[a]));
+				}
+				sb.append(separator);
+			}
+			for (int a = 3; a < 6; a++) {
+				if (isDefined(a)) {
+					sb.append(String.format(Locale.US, "%.6f", parameters[a]
+							* f));
+				}
+				sb.append(separator);
+			}
+		} else {
+			for (int i = 0; i < 8; i++) {
+				sb.append(separator);
+			}
+		}
+		sb.append(getStatus());
+		return sb.toString();
+	}
+
+	/**
+	 * @return the text printed by calibrate.py in verbose mode
+	 */
+	@Override
+	public String toString() {
+		String nl = System.getProperty("line.separator");
+		StringBuffer out = new StringBuffer();
+
+		out.append("Using aircraft id " + acId + nl);
+		if (nbRecords == 0) {
+			out.append("Error: found zero " + type.getRawMessage()
+					+ " measurements for aircraft with id " + acId
+					+ " in log file!" + nl);
+			return out.toString();
+		}
+		out.append("found " + nbRecords + " records" + nl);
+		out.append("Using noise threshold of "
+				+ CalibrationUtils.str(type.getNoiseThreshold())
+				+ " for filtering." + nl);
+		out.append("remaining " + nbFiltered + " after filtering" + nl);
+		if (notEnoughMotion && !isSolved()) {
+			out.append("Error: the sensor has not stayed still nor moved enough"
+					+ nl);
+			return out.toString();
+		}
+		if (nbFiltered == 0) {
+			out.append("Error: found zero " + type.getRawMessage()
+					+ " measurements for aircraft with id " + acId
+					+ " in log file after filtering!" + nl);
+			return out.toString();
+		}
+		if (nbInliers >= 0) {
+			out.append("remaining " + nbInliers + " after outlier rejection"
+					+ nl);
+		}
+		if (guessed) {
+			out.append("initial guess : avg "
+					+ CalibrationUtils.str(initialAvg) + " std "
+					+ CalibrationUtils.str(initialStd) + nl);
+		}
+		if (!isSolved()) {
+			out.append("Optimization error" + nl);
+			out.append("Please try to provide a clean logfile." + nl);
+			return out.toString();
+		}
+		out.append((direct ? "direct fit : avg " : "optimized guess : avg ")
+				+ CalibrationUtils.str(optimizedAvg) + " std "
+				+ CalibrationUtils.str(optimizedStd) + nl);
+		out.append(toXml());
+		return out.toString();
+	}
+}
@@ -0,0 +1,199 @@
+package calibrate;
+
+import java.io.IOException;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import common.TypeCalibration;
+
+import data.Data;
+import ellipsoide.Sphere;
+import filtre.Filter;
+
+/**
+ * The calibration of a sensor of an aircraft : the samples received, their
+ * filter and sphere, the log and the solver. Several sessions can collect
+ * and be solved at the same time, each one for its own aircraft and sensor.
+ */
+public class CalibrationSession implements Calibration {
+
+	private static Logger logger = Logger.getLogger(CalibrationSession.class
+			.getName());
+
+	/** Id of the calibrated aircraft */
+	private final int acId;
+	/** The sensor to calibrate */
+	private final TypeCalibration type;
+	/** The filter of the samples, updating the sphere */
+	private final Filter filter;
+	/** The raw samples received */
+	private final Data data;
+	/** The messages received during the calibration */
+	private final PrintLog log = new PrintLog();
+	/** Ends the collection when the criteria are met, null if manual */
+	private volatile AutoStop autoStop;
+	/** Called once when the criteria of the auto stop are met */
+	private volatile Runnable completion;
+
+	/**
+	 * @param acId
+	 *            id of the aircraft
+	 * @param filter
+	 *            the filter of the sensor to calibrate
+	 */
+	public CalibrationSession(int acId, Filter filter) {
+		this.acId = acId;
+		this.type = filter.getType();
+		this.filter = filter;
+		this.data = new Data(filter);
+	}
+
+	/**
+	 * Stores a sample received from the aircraft. Called by a single thread
+	 * at a time
+	 *
+	 * @param xRaw
+	 * @param yRaw
+	 * @param zRaw
+	 * @param tNanos
+	 *            time of reception of the sample
+	 */
+	public void store(int xRaw, int yRaw, int zRaw, long tNanos) {
+		long seq = data.store(xRaw, yRaw, zRaw, tNanos);
+		log.add(acId, type, data.getRing(), seq);
+		AutoStop a = autoStop;
+		if (a != null && a.update(filter)) {
+			logger.info("auto stop of " + this + " after " + size()
+					+ " samples : " + a);
+			completion.run();
+		}
+	}
+
+	/**
+	 * Ends the collection automatically when the criteria are met
+	 *
+	 * @param autoStop
+	 *            the criteria and their state
+	 * @param completion
+	 *            called once by the thread storing the samples when the
+	 *            criteria are met
+	 */
+	public void setAutoStop(AutoStop autoStop, Runnable completion) {
+		this.completion = completion;
+		this.autoStop = autoStop;
+	}
+
+	/**
+	 * @return the auto stop of the session, null if the collection is
+	 *         stopped by hand
+	 */
+	public AutoStop getAutoStop() {
+		return autoStop;
+	}
+
+	/**
+	 * Computes the calibration with the samples received so far, with the
+	 * solver chosen in the properties
+	 *
+	 * @param prop
+	 *            the properties of the application
+	 * @return the text of the result
+	 */
+	public String solve(Properties prop) {
+		String solver = prop.getProperty("calibration_solver", "java");
+		String calibrationSession = prop
+				.getProperty("autofocus_calibration_session");
+
+		// Enregistrement binaire de la session (rejouable)
+		if (calibrationSession != null && !calibrationSession.isEmpty()) {
+			try {
+				log.printSession(fileName(calibrationSession), acId, type);
+			} catch (IOException e) {
+				logger.warning(e.getMessage());
+			}
+		}
+
+		try {
+			if ("python".equals(solver)) {
+				// Ancien mode : appel du script python sur le log
+				String calibrationData = fileName(prop
+						.getProperty("autofocus_calibration_data"));
+				log.print(calibrationData);
+				return CalibrateSystem.calibrates(type,
+						prop.getProperty("paparazzi_script_calibration"),
+						calibrationData);
+			}
+			long start = System.currentTimeMillis();
+			// robust : rejet des valeurs aberrantes avant l'optimisation,
+			// direct/fast : ellipsoide direct comme depart ou comme resultat
+			String parameters = CalibrateJava.calibrates(
+					log.getMeasurements(acId, type), type, acId,
+					FitMethod.fromProperty(solver));
+			logger.info("in-process calibration of " + type + " of aircraft "
+					+ acId + " done in "
+					+ (System.currentTimeMillis() - start) + " ms :");
+			logger.info(parameters);
+			return parameters;
+		} catch (Exception e) {
+			logger.warning(" can't get calibration of aircraft " + acId
+					+ " : " + e.getMessage());
+			return "Unable to calibrate";
+		}
+	}
+
+	/**
+	 * Adds the aircraft and the sensor to a file name of the properties, so
+	 * that the sessions don't overwrite each other
+	 *
+	 * @param name
+	 *            for example logs/calibration.data
+	 * @return for example logs/calibration_14_MAG.data
+	 */
+	String fileName(String name) {
+		String suffix = "_" + acId + "_" + type.getSensor();
+		int dot = name.lastIndexOf('.');
+		if (dot <= name.lastIndexOf('/')) {
+			return name + suffix;
+		}
+		return name.substring(0, dot) + suffix + name.substring(dot);
+	}
+
+	public int getAcId() {
+		return acId;
+	}
+
+	public TypeCalibration getType() {
+		return type;
+	}
+
+	public Filter getFilter() {
+		return filter;
+	}
+
+	/**
+	 * @return the sphere showing the coverage of the samples
+	 */
+	public Sphere getSphere() {
+		return filter.getSphere();
+	}
+
+	public Data getData() {
+		return data;
+	}
+
+	public PrintLog getLog() {
+		return log;
+	}
+
+	/**
+	 * @return the number of samples received
+	 */
+	public int size() {
+		return log.dataSize();
+	}
+
+	@Override
+	public String toString() {
+		return "aircraft " + acId + " " + type.getSensor();
+	}
+}
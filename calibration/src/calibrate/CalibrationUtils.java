@@ -0,0 +1,346 @@
+package calibrate;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+import org.apache.commons.math3.analysis.MultivariateMatrixFunction;
+import org.apache.commons.math3.analysis.MultivariateVectorFunction;
+import org.apache.commons.math3.exception.MathIllegalStateException;
+import org.apache.commons.math3.optim.InitialGuess;
+import org.apache.commons.math3.optim.MaxEval;
+import org.apache.commons.math3.optim.PointVectorValuePair;
+import org.apache.commons.math3.optim.nonlinear.vector.ModelFunction;
+import org.apache.commons.math3.optim.nonlinear.vector.ModelFunctionJacobian;
+import org.apache.commons.math3.optim.nonlinear.vector.Target;
+import org.apache.commons.math3.optim.nonlinear.vector.Weight;
+import org.apache.commons.math3.optim.nonlinear.vector.jacobian.LevenbergMarquardtOptimizer;
+
+import common.TypeCalibration;
+
+import data.TelemetryDecoder;
+
+/**
+ * Java port of the functions of paparazzi_calibration/calibration_utils.py
+ * used by calibrate.py, so that the calibration can be computed without
+ * running the python script
+ */
+public class CalibrationUtils {
+
+	private static Logger logger = Logger.getLogger(CalibrationUtils.class
+			.getName());
+
+	/**
+	 * Number of parameters of the fit : 3 neutrals and 3 sensitivities
+	 */
+	public static final int NB_PARAMETERS = 6;
+
+	/**
+	 * Same limit of evaluations as scipy's leastsq : 200 * (N + 1)
+	 */
+	private static final int MAX_EVAL = 200 * (NB_PARAMETERS + 1);
+
+	private CalibrationUtils() {
+	}
+
+	/**
+	 * Extracts raw sensor measurements from the lines of a log
+	 *
+	 * @param lines
+	 *            lines of the log, with or without the timestamp
+	 * @param acId
+	 *            id of the aircraft
+	 * @param type
+	 *            the sensor to read
+	 * @return the measurements, one line per sample
+	 */
+	public static double[][] readLog(Iterable<String> lines, int acId,
+			TypeCalibration type) {
+		String id = String.valueOf(acId);
+		String message = type.getRawMessage();
+		TelemetryDecoder decoder = new TelemetryDecoder();
+		List<double[]> meas = new ArrayList<double[]>();
+		for (String line : lines) {
+			// avec ou sans l'horodatage en tête de ligne
+			if (!decoder.reset(line).nextEquals(id)
+					&& !decoder.reset(line).skip().nextEquals(id)) {
+				continue;
+			}
+			if (!decoder.nextEquals(message)) {
+				continue;
+			}
+			try {
+				meas.add(new double[] { decoder.nextDouble(),
+						decoder.nextDouble(), decoder.nextDouble() });
+			} catch (NumberFormatException e) {
+				logger.warning("invalid line \"" + line + "\"");
+			}
+		}
+		return meas.toArray(new double[meas.size()][]);
+	}
+
+	/**
+	 * Select only non-noisy data : a measurement is kept when the norm of the
+	 * standard deviation of the window [i - windowSize; i + windowSize[ is
+	 * under the threshold
+	 *
+	 * @param meas
+	 * @param windowSize
+	 * @param noiseThreshold
+	 * @return the indexes of the kept measurements
+	 */
+	public static int[] filterMeas(double[][] meas, int windowSize,
+			double noiseThreshold) {
+		int n = meas.length;
+		int size = 2 * windowSize;
+		List<Integer> kept = new ArrayList<Integer>();
+		if (n < size) {
+			return new int[0];
+		}
+		// sommes glissantes sur la fenetre
+		double[] sum = new double[3];
+		double[] sumSq = new double[3];
+		for (int j = 0; j < size; j++) {
+			for (int a = 0; a < 3; a++) {
+				sum[a] += meas[j][a];
+				sumSq[a] += meas[j][a] * meas[j][a];
+			}
+		}
+		for (int i = windowSize; i < n - windowSize; i++) {
+			if (i > windowSize) {
+				double[] out = meas[i - windowSize - 1];
+				double[] in = meas[i + windowSize - 1];
+				for (int a = 0; a < 3; a++) {
+					sum[a] += in[a] - out[a];
+					sumSq[a] += in[a] * in[a] - out[a] * out[a];
+				}
+			}
+			double noise = 0;
+			for (int a = 0; a < 3; a++) {
+				double mean = sum[a] / size;
+				noise += Math.max(0, sumSq[a] / size - mean * mean);
+			}
+			if (Math.sqrt(noise) < noiseThreshold) {
+				kept.add(i);
+			}
+		}
+		int[] res = new int[kept.size()];
+		for (int i = 0; i < res.length; i++) {
+			res[i] = kept.get(i);
+		}
+		return res;
+	}
+
+	/**
+	 * @param meas
+	 * @param idx
+	 * @return the measurements whose indexes are given
+	 */
+	public static double[][] select(double[][] meas, int[] idx) {
+		double[][] res = new double[idx.length][];
+		for (int i = 0; i < idx.length; i++) {
+			res[i] = meas[idx[i]];
+		}
+		return res;
+	}
+
+	/**
+	 * Initial boundary based calibration
+	 *
+	 * @param meas
+	 * @param scale
+	 *            the expected norm of the calibrated measurements
+	 * @return the neutrals and the sensitivities
+	 */
+	public static double[] getMinMaxGuess(double[][] meas, double scale) {
+		double[] max = { Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY,
+				Double.NEGATIVE_INFINITY };
+		double[] min = { Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY,
+				Double.POSITIVE_INFINITY };
+		for (double[] m : meas) {
+			for (int a = 0; a < 3; a++) {
+				max[a] = Math.max(max[a], m[a]);
+				min[a] = Math.min(min[a], m[a]);
+			}
+		}
+		double[] p = new double[NB_PARAMETERS];
+		for (int a = 0; a < 3; a++) {
+			p[a] = (max[a] + min[a]) / 2;
+			p[a + 3] = 2 * scale / (max[a] - min[a]);
+		}
+		return p;
+	}
+
+	/**
+	 * Scale the set of measurements
+	 *
+	 * @param meas
+	 * @param p
+	 *            the neutrals and the sensitivities
+	 * @return the norm of each scaled measurement
+	 */
+	public static double[] scaleMeasurements(double[][] meas, double[] p) {
+		double[] norms = new double[meas.length];
+		for (int i = 0; i < meas.length; i++) {
+			double x = (meas[i][0] - p[0]) * p[3];
+			double y = (meas[i][1] - p[1]) * p[4];
+			double z = (meas[i][2] - p[2]) * p[5];
+			norms[i] = Math.sqrt(x * x + y * y + z * z);
+		}
+		return norms;
+	}
+
+	/**
+	 * Least squares fit of the neutrals and the sensitivities so that the norm
+	 * of every scaled measurement is as close as possible to the reference
+	 *
+	 * @param meas
+	 * @param sensorRef
+	 *            the expected norm
+	 * @param p0
+	 *            the initial guess
+	 * @return the optimized parameters, null if the optimization failed
+	 */
+	public static double[] leastSquares(final double[][] meas,
+			double sensorRef, double[] p0) {
+		double[] target = new double[meas.length];
+		double[] weights = new double[meas.length];
+		for (int i = 0; i < meas.length; i++) {
+			target[i] = sensorRef;
+			weights[i] = 1;
+		}
+		try {
+			PointVectorValuePair optimum = new LevenbergMarquardtOptimizer()
+					.optimize(new MaxEval(MAX_EVAL), new ModelFunction(
+							new MultivariateVectorFunction() {
+								public double[] value(double[] p) {
+									return scaleMeasurements(meas, p);
+								}
+							}), new ModelFunctionJacobian(
+							new MultivariateMatrixFunction() {
+								public double[][] value(double[] p) {
+									return jacobian(meas, p);
+								}
+							}), new Target(target), new Weight(weights),
+							new InitialGuess(p0));
+			return optimum.getPoint();
+		} catch (MathIllegalStateException e) {
+			logger.warning("Optimization error: " + e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * @return the jacobian of scaleMeasurements with respect to the parameters
+	 */
+	private static double[][] jacobian(double[][] meas, double[] p) {
+		double[][] jac = new double[meas.length][NB_PARAMETERS];
+		for (int i = 0; i < meas.length; i++) {
+			double[] d = new double[3];
+			double[] c = new double[3];
+			double norm = 0;
+			for (int a = 0; a < 3; a++) {
+				d[a] = meas[i][a] - p[a];
+				c[a] = d[a] * p[a + 3];
+				norm += c[a] * c[a];
+			}
+			norm = Math.sqrt(norm);
+			if (norm == 0) {
+				continue;
+			}
+			for (int a = 0; a < 3; a++) {
+				jac[i][a] = -c[a] * p[a + 3] / norm;
+				jac[i][a + 3] = c[a] * d[a] / norm;
+			}
+		}
+		return jac;
+	}
+
+	/**
+	 * @return the mean of the values
+	 */
+	public static double mean(double[] values) {
+		double sum = 0;
+		for (double v : values) {
+			sum += v;
+		}
+		return sum / values.length;
+	}
+
+	/**
+	 * @return the standard deviation of the values (as numpy's std)
+	 */
+	public static double std(double[] values) {
+		double mean = mean(values);
+		double sum = 0;
+		for (double v : values) {
+			sum += (v - mean) * (v - mean);
+		}
+		return Math.sqrt(sum / values.length);
+	}
+
+	/**
+	 * Xml for airframe file
+	 *
+	 * @param p
+	 *            the neutrals and the sensitivities
+	 * @param sensor
+	 *            name of the sensor (ACCEL, MAG)
+	 * @param res
+	 *            resolution of the sensitivities
+	 * @return the defines, as printed by calibrate.py
+	 */
+	public static String printXml(double[] p, String sensor, int res) {
+		return printXml(p, sensor, res, null);
+	}
+
+	/**
+	 * Xml for airframe file, with only some of the parameters
+	 *
+	 * @param p
+	 *            the neutrals and the sensitivities
+	 * @param sensor
+	 *            name of the sensor (ACCEL, MAG, GYRO)
+	 * @param res
+	 *            resolution of the sensitivities
+	 * @param defined
+	 *            the parameters printed, all if null
+	 * @return the defines, as printed by calibrate.py
+	 */
+	public static String printXml(double[] p, String sensor, int res,
+			boolean[] defined) {
+		String nl = System.getProperty("line.separator");
+		StringBuffer sb = new StringBuffer(nl);
+		String[] axes = { "X", "Y", "Z" };
+		for (int a = 0; a < 3; a++) {
+			if (defined == null || defined[a]) {
+				sb.append("<define name=\"" + sensor + "_" + axes[a]
+						+ "_NEUTRAL\" value=\"" + Math.round(p[a]) + "\"/>"
+						+ nl);
+			}
+		}
+		for (int a = 0; a < 3; a++) {
+			if (defined == null || defined[a + 3]) {
+				sb.append("<define name=\"" + sensor + "_" + axes[a]
+						+ "_SENS\" value=\""
+						+ str(p[a + 3] * Math.pow(2, res))
+						+ "\" integer=\"16\"/>" + nl);
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * @return the value written with 12 significant digits, as python's str
+	 */
+	public static String str(double value) {
+		if (Double.isNaN(value) || Double.isInfinite(value)) {
+			return String.valueOf(value).toLowerCase();
+		}
+		String s = new BigDecimal(value).round(new MathContext(12))
+				.stripTrailingZeros().toPlainString();
+		return s.contains(".") ? s : s + ".0";
+	}
+}
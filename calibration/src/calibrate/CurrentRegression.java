@@ -0,0 +1,117 @@
+package calibrate;
+
+import java.util.Locale;
+
+/**
+ * Linear regression of each axis of the magnetometer against the electrical
+ * current, as estimate_mag_current_relation of calibration_utils.py. The
+ * means and the co-moments are updated at each sample, so that a sample costs
+ * a constant time and the coefficients are available at any time without
+ * keeping the measurements.
+ */
+public class CurrentRegression {
+
+	/** Number of samples */
+	private long n = 0;
+	/** Mean of the current */
+	private double meanCurrent = 0;
+	/** Sum of the squared deviations of the current */
+	private double varCurrent = 0;
+	/** Mean of each axis */
+	private final double[] mean = new double[3];
+	/** Sum of the squared deviations of each axis */
+	private final double[] var = new double[3];
+	/** Sum of the products of the deviations of each axis and the current */
+	private final double[] cov = new double[3];
+
+	/**
+	 * Adds a sample, called by the thread receiving the messages
+	 *
+	 * @param mx
+	 * @param my
+	 * @param mz
+	 * @param current
+	 *            the electrical current at the time of the measurement
+	 */
+	public synchronized void add(double mx, double my, double mz,
+			double current) {
+		n++;
+		// mises a jour de Welford, stables sans garder les mesures
+		double dc = current - meanCurrent;
+		meanCurrent += dc / n;
+		varCurrent += dc * (current - meanCurrent);
+		add(0, mx, dc);
+		add(1, my, dc);
+		add(2, mz, dc);
+	}
+
+	private void add(int a, double m, double dc) {
+		double dm = m - mean[a];
+		mean[a] += dm / n;
+		var[a] += dm * (m - mean[a]);
+		cov[a] += dc * (m - mean[a]);
+	}
+
+	/**
+	 * @return the number of samples
+	 */
+	public synchronized long getNbSamples() {
+		return n;
+	}
+
+	/**
+	 * @return the slope of each axis against the current, NaN while the
+	 *         current has not varied
+	 */
+	public synchronized double[] getCoefficients() {
+		double[] c = new double[3];
+		for (int a = 0; a < 3; a++) {
+			c[a] = varCurrent > 0 ? cov[a] / varCurrent : Double.NaN;
+		}
+		return c;
+	}
+
+	/**
+	 * @return the correlation coefficient of each axis with the current, NaN
+	 *         while an axis or the current has not varied
+	 */
+	public synchronized double[] getCorrelations() {
+		double[] r = new double[3];
+		for (int a = 0; a < 3; a++) {
+			double d = Math.sqrt(varCurrent * var[a]);
+			r[a] = d > 0 ? cov[a] / d : Double.NaN;
+		}
+		return r;
+	}
+
+	/**
+	 * @return true if the coefficients are defined
+	 */
+	public synchronized boolean isSolved() {
+		return n >= 2 && varCurrent > 0;
+	}
+
+	/**
+	 * @return the defines of the airframe file, as calibrate_mag_current.py
+	 */
+	public String toXml() {
+		double[] c = getCoefficients();
+		String nl = System.getProperty("line.separator");
+		String[] axes = { "X", "Y", "Z" };
+		StringBuffer xml = new StringBuffer();
+		for (int a = 0; a < 3; a++) {
+			xml.append("<define name=\"MAG_" + axes[a]
+					+ "_CURRENT_COEF\" value=\"" + c[a] + "\"/>" + nl);
+		}
+		return xml.toString();
+	}
+
+	@Override
+	public String toString() {
+		double[] c = getCoefficients();
+		double[] r = getCorrelations();
+		return String.format(Locale.US,
+				"%d samples, coef x %.4g (r %.2f) y %.4g (r %.2f) z %.4g (r %.2f)",
+				getNbSamples(), c[0], r[0], c[1], r[1], c[2], r[2]);
+	}
+}
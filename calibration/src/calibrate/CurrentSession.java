@@ -0,0 +1,115 @@
+package calibrate;
+
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import common.TypeCalibration;
+
+/**
+ * The calibration of the magnetometer against the electrical current of an
+ * aircraft : the IMU_MAG_CURRENT_CALIBRATION messages received during a
+ * throttle sweep update a running regression, whose coefficients are the
+ * result, without log nor solver.
+ */
+public class CurrentSession implements Calibration {
+
+	private static Logger logger = Logger.getLogger(CurrentSession.class
+			.getName());
+
+	/** Id of the calibrated aircraft */
+	private final int acId;
+	/** The regression of the magnetometer against the current */
+	private final CurrentRegression regression = new CurrentRegression();
+	/** Called after each sample, null if the session is not displayed */
+	private volatile Runnable view;
+
+	/**
+	 * @param acId
+	 *            id of the aircraft
+	 */
+	public CurrentSession(int acId) {
+		this.acId = acId;
+	}
+
+	/**
+	 * Stores a sample received from the aircraft. Called by a single thread
+	 * at a time
+	 *
+	 * @param mx
+	 * @param my
+	 * @param mz
+	 * @param current
+	 *            the electrical current
+	 */
+	public void store(double mx, double my, double mz, double current) {
+		regression.add(mx, my, mz, current);
+		Runnable v = view;
+		if (v != null) {
+			v.run();
+		}
+	}
+
+	/**
+	 * @param v
+	 *            called by the thread receiving the samples after each one,
+	 *            must not block
+	 */
+	public void attach(Runnable v) {
+		this.view = v;
+	}
+
+	/**
+	 * The samples keep being stored without being displayed
+	 */
+	public void detach() {
+		this.view = null;
+	}
+
+	/**
+	 * @return the text of the result, the coefficients so far
+	 */
+	public String solve() {
+		if (!regression.isSolved()) {
+			logger.warning("can't get the current calibration of aircraft "
+					+ acId + " : " + regression.getNbSamples()
+					+ " samples, the current has not varied");
+			return "Unable to calibrate";
+		}
+		logger.info("current calibration of aircraft " + acId + " : "
+				+ regression);
+		return regression.toXml();
+	}
+
+	/**
+	 * The coefficients do not depend on the properties
+	 *
+	 * @see #solve()
+	 */
+	public String solve(Properties prop) {
+		return solve();
+	}
+
+	/**
+	 * @return the number of samples received
+	 */
+	public int size() {
+		return (int) Math.min(Integer.MAX_VALUE, regression.getNbSamples());
+	}
+
+	public int getAcId() {
+		return acId;
+	}
+
+	public TypeCalibration getType() {
+		return TypeCalibration.MAG_CURRENT;
+	}
+
+	public CurrentRegression getRegression() {
+		return regression;
+	}
+
+	@Override
+	public String toString() {
+		return "aircraft " + acId + " " + getType().getSensor();
+	}
+}
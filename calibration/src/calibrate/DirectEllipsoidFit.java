@@ -0,0 +1,304 @@
+package calibrate;
+
+import java.util.logging.Logger;
+
+import org.ejml.data.Complex64F;
+import org.ejml.simple.SimpleEVD;
+import org.ejml.simple.SimpleMatrix;
+
+import filtre.EllipsoidFit;
+
+/**
+ * Direct least squares fit of an ellipsoid (Li and Griffiths) : the
+ * constraint 4J - I² > 0 makes the fit a generalized eigenvalue problem on
+ * the moments of the measurements, solved in one step without initial guess.
+ * The neutrals, the sensitivities and the cross axis terms are thus given by a
+ * single pass on the measurements and an eigen decomposition of a 6x6 (or
+ * 3x3 without cross axis terms) matrix.
+ */
+public class DirectEllipsoidFit {
+
+	private static Logger logger = Logger.getLogger(DirectEllipsoidFit.class
+			.getName());
+
+	/** Eigenvalues under this bound are considered as null */
+	private static final double EPSILON = 1e-12;
+
+	/** true to fit the cross axis terms xy, xz, yz */
+	private final boolean crossAxis;
+
+	/**
+	 * A fit with the cross axis terms
+	 */
+	public DirectEllipsoidFit() {
+		this(true);
+	}
+
+	/**
+	 * @param crossAxis
+	 *            true to fit the cross axis terms, false for an axis aligned
+	 *            ellipsoid
+	 */
+	public DirectEllipsoidFit(boolean crossAxis) {
+		this.crossAxis = crossAxis;
+	}
+
+	/**
+	 * Fits an ellipsoid on the measurements
+	 *
+	 * @param meas
+	 * @param sensorRef
+	 *            the expected norm
+	 * @return the fit, null if the measurements do not define an ellipsoid
+	 */
+	public EllipsoidFit fit(double[][] meas, double sensorRef) {
+		int nbQuadratic = crossAxis ? 6 : 3;
+		int nbTerms = nbQuadratic + 4;
+		if (meas.length < nbTerms) {
+			return null;
+		}
+		// coordonnees normalisees pour le conditionnement des moments
+		double[] mean = new double[3];
+		for (double[] m : meas) {
+			for (int a = 0; a < 3; a++) {
+				mean[a] += m[a];
+			}
+		}
+		for (int a = 0; a < 3; a++) {
+			mean[a] /= meas.length;
+		}
+		double[] var = new double[3];
+		for (double[] m : meas) {
+			for (int a = 0; a < 3; a++) {
+				var[a] += (m[a] - mean[a]) * (m[a] - mean[a]);
+			}
+		}
+		double scale = 0;
+		for (int a = 0; a < 3; a++) {
+			// un axe constant (sature) ne definit pas d'ellipsoide
+			if (var[a] == 0) {
+				return null;
+			}
+			scale += var[a];
+		}
+		scale = Math.sqrt(scale / meas.length);
+
+		SimpleMatrix s = moments(meas, mean, scale, nbTerms);
+		double[] v;
+		try {
+			v = solve(s, nbQuadratic);
+		} catch (RuntimeException e) {
+			// SingularMatrixException ou echec de la decomposition
+			logger.warning("degenerate measurements : " + e.getMessage());
+			return null;
+		}
+		if (v == null) {
+			return null;
+		}
+		return toFit(meas, v, mean, scale, sensorRef);
+	}
+
+	/**
+	 * @return the terms of the conic of a normalized measurement : x², y²,
+	 *         z², 2yz, 2xz, 2xy (with cross axis terms), 2x, 2y, 2z, 1
+	 */
+	private void terms(double x, double y, double z, double[] t) {
+		int k = 0;
+		t[k++] = x * x;
+		t[k++] = y * y;
+		t[k++] = z * z;
+		if (crossAxis) {
+			t[k++] = 2 * y * z;
+			t[k++] = 2 * x * z;
+			t[k++] = 2 * x * y;
+		}
+		t[k++] = 2 * x;
+		t[k++] = 2 * y;
+		t[k++] = 2 * z;
+		t[k] = 1;
+	}
+
+	/**
+	 * @return the moments D'D of the design matrix D, without building D
+	 */
+	private SimpleMatrix moments(double[][] meas, double[] mean,
+			double scale, int nbTerms) {
+		double[][] s = new double[nbTerms][nbTerms];
+		double[] t = new double[nbTerms];
+		for (double[] m : meas) {
+			terms((m[0] - mean[0]) / scale, (m[1] - mean[1]) / scale,
+					(m[2] - mean[2]) / scale, t);
+			for (int i = 0; i < nbTerms; i++) {
+				for (int j = i; j < nbTerms; j++) {
+					s[i][j] += t[i] * t[j];
+				}
+			}
+		}
+		for (int i = 0; i < nbTerms; i++) {
+			for (int j = 0; j < i; j++) {
+				s[i][j] = s[j][i];
+			}
+		}
+		return new SimpleMatrix(s);
+	}
+
+	/**
+	 * Solves the generalized eigenvalue problem S v = l C v, reduced to the
+	 * quadratic terms
+	 *
+	 * @return the coefficients of the conic, null if no eigenvalue is
+	 *         positive
+	 */
+	private double[] solve(SimpleMatrix s, int nbQuadratic) {
+		int nbTerms = s.numRows();
+		SimpleMatrix s11 = s.extractMatrix(0, nbQuadratic, 0, nbQuadratic);
+		SimpleMatrix s12 = s.extractMatrix(0, nbQuadratic, nbQuadratic,
+				nbTerms);
+		SimpleMatrix s22 = s.extractMatrix(nbQuadratic, nbTerms,
+				nbQuadratic, nbTerms);
+		// termes lineaires en fonction des termes quadratiques
+		SimpleMatrix t = s22.solve(s12.transpose());
+		SimpleMatrix m = constraint(nbQuadratic).solve(
+				s11.minus(s12.mult(t)));
+
+		if (m.hasUncountable()) {
+			return null;
+		}
+		SimpleEVD<?> evd = m.eig();
+		int best = -1;
+		double max = EPSILON;
+		for (int i = 0; i < evd.getNumberOfEigenvalues(); i++) {
+			Complex64F l = evd.getEigenvalue(i);
+			if (l.real > max
+					&& Math.abs(l.imaginary) <= EPSILON * Math.abs(l.real)
+					&& evd.getEigenVector(i) != null) {
+				max = l.real;
+				best = i;
+			}
+		}
+		if (best < 0) {
+			return null;
+		}
+		SimpleMatrix v1 = (SimpleMatrix) evd.getEigenVector(best);
+		SimpleMatrix v2 = t.mult(v1).scale(-1);
+		double[] v = new double[nbTerms];
+		for (int i = 0; i < nbQuadratic; i++) {
+			v[i] = v1.get(i);
+		}
+		for (int i = nbQuadratic; i < nbTerms; i++) {
+			v[i] = v2.get(i - nbQuadratic);
+		}
+		return v;
+	}
+
+	/**
+	 * @return the constraint 4J - I² = 1 on the quadratic terms (k = 4)
+	 */
+	private static SimpleMatrix constraint(int nbQuadratic) {
+		SimpleMatrix c = new SimpleMatrix(nbQuadratic, nbQuadratic);
+		for (int i = 0; i < 3; i++) {
+			for (int j = 0; j < 3; j++) {
+				c.set(i, j, i == j ? -1 : 1);
+			}
+		}
+		for (int i = 3; i < nbQuadratic; i++) {
+			c.set(i, i, -4);
+		}
+		return c;
+	}
+
+	/**
+	 * Converts the conic into the neutrals, the sensitivities and the cross
+	 * axis terms, in the coordinates of the measurements
+	 *
+	 * @return the fit, null if the conic is not an ellipsoid
+	 */
+	private EllipsoidFit toFit(double[][] meas, double[] v, double[] mean,
+			double scale, double sensorRef) {
+		int l = crossAxis ? 6 : 3;
+		double sign = v[0] < 0 ? -1 : 1;
+		double[][] q = new double[3][3];
+		for (int i = 0; i < 3; i++) {
+			q[i][i] = sign * v[i];
+		}
+		if (crossAxis) {
+			q[1][2] = q[2][1] = sign * v[3];
+			q[0][2] = q[2][0] = sign * v[4];
+			q[0][1] = q[1][0] = sign * v[5];
+		}
+		SimpleMatrix shape = new SimpleMatrix(q);
+		SimpleMatrix linear = new SimpleMatrix(3, 1, true, sign * v[l], sign
+				* v[l + 1], sign * v[l + 2]);
+		double d = sign * v[l + 3];
+		if (!isPositiveDefinite(q)) {
+			return null;
+		}
+		SimpleMatrix center = shape.solve(linear).scale(-1);
+		double k = center.dot(shape.mult(center)) - d;
+		if (!(k > 0)) {
+			return null;
+		}
+
+		// (x - c)' Q (x - c) = 1 dans les coordonnees des mesures
+		double[] offset = new double[3];
+		double[][] qm = new double[3][3];
+		for (int i = 0; i < 3; i++) {
+			offset[i] = mean[i] + center.get(i) * scale;
+			for (int j = 0; j < 3; j++) {
+				qm[i][j] = q[i][j] / (k * scale * scale);
+			}
+		}
+		double[] sens = new double[3];
+		for (int i = 0; i < 3; i++) {
+			sens[i] = sensorRef * Math.sqrt(qm[i][i]);
+		}
+		double[] cross = null;
+		if (crossAxis) {
+			cross = new double[] {
+					qm[0][1] / Math.sqrt(qm[0][0] * qm[1][1]),
+					qm[0][2] / Math.sqrt(qm[0][0] * qm[2][2]),
+					qm[1][2] / Math.sqrt(qm[1][1] * qm[2][2]) };
+		}
+
+		double residual = 0;
+		for (double[] m : meas) {
+			double r = -1;
+			for (int i = 0; i < 3; i++) {
+				for (int j = 0; j < 3; j++) {
+					r += (m[i] - offset[i]) * qm[i][j] * (m[j] - offset[j]);
+				}
+			}
+			residual += r * r;
+		}
+		residual = Math.sqrt(residual / meas.length);
+		return new EllipsoidFit(offset, sens, cross, residual, meas.length);
+	}
+
+	/**
+	 * Sylvester criterion on the leading minors
+	 */
+	private static boolean isPositiveDefinite(double[][] q) {
+		double m1 = q[0][0];
+		double m2 = q[0][0] * q[1][1] - q[0][1] * q[1][0];
+		double m3 = q[0][0] * (q[1][1] * q[2][2] - q[1][2] * q[2][1])
+				- q[0][1] * (q[1][0] * q[2][2] - q[1][2] * q[2][0])
+				+ q[0][2] * (q[1][0] * q[2][1] - q[1][1] * q[2][0]);
+		return m1 > 0 && m2 > 0 && m3 > 0;
+	}
+
+	/**
+	 * @param fit
+	 * @return the neutrals and the sensitivities of the fit, as used by
+	 *         CalibrationUtils (the cross axis terms are ignored)
+	 */
+	public static double[] getParameters(EllipsoidFit fit) {
+		double[] p = new double[CalibrationUtils.NB_PARAMETERS];
+		double[] offset = fit.getOffset();
+		double[] scale = fit.getScale();
+		for (int i = 0; i < 3; i++) {
+			p[i] = offset[i];
+			p[i + 3] = scale[i];
+		}
+		return p;
+	}
+}
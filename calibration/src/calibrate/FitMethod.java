@@ -0,0 +1,68 @@
+package calibrate;
+
+import java.util.logging.Logger;
+
+/**
+ * The ways to compute the neutrals and the sensitivities inside the
+ * application
+ */
+public enum FitMethod {
+	/** Min/max guess then least squares fit, as calibrate.py */
+	MIN_MAX("java"),
+	/** Direct ellipsoid fit as guess, then least squares fit */
+	DIRECT("direct"),
+	/** Direct ellipsoid fit only, without least squares fit */
+	FAST("fast"),
+	/** Outliers removed by a RansacFit, then least squares fit */
+	ROBUST("robust");
+
+	private static Logger logger = Logger.getLogger(FitMethod.class.getName());
+
+	/** Method used when calibration_solver is unknown */
+	public static final FitMethod DEFAULT = MIN_MAX;
+
+	/** Name of the method in the properties and on the command line */
+	private final String name;
+
+	private FitMethod(String name) {
+		this.name = name;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @param name
+	 *            name of the method, as calibration_solver
+	 * @return the method
+	 * @throws IllegalArgumentException
+	 *             if the name is unknown
+	 */
+	public static FitMethod fromName(String name) {
+		for (FitMethod m : values()) {
+			if (m.name.equals(name)) {
+				return m;
+			}
+		}
+		throw new IllegalArgumentException("unknown fit method " + name);
+	}
+
+	/**
+	 * Reads the method of calibration_solver, a wrong value of the
+	 * properties does not prevent the calibration
+	 * 
+	 * @param name
+	 *            value of calibration_solver
+	 * @return the method, DEFAULT if the name is unknown
+	 */
+	public static FitMethod fromProperty(String name) {
+		try {
+			return fromName(name);
+		} catch (IllegalArgumentException e) {
+			logger.warning("invalid calibration_solver " + name + ", using "
+					+ DEFAULT.getName());
+			return DEFAULT;
+		}
+	}
+}
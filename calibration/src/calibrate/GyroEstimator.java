@@ -0,0 +1,346 @@
+package calibrate;
+
+import java.util.logging.Logger;
+
+import org.ejml.simple.SimpleMatrix;
+
+import common.TypeCalibration;
+
+import filtre.NoiseDetector;
+
+/**
+ * Streaming calibration of the gyrometers, without turntable :
+ * <ul>
+ * <li>the neutrals are the mean of the samples of the stationary intervals,
+ * detected by the noise filter of calibrate.py on the gyrometers themselves,</li>
+ * <li>the sensitivities are given by the rotation of the calibrated
+ * magnetometer between two of its samples : the direction u of the field
+ * follows du/dt = u x w, w being the rate of the gyrometers interpolated in
+ * the middle of the two samples.</li>
+ * </ul>
+ * The equations are linear in the sensitivities. Their normal equations are
+ * accumulated with the neutrals apart, so that each sample costs a constant
+ * time and the neutrals known at the end are applied to all the samples.
+ */
+public class GyroEstimator {
+
+	private static Logger logger = Logger.getLogger(GyroEstimator.class
+			.getName());
+
+	/** Largest interval (in s) between two samples of a pair */
+	private static final double MAX_GAP = 0.25;
+	/** Minimum number of pairs of the sensitivities */
+	public static final int MIN_PAIRS = 50;
+
+	/** Neutrals and sensitivities of the magnetometer */
+	private final double[] magParameters;
+	/** Detects the stationary samples */
+	private final NoiseDetector detector;
+
+	/** Number of samples of the gyrometers */
+	private int nbRecords = 0;
+	/** Number of stationary samples */
+	private int nbStationary = 0;
+	/** Sum and sum of the squares of the stationary samples */
+	private final double[] sum = new double[3];
+	private final double[] sum2 = new double[3];
+
+	/** Number of pairs of magnetometer samples used */
+	private int nbPairs = 0;
+	/**
+	 * Sums of K(q,r) g(q) g(r), K(q,r) g(q) and K(q,r), where K(q,r) is the
+	 * dot product of u x e(q) and u x e(r)
+	 */
+	private final double[][] kgg = new double[3][3];
+	private final double[][] kg = new double[3][3];
+	private final double[][] k = new double[3][3];
+	/** Sums of (u x e(q)).du g(q) and (u x e(q)).du */
+	private final double[] dg = new double[3];
+	private final double[] d = new double[3];
+	/** Sum of the squared norms of du */
+	private double dd = 0;
+
+	/** The last two samples of the gyrometers : x, y, z, t */
+	private double[] lastGyro = null;
+	private double[] previousGyro = null;
+	/** The direction of the field of the last magnetometer sample and time */
+	private double[] lastMag = null;
+	private double lastMagTime;
+	/** The pair of magnetometer samples waiting for the gyrometers */
+	private double[] pendingU = null;
+	private double[] pendingDu;
+	private double pendingTime;
+
+	/**
+	 * @param magParameters
+	 *            the neutrals and the sensitivities of the magnetometer,
+	 *            null if not calibrated : only the neutrals of the
+	 *            gyrometers are estimated
+	 */
+	public GyroEstimator(double[] magParameters) {
+		this.magParameters = magParameters == null ? null : magParameters
+				.clone();
+		this.detector = new NoiseDetector(TypeCalibration.GYROSCOPE);
+	}
+
+	/**
+	 * Adds a sample of the gyrometers, the samples of both sensors being
+	 * added in the order of their times
+	 *
+	 * @param x
+	 * @param y
+	 * @param z
+	 * @param t
+	 *            time of the sample, in s
+	 */
+	public void addGyro(int x, int y, int z, double t) {
+		nbRecords++;
+		if (detector.add(x, y, z) && detector.isClean()) {
+			nbStationary++;
+			add(0, detector.getX());
+			add(1, detector.getY());
+			add(2, detector.getZ());
+		}
+		previousGyro = lastGyro;
+		lastGyro = new double[] { x, y, z, t };
+		pair();
+	}
+
+	private void add(int a, int value) {
+		sum[a] += value;
+		sum2[a] += (double) value * value;
+	}
+
+	/**
+	 * Adds a sample of the magnetometer
+	 *
+	 * @param x
+	 * @param y
+	 * @param z
+	 * @param t
+	 *            time of the sample, in s
+	 */
+	public void addMag(double x, double y, double z, double t) {
+		if (magParameters == null) {
+			return;
+		}
+		double[] u = new double[] { (x - magParameters[0]) * magParameters[3],
+				(y - magParameters[1]) * magParameters[4],
+				(z - magParameters[2]) * magParameters[5] };
+		double norm = Math.sqrt(u[0] * u[0] + u[1] * u[1] + u[2] * u[2]);
+		if (!(norm > 0)) {
+			return;
+		}
+		for (int a = 0; a < 3; a++) {
+			u[a] /= norm;
+		}
+		// la paire precedente sans gyrometre est abandonnee
+		pendingU = null;
+		double dt = t - lastMagTime;
+		if (lastMag != null && dt > 0 && dt <= MAX_GAP) {
+			pendingU = new double[3];
+			pendingDu = new double[3];
+			for (int a = 0; a < 3; a++) {
+				pendingU[a] = (lastMag[a] + u[a]) / 2;
+				pendingDu[a] = (u[a] - lastMag[a]) / dt;
+			}
+			pendingTime = (lastMagTime + t) / 2;
+		}
+		lastMag = u;
+		lastMagTime = t;
+		pair();
+	}
+
+	/**
+	 * Adds the equations of the pending pair if the gyrometers surround its
+	 * time
+	 */
+	private void pair() {
+		if (pendingU == null || lastGyro == null || previousGyro == null
+				|| lastGyro[3] < pendingTime) {
+			return;
+		}
+		double[] g0 = previousGyro;
+		double[] g1 = lastGyro;
+		double dt = g1[3] - g0[3];
+		if (g0[3] <= pendingTime && dt > 0 && dt <= MAX_GAP) {
+			double alpha = (pendingTime - g0[3]) / dt;
+			double[] g = new double[3];
+			for (int a = 0; a < 3; a++) {
+				g[a] = g0[a] + alpha * (g1[a] - g0[a]);
+			}
+			accumulate(pendingU, pendingDu, g);
+		}
+		pendingU = null;
+	}
+
+	/**
+	 * Accumulates the normal equations of du = sum(q) s(q) (g(q) - b(q)) u x
+	 * e(q)
+	 */
+	private void accumulate(double[] u, double[] du, double[] g) {
+		double[][] c = new double[3][];
+		for (int q = 0; q < 3; q++) {
+			c[q] = crossAxis(u, q);
+		}
+		for (int q = 0; q < 3; q++) {
+			for (int r = 0; r < 3; r++) {
+				double kqr = dot(c[q], c[r]);
+				kgg[q][r] += kqr * g[q] * g[r];
+				kg[q][r] += kqr * g[q];
+				k[q][r] += kqr;
+			}
+			double cd = dot(c[q], du);
+			dg[q] += cd * g[q];
+			d[q] += cd;
+		}
+		dd += dot(du, du);
+		nbPairs++;
+	}
+
+	/**
+	 * @return u x e(q)
+	 */
+	private static double[] crossAxis(double[] u, int q) {
+		double[] c = new double[3];
+		c[(q + 1) % 3] = u[(q + 2) % 3];
+		c[(q + 2) % 3] = -u[(q + 1) % 3];
+		return c;
+	}
+
+	private static double dot(double[] a, double[] b) {
+		return a[0] * b[0] + a[1] * b[1] + a[2] * b[2];
+	}
+
+	/**
+	 * @return the number of samples of the gyrometers
+	 */
+	public int getNbRecords() {
+		return nbRecords;
+	}
+
+	/**
+	 * @return the number of stationary samples
+	 */
+	public int getNbStationary() {
+		return nbStationary;
+	}
+
+	/**
+	 * @return the number of pairs of magnetometer samples used
+	 */
+	public int getNbPairs() {
+		return nbPairs;
+	}
+
+	/**
+	 * @return the neutrals, mean of the stationary samples, null if none
+	 */
+	public double[] getNeutrals() {
+		if (nbStationary == 0) {
+			return null;
+		}
+		return new double[] { sum[0] / nbStationary, sum[1] / nbStationary,
+				sum[2] / nbStationary };
+	}
+
+	/**
+	 * @return the sensitivities in rad/s per unit, null if the neutrals or
+	 *         the rotations are missing, or if an axis turns the other way
+	 *         than the magnetometer (wrong axis convention or degenerate fit)
+	 */
+	public double[] getSensitivities() {
+		double[] s = solve();
+		if (s == null) {
+			return null;
+		}
+		for (int q = 0; q < 3; q++) {
+			if (!(s[q] > 0)) {
+				logger.warning("gyrometer " + q
+						+ " turns the other way than the magnetometer : "
+						+ s[q] + ", not calibrated");
+				return null;
+			}
+		}
+		return s;
+	}
+
+	/**
+	 * @return the normal matrix of the sensitivities, with the neutrals b
+	 */
+	private double[][] normal(double[] b) {
+		double[][] a = new double[3][3];
+		for (int q = 0; q < 3; q++) {
+			for (int r = 0; r < 3; r++) {
+				a[q][r] = kgg[q][r] - b[r] * kg[q][r] - b[q] * kg[r][q] + b[q]
+						* b[r] * k[q][r];
+			}
+		}
+		return a;
+	}
+
+	/**
+	 * @return the signed sensitivities, null if not observable
+	 */
+	private double[] solve() {
+		double[] b = getNeutrals();
+		if (b == null || nbPairs < MIN_PAIRS) {
+			return null;
+		}
+		SimpleMatrix rhs = new SimpleMatrix(3, 1);
+		for (int q = 0; q < 3; q++) {
+			rhs.set(q, dg[q] - b[q] * d[q]);
+		}
+		try {
+			SimpleMatrix x = new SimpleMatrix(normal(b)).solve(rhs);
+			if (x.hasUncountable()) {
+				return null;
+			}
+			return new double[] { x.get(0), x.get(1), x.get(2) };
+		} catch (RuntimeException e) {
+			// un axe sans rotation n'est pas observable
+			logger.warning("gyrometers not rotated enough : " + e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * @param s
+	 *            the sensitivities
+	 * @return the root mean square of the calibrated rates at rest, in rad/s,
+	 *         NaN without stationary samples
+	 */
+	public double getRestRate(double[] s) {
+		double[] b = getNeutrals();
+		if (b == null) {
+			return Double.NaN;
+		}
+		double r = 0;
+		for (int a = 0; a < 3; a++) {
+			double var = Math.max(0, sum2[a] / nbStationary - b[a] * b[a]);
+			r += s[a] * s[a] * var;
+		}
+		return Math.sqrt(r);
+	}
+
+	/**
+	 * @return the root mean square of the error on the rotation of the
+	 *         magnetometer, in rad/s, NaN if the sensitivities are missing
+	 */
+	public double getResidual() {
+		double[] s = solve();
+		if (s == null) {
+			return Double.NaN;
+		}
+		double[] b = getNeutrals();
+		double[][] a = normal(b);
+		double rss = dd;
+		for (int q = 0; q < 3; q++) {
+			rss -= 2 * s[q] * (dg[q] - b[q] * d[q]);
+			for (int r = 0; r < 3; r++) {
+				rss += s[q] * s[r] * a[q][r];
+			}
+		}
+		return Math.sqrt(Math.max(0, rss) / nbPairs);
+	}
+}
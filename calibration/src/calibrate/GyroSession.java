@@ -0,0 +1,154 @@
+package calibrate;
+
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import common.TypeCalibration;
+
+/**
+ * The live calibration of the gyrometers of an aircraft : the neutrals are
+ * the streaming mean of the stationary intervals, and the sensitivities the
+ * regression against the rate of the turntable (IMU_TURNTABLE) while it
+ * turns, as calibrate_gyro.py. Without turntable, only the neutrals are
+ * given.
+ */
+public class GyroSession implements Calibration {
+
+	private static Logger logger = Logger.getLogger(GyroSession.class
+			.getName());
+
+	/** Id of the calibrated aircraft */
+	private final int acId;
+	/** The samples taken while the turntable is stopped */
+	private final GyroEstimator still = new GyroEstimator(null);
+	/** The samples taken while the turntable turns */
+	private final TurntableRegression regression = new TurntableRegression();
+	/** Number of samples received */
+	private int nbRecords = 0;
+	/** Last rate received from the turntable, NaN if none */
+	private volatile double rate = Double.NaN;
+	/** Called after each sample, null if the session is not displayed */
+	private volatile Runnable view;
+
+	/**
+	 * @param acId
+	 *            id of the aircraft
+	 */
+	public GyroSession(int acId) {
+		this.acId = acId;
+	}
+
+	/**
+	 * Stores a sample of the gyrometers, at the last rate of the turntable
+	 *
+	 * @param x
+	 * @param y
+	 * @param z
+	 * @param tNanos
+	 *            time of reception
+	 */
+	public void store(int x, int y, int z, long tNanos) {
+		synchronized (this) {
+			nbRecords++;
+			CalibrateGyro.add(still, regression, rate, x, y, z, tNanos / 1e9);
+		}
+		Runnable v = view;
+		if (v != null) {
+			v.run();
+		}
+	}
+
+	/**
+	 * @param rate
+	 *            rate of the turntable, in rad/s
+	 */
+	public void storeTurntable(double rate) {
+		this.rate = rate;
+	}
+
+	/**
+	 * @param v
+	 *            called by the thread receiving the samples after each one,
+	 *            must not block
+	 */
+	public void attach(Runnable v) {
+		this.view = v;
+	}
+
+	/**
+	 * The samples keep being stored without being displayed
+	 */
+	public void detach() {
+		this.view = null;
+	}
+
+	/**
+	 * @return the neutrals of the stationary intervals so far, null if none
+	 */
+	public synchronized double[] getNeutrals() {
+		return still.getNeutrals();
+	}
+
+	/**
+	 * @return the number of stationary samples
+	 */
+	public synchronized int getNbStationary() {
+		return still.getNbStationary();
+	}
+
+	/**
+	 * @return the last rate of the turntable, NaN if none
+	 */
+	public double getRate() {
+		return rate;
+	}
+
+	public TurntableRegression getRegression() {
+		return regression;
+	}
+
+	/**
+	 * @return the result with the samples so far : neutrals and
+	 *         sensitivities of the axes turned by the turntable
+	 */
+	public synchronized CalibrationResult getResult() {
+		// sans table tournante : les neutres seuls
+		return CalibrateGyro.solve(still, regression, nbRecords, acId);
+	}
+
+	/**
+	 * The result does not depend on the properties
+	 */
+	public String solve(Properties prop) {
+		CalibrationResult result = getResult();
+		if (!result.isSolved()) {
+			logger.warning("can't get the gyrometers calibration of aircraft "
+					+ acId + " : " + nbRecords + " samples, "
+					+ result.getNbFiltered() + " stationary");
+			return "Unable to calibrate";
+		}
+		logger.info("gyrometers calibration of aircraft " + acId + " : "
+				+ regression);
+		return result.toString();
+	}
+
+	public int getAcId() {
+		return acId;
+	}
+
+	public TypeCalibration getType() {
+		return TypeCalibration.GYROSCOPE;
+	}
+
+	/**
+	 * @return the number of samples received
+	 */
+	public synchronized int size() {
+		return nbRecords;
+	}
+
+	@Override
+	public String toString() {
+		return "aircraft " + acId + " " + getType().getSensor();
+	}
+}
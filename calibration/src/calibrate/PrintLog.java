@@ -1,13 +1,22 @@
 package calibrate;
 
+import java.io.BufferedWriter;
 import java.io.FileWriter;
-import java.util.ArrayList;
-import java.util.List;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Locale;
 import java.util.logging.Logger;
 
+import common.TypeCalibration;
+
+import data.SampleRing;
+
 /**
  * Stores the messages used during calibration.
  * 
+ * The samples are kept in primitive columns, the lines of the log are only
+ * written when the log is printed.
+ * 
  * @author Alino�
  */
 
@@ -16,42 +25,141 @@ public class PrintLog {
 	private static Logger logger = Logger.getLogger(PrintLog.class.getName());
 
 	/**
-	 * Data to store all the messages.
+	 * Initial number of samples of the columns
+	 */
+	private static final int INITIAL_CAPACITY = 4096;
+
+	/**
+	 * Number of samples stored
+	 */
+	private int size = 0;
+	/**
+	 * Columns storing all the messages
 	 */
-	private List<String> lines = new ArrayList<String>();
+	private int[] ids = new int[INITIAL_CAPACITY];
+	private TypeCalibration[] types = new TypeCalibration[INITIAL_CAPACITY];
+	private int[] xs = new int[INITIAL_CAPACITY];
+	private int[] ys = new int[INITIAL_CAPACITY];
+	private int[] zs = new int[INITIAL_CAPACITY];
+	private long[] ts = new long[INITIAL_CAPACITY];
 
 	/**
-	 * Store a new line in the object.
+	 * Store a new sample in the object.
 	 * 
-	 * @param line
-	 *            to add
+	 * @param acId
+	 *            id of the aircraft
+	 * @param type
+	 *            the sensor
+	 * @param ring
+	 *            the raw samples
+	 * @param seq
+	 *            sequence number of the sample to add
 	 */
-	public final void add(final String line) {
-		lines.add(line);
+	public final synchronized void add(final int acId,
+			final TypeCalibration type, final SampleRing ring, final long seq) {
+		if (size == xs.length) {
+			grow();
+		}
+		ids[size] = acId;
+		types[size] = type;
+		xs[size] = ring.getX(seq);
+		ys[size] = ring.getY(seq);
+		zs[size] = ring.getZ(seq);
+		ts[size] = ring.getT(seq);
+		size++;
+	}
+
+	/**
+	 * double the capacity of the columns
+	 */
+	private void grow() {
+		int capacity = xs.length * 2;
+		ids = Arrays.copyOf(ids, capacity);
+		types = Arrays.copyOf(types, capacity);
+		xs = Arrays.copyOf(xs, capacity);
+		ys = Arrays.copyOf(ys, capacity);
+		zs = Arrays.copyOf(zs, capacity);
+		ts = Arrays.copyOf(ts, capacity);
+	}
+
+	public synchronized int dataSize() {
+		return size;
 	}
 
-	public int dataSize() {
-		return lines.size();
+	/**
+	 * @param acId
+	 *            id of the aircraft
+	 * @param type
+	 *            the sensor
+	 * @return the measurements of the sensor of the aircraft, one line per
+	 *         sample
+	 */
+	public synchronized double[][] getMeasurements(int acId,
+			TypeCalibration type) {
+		int n = 0;
+		for (int i = 0; i < size; i++) {
+			if (ids[i] == acId && types[i] == type) {
+				n++;
+			}
+		}
+		double[][] meas = new double[n][];
+		n = 0;
+		for (int i = 0; i < size; i++) {
+			if (ids[i] == acId && types[i] == type) {
+				meas[n++] = new double[] { xs[i], ys[i], zs[i] };
+			}
+		}
+		return meas;
 	}
 
 	/**
-	 * Creates the log file.
+	 * Creates the log file, the timestamps being the time since the first
+	 * sample.
 	 * 
 	 * @param fileName
 	 */
-	public final void print(final String fileName) {
+	public final synchronized void print(final String fileName) {
 		try {
 			String nl = System.getProperty("line.separator");
-			FileWriter fs = new FileWriter(fileName);
-			for (String line : lines) {
-				fs.write("11.111 ");
-				fs.write(line);
+			BufferedWriter fs = new BufferedWriter(new FileWriter(fileName));
+			for (int i = 0; i < size; i++) {
+				fs.write(String.format(Locale.US, "%.3f",
+						(ts[i] - ts[0]) / 1e9));
+				fs.write(" " + ids[i] + " " + types[i].getRawMessage() + " "
+						+ xs[i] + " " + ys[i] + " " + zs[i]);
 				fs.write(nl);
 			}
 			fs.close();
-			logger.info(fileName + " created with " + lines.size() + " lines");
+			logger.info(fileName + " created with " + size + " lines");
 		} catch (Exception e) {
 			logger.warning(e.getMessage());
 		}
 	}
+
+	/**
+	 * Creates the binary session file of a sensor of an aircraft
+	 * 
+	 * @param fileName
+	 * @param acId
+	 *            id of the aircraft
+	 * @param type
+	 *            the sensor
+	 * @throws IOException
+	 */
+	public final synchronized void printSession(final String fileName,
+			final int acId, final TypeCalibration type) throws IOException {
+		SessionWriter writer = new SessionWriter(fileName, acId, type);
+		int n = 0;
+		try {
+			for (int i = 0; i < size; i++) {
+				if (ids[i] == acId && types[i] == type) {
+					writer.add(xs[i], ys[i], zs[i], ts[i]);
+					n++;
+				}
+			}
+		} finally {
+			writer.close();
+		}
+		logger.info(fileName + " created with " + n + " samples");
+	}
 }
@@ -0,0 +1,350 @@
+package calibrate;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.logging.Logger;
+
+import org.apache.commons.math3.linear.Array2DRowRealMatrix;
+import org.apache.commons.math3.linear.ArrayRealVector;
+import org.apache.commons.math3.linear.DecompositionSolver;
+import org.apache.commons.math3.linear.QRDecomposition;
+
+/**
+ * Robust estimation of the neutrals and the sensitivities : ellipsoids are
+ * fitted on random subsets of 6 measurements, and the one in agreement with
+ * the most measurements gives the consensus set. The outliers (saturated
+ * readings, spikes) are thus removed before the least squares fit. The
+ * candidates are fitted and scored in parallel on a fork-join pool.
+ */
+public class RansacFit {
+
+	private static Logger logger = Logger.getLogger(RansacFit.class.getName());
+
+	/** Number of candidate ellipsoids by default */
+	public static final int DEFAULT_ITERATIONS = 512;
+	/** Relative error of the norm of an inlier by default */
+	public static final double DEFAULT_TOLERANCE = 0.1;
+	/** Number of measurements of a minimal subset */
+	private static final int SUBSET_SIZE = 6;
+	/** Number of candidates fitted by a task without splitting */
+	private static final int CANDIDATES_PER_TASK = 16;
+	/** Largest ratio between the axes of a plausible ellipsoid */
+	private static final double MAX_AXIS_RATIO = 2;
+	/** Number of refinements of the best candidate on its inliers */
+	private static final int REFINEMENTS = 2;
+
+	private final int iterations;
+	private final double tolerance;
+	private final long seed;
+
+	/** Bounds of the measurements of the fit in progress */
+	private double[] min;
+	private double[] max;
+	/** Center and half size of the bounds, to normalize the measurements */
+	private double[] middle;
+	private double scale;
+
+	/**
+	 * A fit with the default number of candidates and tolerance
+	 */
+	public RansacFit() {
+		this(DEFAULT_ITERATIONS, DEFAULT_TOLERANCE, 0);
+	}
+
+	/**
+	 * @param iterations
+	 *            number of candidate ellipsoids
+	 * @param tolerance
+	 *            maximum relative error of the norm of an inlier
+	 * @param seed
+	 *            seed of the random subsets, the result does not depend on
+	 *            the number of threads
+	 */
+	public RansacFit(int iterations, double tolerance, long seed) {
+		this.iterations = iterations;
+		this.tolerance = tolerance;
+		this.seed = seed;
+	}
+
+	/**
+	 * The best candidate of a set of subsets
+	 */
+	private static class Candidate {
+		/** Neutrals and sensitivities, for a norm of 1 */
+		final double[] p;
+		final int nbInliers;
+
+		Candidate(double[] p, int nbInliers) {
+			this.p = p;
+			this.nbInliers = nbInliers;
+		}
+
+		Candidate best(Candidate other) {
+			if (other == null) {
+				return this;
+			}
+			return other.nbInliers > nbInliers ? other : this;
+		}
+	}
+
+	/**
+	 * Fits and scores the candidates [from; to[
+	 */
+	private class CandidateTask extends RecursiveTask<Candidate> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final double[][] meas;
+		private final int from;
+		private final int to;
+
+		CandidateTask(double[][] meas, int from, int to) {
+			this.meas = meas;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected Candidate compute() {
+			if (to - from > CANDIDATES_PER_TASK) {
+				int middle = (from + to) >>> 1;
+				CandidateTask left = new CandidateTask(meas, from, middle);
+				left.fork();
+				Candidate right = new CandidateTask(meas, middle, to)
+						.compute();
+				Candidate l = left.join();
+				return l == null ? right : l.best(right);
+			}
+			Candidate best = null;
+			int[] subset = new int[SUBSET_SIZE];
+			for (int i = from; i < to; i++) {
+				// un tirage par candidat : resultat independant du decoupage
+				drawSubset(new SplittableRandom(seed + i), subset);
+				double[] p = fitEllipsoid(meas, subset, SUBSET_SIZE);
+				if (p == null) {
+					continue;
+				}
+				Candidate c = new Candidate(p, countInliers(meas, p));
+				best = best == null ? c : best.best(c);
+			}
+			return best;
+		}
+
+		/**
+		 * Draws distinct indexes of measurements, a subset with a repeated
+		 * measurement can't define an ellipsoid
+		 *
+		 * @param random
+		 * @param subset
+		 *            filled with the indexes, smaller than the number of
+		 *            measurements
+		 */
+		private void drawSubset(SplittableRandom random, int[] subset) {
+			for (int k = 0; k < subset.length; k++) {
+				int index;
+				boolean drawn;
+				do {
+					index = random.nextInt(meas.length);
+					drawn = false;
+					for (int j = 0; j < k && !drawn; j++) {
+						drawn = subset[j] == index;
+					}
+				} while (drawn);
+				subset[k] = index;
+			}
+		}
+	}
+
+	/**
+	 * Least squares fit of an axis aligned ellipsoid a x² + b y² + c z² + d x
+	 * + e y + f z = 1, exact through 6 measurements
+	 *
+	 * @param meas
+	 * @param idx
+	 *            indexes of the measurements fitted
+	 * @param count
+	 *            number of indexes used
+	 * @return the neutrals and the sensitivities for a norm of 1, null if the
+	 *         measurements do not define a plausible ellipsoid
+	 */
+	private double[] fitEllipsoid(double[][] meas, int[] idx, int count) {
+		// coordonnees normalisees pour le conditionnement du systeme
+		double[][] a = new double[count][];
+		double[] b = new double[count];
+		for (int k = 0; k < count; k++) {
+			double[] m = meas[idx[k]];
+			double x = (m[0] - middle[0]) / scale;
+			double y = (m[1] - middle[1]) / scale;
+			double z = (m[2] - middle[2]) / scale;
+			a[k] = new double[] { x * x, y * y, z * z, x, y, z };
+			b[k] = 1;
+		}
+		DecompositionSolver solver = new QRDecomposition(
+				new Array2DRowRealMatrix(a, false)).getSolver();
+		if (!solver.isNonSingular()) {
+			return null;
+		}
+		double[] u = solver.solve(new ArrayRealVector(b, false)).toArray();
+		double g = 1;
+		double[] c = new double[3];
+		for (int i = 0; i < 3; i++) {
+			if (!(u[i] > 0)) {
+				return null;
+			}
+			c[i] = -u[i + 3] / (2 * u[i]);
+			g += u[i] * c[i] * c[i];
+		}
+		if (!(g > 0)) {
+			return null;
+		}
+		double[] p = new double[CalibrationUtils.NB_PARAMETERS];
+		double minS = Double.POSITIVE_INFINITY;
+		double maxS = 0;
+		for (int i = 0; i < 3; i++) {
+			p[i] = middle[i] + c[i] * scale;
+			p[i + 3] = Math.sqrt(u[i] / g) / scale;
+			minS = Math.min(minS, p[i + 3]);
+			maxS = Math.max(maxS, p[i + 3]);
+			// le capteur voit les deux cotes de son neutre
+			if (p[i] < min[i] || p[i] > max[i]) {
+				return null;
+			}
+		}
+		if (maxS > MAX_AXIS_RATIO * minS) {
+			return null;
+		}
+		return p;
+	}
+
+	/**
+	 * @return true if the norm of the measurement scaled by p is 1 within the
+	 *         tolerance
+	 */
+	private boolean isInlier(double[] m, double[] p) {
+		double x = (m[0] - p[0]) * p[3];
+		double y = (m[1] - p[1]) * p[4];
+		double z = (m[2] - p[2]) * p[5];
+		return Math.abs(Math.sqrt(x * x + y * y + z * z) - 1) < tolerance;
+	}
+
+	private int countInliers(double[][] meas, double[] p) {
+		int count = 0;
+		for (double[] m : meas) {
+			if (isInlier(m, p)) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Result of the robust fit
+	 */
+	public static class Consensus {
+		private final int[] inliers;
+		private final double[] p;
+
+		Consensus(int[] inliers, double[] p) {
+			this.inliers = inliers;
+			this.p = p;
+		}
+
+		/**
+		 * @return the indexes of the measurements in agreement with the best
+		 *         candidate
+		 */
+		public int[] getInliers() {
+			return inliers.clone();
+		}
+
+		/**
+		 * @param sensorRef
+		 *            the expected norm
+		 * @return the neutrals and the sensitivities of the best candidate,
+		 *         to be used as initial guess
+		 */
+		public double[] getGuess(double sensorRef) {
+			double[] guess = p.clone();
+			for (int i = 3; i < 6; i++) {
+				guess[i] *= sensorRef;
+			}
+			return guess;
+		}
+	}
+
+	/**
+	 * Searches the consensus set of the measurements, on the fork-join pool
+	 * of the caller or on the common pool
+	 *
+	 * @param meas
+	 * @return the consensus, null if no candidate could be fitted
+	 */
+	public synchronized Consensus fit(double[][] meas) {
+		if (meas.length < SUBSET_SIZE) {
+			return null;
+		}
+		bounds(meas);
+		CandidateTask task = new CandidateTask(meas, 0, iterations);
+		Candidate best = ForkJoinTask.inForkJoinPool() ? task.invoke()
+				: ForkJoinPool.commonPool().invoke(task);
+		if (best == null || best.nbInliers < SUBSET_SIZE) {
+			logger.warning("no ellipsoid found in " + iterations
+					+ " subsets of " + meas.length + " measurements");
+			return null;
+		}
+		int[] inliers = inliers(meas, best.p);
+		double[] p = best.p;
+		// affinage sur tous les points du consensus
+		for (int r = 0; r < REFINEMENTS; r++) {
+			double[] refined = fitEllipsoid(meas, inliers, inliers.length);
+			if (refined == null) {
+				break;
+			}
+			int[] refinedInliers = inliers(meas, refined);
+			if (refinedInliers.length < inliers.length) {
+				break;
+			}
+			p = refined;
+			inliers = refinedInliers;
+		}
+		return new Consensus(inliers, p);
+	}
+
+	private int[] inliers(double[][] meas, double[] p) {
+		int[] inliers = new int[countInliers(meas, p)];
+		int n = 0;
+		for (int i = 0; i < meas.length; i++) {
+			if (isInlier(meas[i], p)) {
+				inliers[n++] = i;
+			}
+		}
+		return inliers;
+	}
+
+	/**
+	 * Computes the bounds of the measurements
+	 */
+	private void bounds(double[][] meas) {
+		min = new double[] { Double.POSITIVE_INFINITY,
+				Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY };
+		max = new double[] { Double.NEGATIVE_INFINITY,
+				Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY };
+		for (double[] m : meas) {
+			for (int a = 0; a < 3; a++) {
+				min[a] = Math.min(min[a], m[a]);
+				max[a] = Math.max(max[a], m[a]);
+			}
+		}
+		middle = new double[3];
+		scale = 0;
+		for (int a = 0; a < 3; a++) {
+			middle[a] = (min[a] + max[a]) / 2;
+			scale = Math.max(scale, (max[a] - min[a]) / 2);
+		}
+		if (scale == 0) {
+			scale = 1;
+		}
+	}
+}
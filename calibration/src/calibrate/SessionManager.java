@@ -0,0 +1,413 @@
+package calibrate;
+
+import imu.IMU;
+import imu.IMUAdaptater;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+import data.Aircraft;
+import filtre.Filter;
+
+/**
+ * Keeps the calibration sessions in progress, at most one per aircraft and
+ * sensor, and solves them on a bounded pool of threads. The aircrafts without
+ * session keep being tracked by the IMU, the sessions of an aircraft which
+ * exits are retired except the one displayed.
+ */
+public class SessionManager {
+
+	private static Logger logger = Logger.getLogger(SessionManager.class
+			.getName());
+
+	/** Number of solvers used if not given in the properties */
+	public static final int DEFAULT_THREADS = Math.max(1, Runtime
+			.getRuntime().availableProcessors() - 1);
+	/** Number of calibrations waiting for a solver */
+	private static final int QUEUE_SIZE = 32;
+
+	/** The bus the sessions listen to */
+	private final IMU imu;
+	/** The sessions, by aircraft and sensor, in the order of creation */
+	private final Map<String, CalibrationSession> sessions = new LinkedHashMap<String, CalibrationSession>();
+	/** The current calibrations, by aircraft, in the order of creation */
+	private final Map<Integer, CurrentSession> currents = new LinkedHashMap<Integer, CurrentSession>();
+	/** The gyrometers calibrations, by aircraft, in the order of creation */
+	private final Map<Integer, GyroSession> gyros = new LinkedHashMap<Integer, GyroSession>();
+	/** The solvers of the calibrations */
+	private final ExecutorService solvers;
+	/**
+	 * The properties of the auto stop and of the solve of the sessions
+	 * completed, null if the sessions are stopped by hand
+	 */
+	private Properties autoStop = null;
+	/** The calibration displayed, kept when its aircraft exits */
+	private Calibration displayed = null;
+	/** The calibration paused while the results are shown, null if none */
+	private Calibration paused = null;
+	/** Notified when a session stops by itself */
+	private final List<Listener> listeners = new CopyOnWriteArrayList<Listener>();
+
+	/**
+	 * Receives the sessions stopped by their auto stop
+	 */
+	public interface Listener {
+		/**
+		 * @param session
+		 *            the session which does not collect anymore
+		 * @param result
+		 *            the text of its result, completed by a solver
+		 */
+		void sessionCompleted(CalibrationSession session,
+				CompletableFuture<String> result);
+	}
+
+	/**
+	 * @param imu
+	 *            the bus
+	 * @param nbThreads
+	 *            number of calibrations solved at the same time
+	 */
+	public SessionManager(IMU imu, int nbThreads) {
+		this.imu = imu;
+		final AtomicInteger count = new AtomicInteger();
+		this.solvers = new ThreadPoolExecutor(nbThreads, nbThreads, 30,
+				TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(QUEUE_SIZE),
+				new ThreadFactory() {
+					public Thread newThread(Runnable r) {
+						Thread t = new Thread(r, "calibration-solver-"
+								+ count.incrementAndGet());
+						t.setDaemon(true);
+						return t;
+					}
+				});
+		((ThreadPoolExecutor) solvers).allowCoreThreadTimeOut(true);
+		imu.addIMUListener(new IMUAdaptater() {
+			public void aircraftExited(Aircraft ac) {
+				retire(ac.getId());
+			}
+		});
+	}
+
+	/**
+	 * Reads the number of solvers in the properties
+	 *
+	 * @param prop
+	 *            the properties of the application
+	 * @return the value of calibration_threads, DEFAULT_THREADS if not set
+	 */
+	public static int getNbThreads(Properties prop) {
+		String threads = prop.getProperty("calibration_threads");
+		if (threads == null || threads.trim().isEmpty()) {
+			return DEFAULT_THREADS;
+		}
+		try {
+			return Math.max(1, Integer.parseInt(threads.trim()));
+		} catch (NumberFormatException e) {
+			logger.warning("invalid calibration_threads " + threads
+					+ ", using " + DEFAULT_THREADS);
+			return DEFAULT_THREADS;
+		}
+	}
+
+	/**
+	 * Enables the auto stop of the sessions started afterwards if autostop
+	 * is set in the properties : a session whose criteria are met stops
+	 * collecting and is solved
+	 *
+	 * @param prop
+	 *            the properties of the application, with the criteria of
+	 *            each sensor and the solver
+	 */
+	public synchronized void setAutoStop(Properties prop) {
+		this.autoStop = AutoStop.isEnabled(prop) ? prop : null;
+	}
+
+	/**
+	 * @param l
+	 *            notified, by the thread receiving the samples, when a session
+	 *            stops by itself
+	 */
+	public void addListener(Listener l) {
+		listeners.add(l);
+	}
+
+	private static String key(int acId, Filter filter) {
+		return acId + " " + filter.getType().getSensor();
+	}
+
+	/**
+	 * Starts the calibration of a sensor of an aircraft, the session already
+	 * started for the same aircraft and sensor is replaced
+	 *
+	 * @param acId
+	 *            id of the aircraft
+	 * @param filter
+	 *            the filter of the sensor to calibrate
+	 * @return the new session, already listening to the bus
+	 */
+	public synchronized CalibrationSession start(int acId, Filter filter) {
+		final CalibrationSession session = new CalibrationSession(acId, filter);
+		CalibrationSession previous = sessions.put(key(acId, filter),
+				session);
+		if (previous != null) {
+			imu.stopListenRaw(previous);
+			previous.getFilter().detach();
+		}
+		if (autoStop != null) {
+			AutoStop.Criteria criteria = AutoStop.Criteria.fromProperties(
+					autoStop, session.getType());
+			session.setAutoStop(new AutoStop(criteria), new Runnable() {
+				public void run() {
+					complete(session);
+				}
+			});
+			logger.info("auto stop of " + session + " at " + criteria);
+		}
+		imu.ListenRaw(session);
+		logger.info("calibration session started for " + session + ", "
+				+ sessions.size() + " session(s) in progress");
+		return session;
+	}
+
+	/**
+	 * Starts the calibration of the magnetometer against the current of an
+	 * aircraft, the one already started for the same aircraft is replaced
+	 *
+	 * @param acId
+	 *            id of the aircraft
+	 * @return the new session, already listening to the bus
+	 */
+	public synchronized CurrentSession startCurrent(int acId) {
+		CurrentSession session = new CurrentSession(acId);
+		CurrentSession previous = currents.put(acId, session);
+		if (previous != null) {
+			imu.stopListenCurrent(previous);
+			previous.detach();
+		}
+		imu.ListenCurrent(session);
+		logger.info("current calibration started for " + session);
+		return session;
+	}
+
+	/**
+	 * Starts the calibration of the gyrometers of an aircraft, the one
+	 * already started for the same aircraft is replaced
+	 *
+	 * @param acId
+	 *            id of the aircraft
+	 * @return the new session, already listening to the bus
+	 */
+	public synchronized GyroSession startGyro(int acId) {
+		GyroSession session = new GyroSession(acId);
+		GyroSession previous = gyros.put(acId, session);
+		if (previous != null) {
+			imu.stopListenGyro(previous);
+			previous.detach();
+		}
+		imu.ListenGyro(session);
+		logger.info("gyrometers calibration started for " + session);
+		return session;
+	}
+
+	/**
+	 * Stops collecting the samples of a session which met its criteria, and
+	 * solves it
+	 */
+	private void complete(CalibrationSession session) {
+		Properties prop;
+		synchronized (this) {
+			// la session a pu etre remplacee, ou l'arret auto desactive
+			String key = key(session.getAcId(), session.getFilter());
+			if (sessions.get(key) != session || autoStop == null) {
+				return;
+			}
+			imu.stopListenRaw(session);
+			prop = autoStop;
+		}
+		CompletableFuture<String> result = solve(session, prop);
+		for (Listener l : listeners) {
+			l.sessionCompleted(session, result);
+		}
+	}
+
+	/**
+	 * @param calibration
+	 *            the calibration displayed, null if none
+	 */
+	public synchronized void setDisplayed(Calibration calibration) {
+		this.displayed = calibration;
+	}
+
+	/**
+	 * Stops collecting the samples of the calibration displayed while the
+	 * results are shown, the other ones keep collecting. A session already
+	 * stopped by its auto stop is not resumed afterwards
+	 */
+	public synchronized void pauseDisplayed() {
+		if (displayed != null && imu.isListening(displayed)) {
+			stopListening(displayed);
+			paused = displayed;
+		}
+	}
+
+	/**
+	 * Collects again the samples of the calibration paused, unless it has
+	 * been replaced or retired meanwhile
+	 */
+	public synchronized void resumePaused() {
+		if (paused != null && isInProgress(paused)) {
+			listen(paused);
+		}
+		paused = null;
+	}
+
+	/**
+	 * Retires the calibrations of an aircraft which has exited, their
+	 * samples are released. The calibration displayed is kept
+	 *
+	 * @param acId
+	 *            id of the aircraft
+	 */
+	public synchronized void retire(int acId) {
+		int nb = 0;
+		for (Iterator<? extends Calibration> it = sessions.values().iterator(); it
+				.hasNext();) {
+			nb += retire(it, acId);
+		}
+		for (Iterator<? extends Calibration> it = currents.values().iterator(); it
+				.hasNext();) {
+			nb += retire(it, acId);
+		}
+		for (Iterator<? extends Calibration> it = gyros.values().iterator(); it
+				.hasNext();) {
+			nb += retire(it, acId);
+		}
+		if (nb > 0) {
+			logger.info(nb + " calibration(s) of aircraft " + acId
+					+ " retired");
+		}
+	}
+
+	/**
+	 * Retires the next calibration if it is of the aircraft and not displayed
+	 *
+	 * @return 1 if retired, 0 otherwise
+	 */
+	private int retire(Iterator<? extends Calibration> it, int acId) {
+		Calibration c = it.next();
+		if (c.getAcId() != acId || c == displayed) {
+			return 0;
+		}
+		stopListening(c);
+		it.remove();
+		return 1;
+	}
+
+	/**
+	 * @return true if the calibration has not been replaced nor retired
+	 */
+	private boolean isInProgress(Calibration c) {
+		return sessions.containsValue(c) || currents.containsValue(c)
+				|| gyros.containsValue(c);
+	}
+
+	/**
+	 * Binds a calibration to the messages of its sensor
+	 */
+	private void listen(Calibration c) {
+		if (c instanceof CalibrationSession) {
+			imu.ListenRaw((CalibrationSession) c);
+		} else if (c instanceof CurrentSession) {
+			imu.ListenCurrent((CurrentSession) c);
+		} else if (c instanceof GyroSession) {
+			imu.ListenGyro((GyroSession) c);
+		}
+	}
+
+	/**
+	 * Unbinds a calibration from its messages
+	 */
+	private void stopListening(Calibration c) {
+		if (c instanceof CalibrationSession) {
+			imu.stopListenRaw((CalibrationSession) c);
+		} else if (c instanceof CurrentSession) {
+			imu.stopListenCurrent((CurrentSession) c);
+		} else if (c instanceof GyroSession) {
+			imu.stopListenGyro((GyroSession) c);
+		}
+	}
+
+	/**
+	 * @return the sessions in progress, in the order of creation
+	 */
+	public synchronized List<CalibrationSession> getSessions() {
+		return new ArrayList<CalibrationSession>(sessions.values());
+	}
+
+	/**
+	 * @return all the calibrations in progress, the sessions, the current
+	 *         calibrations then the gyrometers ones, in the order of creation
+	 */
+	public synchronized List<Calibration> getCalibrations() {
+		List<Calibration> res = new ArrayList<Calibration>(sessions.values());
+		res.addAll(currents.values());
+		res.addAll(gyros.values());
+		return res;
+	}
+
+	/**
+	 * Solves a calibration on the pool of solvers
+	 *
+	 * @param session
+	 * @param prop
+	 *            the properties of the application
+	 * @return the text of the result, completed by a solver
+	 */
+	public CompletableFuture<String> solve(final Calibration session,
+			final Properties prop) {
+		try {
+			return CompletableFuture.supplyAsync(new Supplier<String>() {
+				public String get() {
+					return session.solve(prop);
+				}
+			}, solvers);
+		} catch (RejectedExecutionException e) {
+			logger.warning("too many calibrations waiting, " + session
+					+ " not solved");
+			CompletableFuture<String> failed = new CompletableFuture<String>();
+			failed.completeExceptionally(e);
+			return failed;
+		}
+	}
+
+	/**
+	 * Stops all the sessions and the solvers
+	 */
+	public synchronized void shutdown() {
+		for (Calibration c : getCalibrations()) {
+			stopListening(c);
+		}
+		displayed = null;
+		paused = null;
+		sessions.clear();
+		currents.clear();
+		gyros.clear();
+		solvers.shutdown();
+	}
+}
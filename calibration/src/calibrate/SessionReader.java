@@ -0,0 +1,253 @@
+package calibrate;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.logging.Logger;
+
+import common.TypeCalibration;
+
+/**
+ * Reads a calibration session written by SessionWriter. The file is mapped in
+ * memory and its blocks are decoded into primitive columns.
+ */
+public class SessionReader {
+
+	private static Logger logger = Logger.getLogger(SessionReader.class
+			.getName());
+
+	/** Id of the aircraft */
+	private int acId;
+	/** The sensor of the session */
+	private TypeCalibration type;
+	/** Calibration parameters used when recording */
+	private double sensorRef;
+	private int sensorRes;
+	private int noiseWindow;
+	private double noiseThreshold;
+	/** Date of the beginning of the session */
+	private long startMillis;
+
+	/** Number of samples */
+	private int size = 0;
+	private int[] x;
+	private int[] y;
+	private int[] z;
+	/** Time of the samples since the beginning of the session */
+	private long[] tMicros;
+
+	/**
+	 * Maps and decodes the file
+	 *
+	 * @param fileName
+	 * @throws IOException
+	 *             if the file can't be read or is not a session
+	 */
+	public SessionReader(String fileName) throws IOException {
+		FileChannel channel = FileChannel.open(Paths.get(fileName),
+				StandardOpenOption.READ);
+		try {
+			MappedByteBuffer buffer = channel.map(
+					FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			readHeader(buffer);
+			readBlocks(buffer);
+		} catch (RuntimeException e) {
+			throw new IOException("invalid session file " + fileName, e);
+		} finally {
+			channel.close();
+		}
+		logger.info(fileName + " read with " + size + " samples");
+	}
+
+	private void readHeader(ByteBuffer buffer) throws IOException {
+		if (buffer.getInt() != SessionWriter.MAGIC) {
+			throw new IOException("not a session file");
+		}
+		short version = buffer.getShort();
+		if (version != SessionWriter.VERSION) {
+			throw new IOException("unknown session version " + version);
+		}
+		acId = buffer.getInt();
+		byte[] sensor = new byte[buffer.getShort()];
+		buffer.get(sensor);
+		type = TypeCalibration.fromSensor(new String(sensor,
+				Charset.forName("US-ASCII")));
+		sensorRef = buffer.getDouble();
+		sensorRes = buffer.getInt();
+		noiseWindow = buffer.getInt();
+		noiseThreshold = buffer.getDouble();
+		startMillis = buffer.getLong();
+	}
+
+	private void readBlocks(ByteBuffer buffer) {
+		// premier passage : nombre d'échantillons
+		int start = buffer.position();
+		while (buffer.hasRemaining()) {
+			int count = buffer.getInt();
+			int flags = buffer.get();
+			size += count;
+			buffer.position(buffer.position() + 8 + 3 * 4 + (count - 1)
+					* (4 + width(flags, SessionWriter.WIDE_X)
+							+ width(flags, SessionWriter.WIDE_Y) + width(
+								flags, SessionWriter.WIDE_Z)));
+		}
+		x = new int[size];
+		y = new int[size];
+		z = new int[size];
+		tMicros = new long[size];
+
+		buffer.position(start);
+		int n = 0;
+		while (buffer.hasRemaining()) {
+			int count = buffer.getInt();
+			int flags = buffer.get();
+			tMicros[n] = buffer.getLong();
+			x[n] = buffer.getInt();
+			y[n] = buffer.getInt();
+			z[n] = buffer.getInt();
+			for (int i = 1; i < count; i++) {
+				tMicros[n + i] = tMicros[n + i - 1] + buffer.getInt();
+			}
+			getDeltas(buffer, x, n, count, flags, SessionWriter.WIDE_X);
+			getDeltas(buffer, y, n, count, flags, SessionWriter.WIDE_Y);
+			getDeltas(buffer, z, n, count, flags, SessionWriter.WIDE_Z);
+			n += count;
+		}
+	}
+
+	private static int width(int flags, int column) {
+		return (flags & column) != 0 ? 4 : 2;
+	}
+
+	private static void getDeltas(ByteBuffer buffer, int[] values, int from,
+			int count, int flags, int column) {
+		boolean wide = (flags & column) != 0;
+		for (int i = from + 1; i < from + count; i++) {
+			values[i] = values[i - 1]
+					+ (wide ? buffer.getInt() : buffer.getShort());
+		}
+	}
+
+	public int getAcId() {
+		return acId;
+	}
+
+	public TypeCalibration getType() {
+		return type;
+	}
+
+	public double getSensorRef() {
+		return sensorRef;
+	}
+
+	public int getSensorRes() {
+		return sensorRes;
+	}
+
+	public int getNoiseWindow() {
+		return noiseWindow;
+	}
+
+	public double getNoiseThreshold() {
+		return noiseThreshold;
+	}
+
+	public long getStartMillis() {
+		return startMillis;
+	}
+
+	/**
+	 * @return the number of samples
+	 */
+	public int size() {
+		return size;
+	}
+
+	public int getX(int i) {
+		return x[i];
+	}
+
+	public int getY(int i) {
+		return y[i];
+	}
+
+	public int getZ(int i) {
+		return z[i];
+	}
+
+	/**
+	 * @return the time of the sample since the beginning of the session, in
+	 *         microseconds
+	 */
+	public long getTMicros(int i) {
+		return tMicros[i];
+	}
+
+	/**
+	 * @return the measurements, one line per sample
+	 */
+	public double[][] getMeasurements() {
+		double[][] meas = new double[size][];
+		for (int i = 0; i < size; i++) {
+			meas[i] = new double[] { x[i], y[i], z[i] };
+		}
+		return meas;
+	}
+
+	/**
+	 * @return the message of a sample, as sent on the bus
+	 */
+	public String getMessage(int i) {
+		return acId + " " + type.getRawMessage() + " " + x[i] + " " + y[i]
+				+ " " + z[i];
+	}
+
+	/**
+	 * Converts the session to a Paparazzi .data log
+	 *
+	 * @param fileName
+	 *            the text log to create
+	 * @throws IOException
+	 */
+	public void exportText(String fileName) throws IOException {
+		String nl = System.getProperty("line.separator");
+		BufferedWriter out = new BufferedWriter(new FileWriter(fileName));
+		try {
+			for (int i = 0; i < size; i++) {
+				out.write(String.format(Locale.US, "%.3f", tMicros[i] / 1e6));
+				out.write(' ');
+				out.write(getMessage(i));
+				out.write(nl);
+			}
+		} finally {
+			out.close();
+		}
+		logger.info(fileName + " created with " + size + " lines");
+	}
+
+	/**
+	 * Converts a session to a text log
+	 *
+	 * @param args
+	 *            the session file and the .data file to create
+	 */
+	public static void main(String args[]) {
+		if (args.length != 2) {
+			System.err.println("usage: SessionReader session_file log.data");
+			System.exit(1);
+		}
+		try {
+			new SessionReader(args[0]).exportText(args[1]);
+		} catch (IOException e) {
+			logger.warning(e.getMessage());
+			System.exit(1);
+		}
+	}
+}
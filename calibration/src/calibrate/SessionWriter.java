@@ -0,0 +1,190 @@
+package calibrate;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.logging.Logger;
+
+import common.TypeCalibration;
+
+/**
+ * Writes a calibration session in the binary columnar format read by
+ * SessionReader.
+ *
+ * The file starts with a header (aircraft id, sensor and calibration
+ * parameters) followed by blocks of samples. Each block stores its first
+ * sample, then the deltas of the timestamps (int32, in microseconds) and of
+ * the x, y, z columns (int16 when they fit, int32 otherwise).
+ */
+public class SessionWriter {
+
+	private static Logger logger = Logger.getLogger(SessionWriter.class
+			.getName());
+
+	/** "AFCS" */
+	public static final int MAGIC = 0x41464353;
+	public static final short VERSION = 1;
+	/** Maximum number of samples of a block */
+	public static final int BLOCK_SIZE = 1024;
+	/** Flags of a block telling which columns are stored on 32 bits */
+	static final int WIDE_X = 1;
+	static final int WIDE_Y = 2;
+	static final int WIDE_Z = 4;
+
+	private FileChannel channel;
+	/** Buffer reused to write the blocks */
+	private ByteBuffer buffer;
+
+	/** Samples of the current block */
+	private int count = 0;
+	private int[] x = new int[BLOCK_SIZE];
+	private int[] y = new int[BLOCK_SIZE];
+	private int[] z = new int[BLOCK_SIZE];
+	private long[] t = new long[BLOCK_SIZE];
+	/** Time of the first sample of the session, in nanoseconds */
+	private long tStart;
+	private boolean started = false;
+
+	/**
+	 * Creates the file and writes its header
+	 *
+	 * @param fileName
+	 * @param acId
+	 *            id of the aircraft
+	 * @param type
+	 *            the sensor
+	 * @throws IOException
+	 */
+	public SessionWriter(String fileName, int acId, TypeCalibration type)
+			throws IOException {
+		channel = FileChannel.open(Paths.get(fileName),
+				StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+		// taille maximale d'un bloc : en-tête + 4 colonnes de 32 bits
+		buffer = ByteBuffer.allocateDirect(1 + 4 + 8 + 3 * 4 + 4 * 4
+				* BLOCK_SIZE);
+
+		byte[] sensor = type.getSensor().getBytes(
+				Charset.forName("US-ASCII"));
+		buffer.putInt(MAGIC);
+		buffer.putShort(VERSION);
+		buffer.putInt(acId);
+		buffer.putShort((short) sensor.length);
+		buffer.put(sensor);
+		buffer.putDouble(type.getSensorRef());
+		buffer.putInt(type.getSensorRes());
+		buffer.putInt(type.getNoiseWindow());
+		buffer.putDouble(type.getNoiseThreshold());
+		buffer.putLong(System.currentTimeMillis());
+		write();
+	}
+
+	/**
+	 * Adds a sample to the session, the samples are written by blocks
+	 *
+	 * @param xRaw
+	 * @param yRaw
+	 * @param zRaw
+	 * @param tNanos
+	 *            time of reception of the sample
+	 * @throws IOException
+	 */
+	public void add(int xRaw, int yRaw, int zRaw, long tNanos)
+			throws IOException {
+		if (!started) {
+			tStart = tNanos;
+			started = true;
+		}
+		x[count] = xRaw;
+		y[count] = yRaw;
+		z[count] = zRaw;
+		t[count] = tNanos;
+		count++;
+		if (count == BLOCK_SIZE) {
+			flush();
+		}
+	}
+
+	/**
+	 * Writes the samples of the current block
+	 *
+	 * @throws IOException
+	 */
+	public void flush() throws IOException {
+		if (count == 0) {
+			return;
+		}
+		int flags = 0;
+		if (!deltasFitShort(x)) {
+			flags |= WIDE_X;
+		}
+		if (!deltasFitShort(y)) {
+			flags |= WIDE_Y;
+		}
+		if (!deltasFitShort(z)) {
+			flags |= WIDE_Z;
+		}
+		buffer.putInt(count);
+		buffer.put((byte) flags);
+		long previous = (t[0] - tStart) / 1000;
+		buffer.putLong(previous);
+		buffer.putInt(x[0]);
+		buffer.putInt(y[0]);
+		buffer.putInt(z[0]);
+		for (int i = 1; i < count; i++) {
+			long micros = (t[i] - tStart) / 1000;
+			buffer.putInt((int) (micros - previous));
+			previous = micros;
+		}
+		putDeltas(x, (flags & WIDE_X) != 0);
+		putDeltas(y, (flags & WIDE_Y) != 0);
+		putDeltas(z, (flags & WIDE_Z) != 0);
+		write();
+		count = 0;
+	}
+
+	/**
+	 * Writes the pending samples and closes the file
+	 *
+	 * @throws IOException
+	 */
+	public void close() throws IOException {
+		flush();
+		channel.close();
+	}
+
+	private boolean deltasFitShort(int[] column) {
+		for (int i = 1; i < count; i++) {
+			int d = column[i] - column[i - 1];
+			if (d < Short.MIN_VALUE || d > Short.MAX_VALUE) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void putDeltas(int[] column, boolean wide) {
+		for (int i = 1; i < count; i++) {
+			int d = column[i] - column[i - 1];
+			if (wide) {
+				buffer.putInt(d);
+			} else {
+				buffer.putShort((short) d);
+			}
+		}
+	}
+
+	/**
+	 * Appends the content of the buffer to the file
+	 */
+	private void write() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+}
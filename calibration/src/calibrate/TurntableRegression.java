@@ -0,0 +1,206 @@
+package calibrate;
+
+import java.util.Locale;
+
+/**
+ * Linear regression of each axis of the gyrometers against the rate of a
+ * turntable, as calibrate_gyro.py : raw = a * rate + b, the neutral being b
+ * and the sensitivity 2^12 / a. Only the samples taken while the turntable
+ * turns between MIN_RATE and MAX_RATE are used, and the means and co-moments
+ * are updated at each sample as in CurrentRegression.
+ */
+public class TurntableRegression {
+
+	/** Rates of the turntable used, in rad/s, bounds excluded */
+	public static final double MIN_RATE = 1;
+	public static final double MAX_RATE = 7;
+	/**
+	 * Minimum correlation of an axis with the turntable : the axes the
+	 * turntable does not turn around are not calibrated
+	 */
+	public static final double MIN_CORRELATION = 0.9;
+	/**
+	 * Minimum slope of an axis, relative to the largest one : the axes only
+	 * coupled to the turned one are not calibrated
+	 */
+	public static final double MIN_RELATIVE_SLOPE = 0.5;
+
+	/** Number of samples */
+	private long n = 0;
+	/** Mean of the rate of the turntable */
+	private double meanRate = 0;
+	/** Sum of the squared deviations of the rate */
+	private double varRate = 0;
+	/** Mean of each axis */
+	private final double[] mean = new double[3];
+	/** Sum of the squared deviations of each axis */
+	private final double[] var = new double[3];
+	/** Sum of the products of the deviations of each axis and the rate */
+	private final double[] cov = new double[3];
+
+	/**
+	 * @param rate
+	 *            rate of the turntable, in rad/s
+	 * @return true if a sample at this rate is used
+	 */
+	public static boolean inRange(double rate) {
+		return rate > MIN_RATE && rate < MAX_RATE;
+	}
+
+	/**
+	 * Adds a sample of the gyrometers, ignored if the rate is out of range
+	 *
+	 * @param rate
+	 *            the last rate received from the turntable, in rad/s
+	 * @param x
+	 * @param y
+	 * @param z
+	 */
+	public synchronized void add(double rate, double x, double y, double z) {
+		if (!inRange(rate)) {
+			return;
+		}
+		n++;
+		double dr = rate - meanRate;
+		meanRate += dr / n;
+		varRate += dr * (rate - meanRate);
+		add(0, x, dr);
+		add(1, y, dr);
+		add(2, z, dr);
+	}
+
+	private void add(int a, double g, double dr) {
+		double dg = g - mean[a];
+		mean[a] += dg / n;
+		var[a] += dg * (g - mean[a]);
+		cov[a] += dr * (g - mean[a]);
+	}
+
+	/**
+	 * @return the number of samples used
+	 */
+	public synchronized long getNbSamples() {
+		return n;
+	}
+
+	/**
+	 * @return the slope a of each axis, in raw units per rad/s, NaN while
+	 *         the rate has not varied
+	 */
+	public synchronized double[] getSlopes() {
+		double[] s = new double[3];
+		for (int a = 0; a < 3; a++) {
+			s[a] = varRate > 0 ? cov[a] / varRate : Double.NaN;
+		}
+		return s;
+	}
+
+	/**
+	 * @return the intercept b of each axis, the raw value at rest
+	 */
+	public synchronized double[] getIntercepts() {
+		double[] s = getSlopes();
+		double[] b = new double[3];
+		for (int a = 0; a < 3; a++) {
+			b[a] = mean[a] - s[a] * meanRate;
+		}
+		return b;
+	}
+
+	/**
+	 * @return the correlation of each axis with the rate, NaN while an axis
+	 *         or the rate has not varied
+	 */
+	public synchronized double[] getCorrelations() {
+		double[] r = new double[3];
+		for (int a = 0; a < 3; a++) {
+			double d = Math.sqrt(varRate * var[a]);
+			r[a] = d > 0 ? cov[a] / d : Double.NaN;
+		}
+		return r;
+	}
+
+	/**
+	 * @return the standard error of the slope of each axis, as
+	 *         stats.linregress
+	 */
+	public synchronized double[] getStdErrors() {
+		double[] e = new double[3];
+		for (int a = 0; a < 3; a++) {
+			if (n <= 2 || !(varRate > 0)) {
+				e[a] = Double.NaN;
+				continue;
+			}
+			double rss = Math.max(0, var[a] - cov[a] * cov[a] / varRate);
+			e[a] = Math.sqrt(rss / (n - 2) / varRate);
+		}
+		return e;
+	}
+
+	/**
+	 * @return the root mean square of the error on the rate of the turntable
+	 *         of the calibrated axes, in rad/s, NaN if none
+	 */
+	public synchronized double getResidual() {
+		boolean[] axes = getCalibratedAxes();
+		double sum = 0;
+		int nb = 0;
+		for (int a = 0; a < 3; a++) {
+			if (axes[a]) {
+				double rss = Math.max(0, var[a] - cov[a] * cov[a] / varRate);
+				double slope = cov[a] / varRate;
+				sum += rss / n / (slope * slope);
+				nb++;
+			}
+		}
+		return nb == 0 ? Double.NaN : Math.sqrt(sum / nb);
+	}
+
+	/**
+	 * @return the axes turned by the turntable, whose regression gives the
+	 *         sensitivity
+	 */
+	public synchronized boolean[] getCalibratedAxes() {
+		double[] r = getCorrelations();
+		double[] s = getSlopes();
+		double max = 0;
+		for (int a = 0; a < 3; a++) {
+			if (Math.abs(s[a]) > max) {
+				max = Math.abs(s[a]);
+			}
+		}
+		boolean[] axes = new boolean[3];
+		for (int a = 0; a < 3; a++) {
+			axes[a] = Math.abs(r[a]) >= MIN_CORRELATION
+					&& Math.abs(s[a]) >= MIN_RELATIVE_SLOPE * max;
+		}
+		return axes;
+	}
+
+	/**
+	 * @return true if at least one axis is calibrated
+	 */
+	public boolean isSolved() {
+		for (boolean axis : getCalibratedAxes()) {
+			if (axis) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public String toString() {
+		double[] s = getSlopes();
+		double[] b = getIntercepts();
+		double[] e = getStdErrors();
+		String[] axes = { "p", "q", "r" };
+		StringBuffer sb = new StringBuffer(getNbSamples() + " samples");
+		for (int a = 0; a < 3; a++) {
+			sb.append(String.format(Locale.US,
+					", %s : a=%.2f b=%.2f, std error= %.3f", axes[a], s[a],
+					b[a], e[a]));
+		}
+		return sb.toString();
+	}
+}
@@ -1,44 +1,95 @@
 /**Package grouping all classes used to filter data*/
 package common;
 
-import java.util.concurrent.ArrayBlockingQueue;
+import data.SampleRing;
 
 /**
- * Class implementing a sliding window, basically add a vector at the beginning
- * while throwing the first in the window
- * 
+ * Class implementing a sliding window of samples, basically add a sample at
+ * the end while throwing the first one when the window is full. The samples
+ * are kept in a ring of primitive columns : adding a sample neither locks nor
+ * allocates, and the samples are read by their index in the window.
+ *
  * @author florent
- * 
- * @param <E>
+ *
  */
-public class SlidingWindow<E> extends ArrayBlockingQueue<E> {
+public class SlidingWindow {
 
+	/** Number of samples of a full window */
+	private final int capacity;
+	/** The samples, the ring being at least as large as the window */
+	private final SampleRing ring;
+	/** Sequence number of the first sample of the window */
+	private volatile long first;
+
+	/**
+	 * @param capacity
+	 *            number of samples of a full window
+	 */
 	public SlidingWindow(int capacity) {
-		super(capacity);
+		if (capacity < 1) {
+			throw new IllegalArgumentException("invalid window size "
+					+ capacity);
+		}
+		this.capacity = capacity;
+		this.ring = new SampleRing(capacity);
 	}
 
 	/**
-	 * add the element at the end of the queue return always true
+	 * add the sample at the end of the window, the first one is thrown if
+	 * the window is full
+	 *
+	 * @param x
+	 * @param y
+	 * @param z
 	 */
-	public boolean add(E element) {
-		if (!super.offer(element)) {
-			super.poll();
-			super.offer(element);
+	public void add(int x, int y, int z) {
+		long seq = ring.put(x, y, z, 0);
+		if (seq - first >= capacity) {
+			first++;
 		}
-		return true;
 	}
 
 	/**
-	 * @return the array containing the elements of the sphere
+	 * @return the number of samples in the window
+	 */
+	public int size() {
+		return (int) (ring.getWritten() - first);
+	}
+
+	/**
+	 * @return the number of samples of a full window
+	 */
+	public int capacity() {
+		return capacity;
+	}
+
+	/**
+	 * @return true if the next sample added throws the first one
+	 */
+	public boolean isFull() {
+		return size() == capacity;
+	}
+
+	/**
+	 * Empties the window
 	 */
-	@Override
-	public <T> T[] toArray(T[] a) {
-		return super.toArray(a);
+	public void clear() {
+		first = ring.getWritten();
 	}
 
 	/**
-	 * Added by default to allow serializable
+	 * @param i
+	 *            index of the sample, 0 for the first (oldest) one
 	 */
-	private static final long serialVersionUID = 1L;
+	public int getX(int i) {
+		return ring.getX(first + i);
+	}
 
+	public int getY(int i) {
+		return ring.getY(first + i);
+	}
+
+	public int getZ(int i) {
+		return ring.getZ(first + i);
+	}
 }
@@ -3,13 +3,102 @@
  */
 package common;
 /**
- * Enumeration of type of calibration
+ * Enumeration of the 4 types of calibration : the accelerometers and the
+ * magnetometer fitted on a sphere, the gyrometers, and the magnetometer
+ * against the current
  * @author Florent
  *
  */
 public enum TypeCalibration {
 	/**
-	 * 2 type of calibration
+	 * The sensors fitted on a sphere, with the parameters used by
+	 * calibrate.py for each sensor
 	 */
-	ACCELEROMETER, MAGNETOMETER;
+	ACCELEROMETER("ACCEL", 9.81, 10, 20, 40), MAGNETOMETER("MAG", 1., 11, 10,
+			1000),
+	/**
+	 * Rates in rad/s, with the resolution of calibrate_gyro.py : the noise
+	 * threshold detects the stationary intervals giving the neutrals
+	 */
+	GYROSCOPE("GYRO", 1., 12, 10, 10),
+	/**
+	 * Linear relation between the magnetometer and the electrical current,
+	 * as calibrate_mag_current.py : not an ellipsoid, the parameters of the
+	 * sphere are unused
+	 */
+	MAG_CURRENT("MAG_CURRENT", "IMU_MAG_CURRENT_CALIBRATION");
+
+	/** Name of the sensor in the IMU_<sensor>_RAW messages */
+	private final String sensor;
+	/** Name of the message carrying the measurements */
+	private final String rawMessage;
+	/** Norm expected for a calibrated measurement */
+	private final double sensorRef;
+	/** Resolution (in bits) of the sensitivity in the airframe file */
+	private final int sensorRes;
+	/** Half size of the window used to estimate the noise of a measurement */
+	private final int noiseWindow;
+	/** Maximum noise accepted for a measurement */
+	private final double noiseThreshold;
+
+	private TypeCalibration(String sensor, double sensorRef, int sensorRes,
+			int noiseWindow, double noiseThreshold) {
+		this.sensor = sensor;
+		this.rawMessage = "IMU_" + sensor + "_RAW";
+		this.sensorRef = sensorRef;
+		this.sensorRes = sensorRes;
+		this.noiseWindow = noiseWindow;
+		this.noiseThreshold = noiseThreshold;
+	}
+
+	private TypeCalibration(String sensor, String rawMessage) {
+		this.sensor = sensor;
+		this.rawMessage = rawMessage;
+		this.sensorRef = 1.;
+		this.sensorRes = 0;
+		this.noiseWindow = 0;
+		this.noiseThreshold = 0;
+	}
+
+	/** @return the name of the sensor, as written in the messages */
+	public String getSensor() {
+		return sensor;
+	}
+
+	/** @return the name of the raw message of the sensor */
+	public String getRawMessage() {
+		return rawMessage;
+	}
+
+	public double getSensorRef() {
+		return sensorRef;
+	}
+
+	public int getSensorRes() {
+		return sensorRes;
+	}
+
+	public int getNoiseWindow() {
+		return noiseWindow;
+	}
+
+	public double getNoiseThreshold() {
+		return noiseThreshold;
+	}
+
+	/**
+	 * @param sensor
+	 *            name of the sensor, as written in the messages
+	 * @return the matching type of calibration
+	 * @throws IllegalArgumentException
+	 *             if the sensor is unknown
+	 */
+	public static TypeCalibration fromSensor(String sensor) {
+		for (TypeCalibration t : values()) {
+			if (t.sensor.equals(sensor)) {
+				return t;
+			}
+		}
+		throw new IllegalArgumentException("unknown sensor " + sensor);
+	}
 }
@@ -2,10 +2,15 @@ package data;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
 
 /**
- * Store the date relative to an aircraft in order to facilitate reuse
+ * Store the date relative to an aircraft in order to facilitate reuse. The
+ * aircraft is updated by the threads of the bus and read by the display : its
+ * state changes are atomic, and tell if they changed the state so that each
+ * change is notified once
  * 
  * @author Alinoe
  * 
@@ -15,21 +20,21 @@ public class Aircraft {
 	private static Logger logger = Logger.getLogger(Aircraft.class.getName());
 
 	/** Name of the aircraft */
-	private String name;
+	private volatile String name;
 	/** Id of the aircraft */
-	private int id;
+	private final int id;
 	/** Path to the setting file of the aircraft */
-	private String settings;
+	private volatile String settings;
 	/** The current telemetry mode of the aircraft */
-	private int mode;
+	private final AtomicInteger mode;
 	/** Says if there is raw_data linked to this airplane */
-	private boolean isRaw;
+	private final AtomicBoolean isRaw = new AtomicBoolean(false);
 	/** List of available modes for the aircraft */
-	private List<String> modes;
+	private volatile List<String> modes;
 	/** index telemetry for dlvalues messages */
-	private int indexTelemetry;
+	private volatile int indexTelemetry;
 	/** indicates if connected or not */
-	private boolean connected;
+	private final AtomicBoolean connected = new AtomicBoolean(false);
 
 	/**
 	 * create the aircraft, no default constructor
@@ -44,22 +49,34 @@ public class Aircraft {
 		this.name = new String(name);
 		this.id = id;
 		this.settings = new String(settings);
-		this.mode = mode;
+		this.mode = new AtomicInteger(mode);
 		this.modes = new ArrayList<String>(modes);
 		this.indexTelemetry = indexTelemetry;
-		this.connected = false;
 	}
 
 	public boolean isConnected() {
-		return connected;
+		return connected.get();
 	}
 
-	public void connected(boolean b) {
-		this.connected = b;
+	/**
+	 * @param b
+	 * @return true if the connection state has changed
+	 */
+	public boolean connected(boolean b) {
+		return connected.getAndSet(b) != b;
 	}
 
-	public boolean equals(Aircraft ac) {
-		return ac.getId() == this.id;
+	/**
+	 * Two aircrafts are equal if they have the same id
+	 */
+	@Override
+	public boolean equals(Object o) {
+		return o instanceof Aircraft && ((Aircraft) o).getId() == this.id;
+	}
+
+	@Override
+	public int hashCode() {
+		return id;
 	}
 
 	/**
@@ -95,24 +112,26 @@ public class Aircraft {
 	 * @return mode
 	 */
 	public int getMode() {
-		return mode;
+		return mode.get();
 	}
 
 	/**
 	 * set the value of isRaw
 	 * 
+	 * @return true if the value has changed
 	 */
-	public void setRaw(boolean b) {
-		isRaw = b;
+	public boolean setRaw(boolean b) {
+		return isRaw.getAndSet(b) != b;
 	}
 
 	/**
 	 * set the current telemetry mode
 	 * 
 	 * @param m
+	 * @return true if the mode has changed
 	 */
-	public void setMode(int m) {
-		mode = m;
+	public boolean setMode(int m) {
+		return mode.getAndSet(m) != m;
 	}
 
 	/**
@@ -120,7 +139,7 @@ public class Aircraft {
 	 * 
 	 */
 	public boolean isRawData() {
-		return isRaw;
+		return isRaw.get();
 	}
 
 	/**
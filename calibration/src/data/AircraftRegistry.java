@@ -0,0 +1,187 @@
+package data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.logging.Logger;
+
+/**
+ * The aircrafts known on the bus, indexed by their id. The ids of paparazzi
+ * being small integers, the aircrafts are stored in a table at the index of
+ * their id : reading one is a single volatile read, without lock nor boxing.
+ * Adding or removing an aircraft takes a lock and changes the version of the
+ * registry, so that the snapshots given to the display are consistent.
+ */
+public class AircraftRegistry {
+
+	private static Logger logger = Logger.getLogger(AircraftRegistry.class
+			.getName());
+
+	/** Initial size of the table, ids of an usual fleet */
+	private static final int INITIAL_CAPACITY = 64;
+	/** Largest id, the ids of the messages being coded on a byte */
+	public static final int MAX_ID = 255;
+
+	/** The aircrafts at the index of their id, grown under the lock */
+	private volatile AtomicReferenceArray<Aircraft> table = new AtomicReferenceArray<Aircraft>(
+			INITIAL_CAPACITY);
+	/** Incremented before and after each change : odd while changing */
+	private final AtomicLong version = new AtomicLong();
+	/** Number of aircrafts */
+	private volatile int size = 0;
+	private final Object lock = new Object();
+
+	/**
+	 * @param id
+	 * @return the aircraft of this id, null if unknown
+	 */
+	public Aircraft get(int id) {
+		AtomicReferenceArray<Aircraft> t = table;
+		if (id < 0 || id >= t.length()) {
+			return null;
+		}
+		return t.get(id);
+	}
+
+	/**
+	 * Adds the aircraft of this id if it is unknown. The factory is called
+	 * once at most per id, under the lock, so that the bindings of an aircraft
+	 * announced twice are not done twice
+	 *
+	 * @param id
+	 * @param factory
+	 *            builds the aircraft from its id
+	 * @return the aircraft of this id, the one already known or the new one,
+	 *         null if the id is out of range
+	 */
+	public Aircraft addIfAbsent(int id, IntFunction<Aircraft> factory) {
+		if (id < 0 || id > MAX_ID) {
+			logger.warning("aircraft id " + id + " ignored, out of [0, "
+					+ MAX_ID + "]");
+			return null;
+		}
+		Aircraft ac = get(id);
+		if (ac != null) {
+			return ac;
+		}
+		synchronized (lock) {
+			ac = get(id);
+			if (ac != null) {
+				return ac;
+			}
+			ac = factory.apply(id);
+			AtomicReferenceArray<Aircraft> t = table;
+			version.incrementAndGet();
+			try {
+				if (id >= t.length()) {
+					t = grow(t, id);
+					table = t;
+				}
+				t.set(id, ac);
+				size++;
+			} finally {
+				version.incrementAndGet();
+			}
+			return ac;
+		}
+	}
+
+	/**
+	 * @return a copy of the table large enough for the id
+	 */
+	private static AtomicReferenceArray<Aircraft> grow(
+			AtomicReferenceArray<Aircraft> t, int id) {
+		// id <= MAX_ID : pas de debordement
+		int length = Math.min(Integer.highestOneBit(id) << 1, MAX_ID + 1);
+		AtomicReferenceArray<Aircraft> res = new AtomicReferenceArray<Aircraft>(
+				length);
+		for (int i = 0; i < t.length(); i++) {
+			res.set(i, t.get(i));
+		}
+		logger.fine("aircraft registry grown to " + length + " ids");
+		return res;
+	}
+
+	/**
+	 * @param id
+	 * @return the aircraft removed, null if it was unknown
+	 */
+	public Aircraft remove(int id) {
+		return remove(id, null);
+	}
+
+	/**
+	 * Removes an aircraft and releases what was built for it. The release is
+	 * called under the lock, as the factory of addIfAbsent : an aircraft of
+	 * the same id added meanwhile can't have its bindings released
+	 *
+	 * @param id
+	 * @param release
+	 *            called with the aircraft removed, null if none
+	 * @return the aircraft removed, null if it was unknown
+	 */
+	public Aircraft remove(int id, Consumer<Aircraft> release) {
+		synchronized (lock) {
+			AtomicReferenceArray<Aircraft> t = table;
+			if (id < 0 || id >= t.length() || t.get(id) == null) {
+				return null;
+			}
+			Aircraft ac;
+			version.incrementAndGet();
+			try {
+				size--;
+				ac = t.getAndSet(id, null);
+			} finally {
+				version.incrementAndGet();
+			}
+			if (release != null) {
+				release.accept(ac);
+			}
+			return ac;
+		}
+	}
+
+	/**
+	 * @return the number of aircrafts
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * The aircrafts at a given time : the table is read again if an aircraft
+	 * was added or removed while reading it, and under the lock if it keeps
+	 * changing
+	 *
+	 * @return the aircrafts, by increasing id
+	 */
+	public Aircraft[] snapshot() {
+		for (int attempt = 0; attempt < 4; attempt++) {
+			long v = version.get();
+			if ((v & 1) == 0) {
+				Aircraft[] res = scan();
+				if (version.get() == v) {
+					return res;
+				}
+			}
+		}
+		synchronized (lock) {
+			return scan();
+		}
+	}
+
+	private Aircraft[] scan() {
+		AtomicReferenceArray<Aircraft> t = table;
+		List<Aircraft> res = new ArrayList<Aircraft>(size);
+		for (int i = 0; i < t.length(); i++) {
+			Aircraft ac = t.get(i);
+			if (ac != null) {
+				res.add(ac);
+			}
+		}
+		return res.toArray(new Aircraft[res.size()]);
+	}
+}
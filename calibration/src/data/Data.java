@@ -22,16 +22,48 @@ public class Data {
 	 */
 	private Filter filtre;
 
+	/**
+	 * the raw samples received, read by the filter and the log
+	 */
+	private SampleRing ring;
+
 	/**
 	 * Constructor for data
 	 * 
 	 * @param filt
 	 *            current filtre
-	 * @param calibration
-	 *            current typecalibration
 	 */
 	public Data(Filter filt) {
+		this(filt, SampleRing.DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Constructor for data
+	 * 
+	 * @param filt
+	 *            current filtre
+	 * @param capacity
+	 *            number of raw samples kept
+	 */
+	public Data(Filter filt, int capacity) {
 		this.filtre = filt;
+		this.ring = new SampleRing(capacity);
+	}
+
+	/**
+	 * method used to store vectors, without any allocation
+	 * 
+	 * @param xRaw
+	 * @param yRaw
+	 * @param zRaw
+	 * @param tNanos
+	 *            time of reception of the sample
+	 * @return the sequence number of the sample in the ring
+	 */
+	public long store(int xRaw, int yRaw, int zRaw, long tNanos) {
+		long seq = ring.put(xRaw, yRaw, zRaw, tNanos);
+		filtre.add(ring, seq);
+		return seq;
 	}
 
 	/**
@@ -42,8 +74,14 @@ public class Data {
 	 * @param zRaw
 	 */
 	public void store(double xRaw, double yRaw, double zRaw) {
-		Vector vec = new Vector(xRaw, yRaw, zRaw);
-		filtre.add(vec);
+		store((int) xRaw, (int) yRaw, (int) zRaw, System.nanoTime());
+	}
+
+	/**
+	 * @return the ring of the raw samples
+	 */
+	public SampleRing getRing() {
+		return ring;
 	}
 
 }
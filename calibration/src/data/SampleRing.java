@@ -0,0 +1,91 @@
+/**
+ * the data package used to store the data messages gotten from the IMU client
+ */
+package data;
+
+/**
+ * Preallocated ring of raw samples, stored as primitive columns so that
+ * storing a sample does not allocate anything. Written by a single thread
+ * (the one receiving the messages), the samples are identified by their
+ * sequence number and stay readable until the ring wraps over them.
+ */
+public class SampleRing {
+
+	/** Default number of samples kept */
+	public static final int DEFAULT_CAPACITY = 4096;
+
+	private final int[] x;
+	private final int[] y;
+	private final int[] z;
+	/** Time of reception of the samples, in nanoseconds */
+	private final long[] t;
+	/** capacity - 1, the capacity being a power of 2 */
+	private final int mask;
+	/** Number of samples written since the creation of the ring */
+	private volatile long written = 0;
+
+	/**
+	 * @param capacity
+	 *            minimum number of samples kept, rounded up to a power of 2
+	 */
+	public SampleRing(int capacity) {
+		int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+		x = new int[size];
+		y = new int[size];
+		z = new int[size];
+		t = new long[size];
+		mask = size - 1;
+	}
+
+	/**
+	 * Stores a sample, overwriting the oldest one if the ring is full
+	 *
+	 * @param xRaw
+	 * @param yRaw
+	 * @param zRaw
+	 * @param tNanos
+	 *            time of reception
+	 * @return the sequence number of the sample
+	 */
+	public long put(int xRaw, int yRaw, int zRaw, long tNanos) {
+		long seq = written;
+		int i = (int) seq & mask;
+		x[i] = xRaw;
+		y[i] = yRaw;
+		z[i] = zRaw;
+		t[i] = tNanos;
+		written = seq + 1;
+		return seq;
+	}
+
+	public int getX(long seq) {
+		return x[(int) seq & mask];
+	}
+
+	public int getY(long seq) {
+		return y[(int) seq & mask];
+	}
+
+	public int getZ(long seq) {
+		return z[(int) seq & mask];
+	}
+
+	public long getT(long seq) {
+		return t[(int) seq & mask];
+	}
+
+	/**
+	 * @return the number of samples written since the creation of the ring,
+	 *         which is also the sequence number of the next sample
+	 */
+	public long getWritten() {
+		return written;
+	}
+
+	/**
+	 * @return the number of samples kept
+	 */
+	public int capacity() {
+		return mask + 1;
+	}
+}
@@ -0,0 +1,339 @@
+/**
+ * the data package used to store the data messages gotten from the IMU client
+ */
+package data;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * Decodes the Paparazzi telemetry lines without regexp nor split : the line is
+ * scanned once, token by token, and the numbers are parsed in place. The
+ * tokens are separated by spaces or commas, so the same decoder reads a raw
+ * message ("14 IMU_ACCEL_RAW 46 -195 -2038"), a line of a .data log
+ * ("3.045 14 IMU_ACCEL_RAW 46 -195 -2038") or the values of DL_VALUES
+ * ("1,0,2.5").
+ *
+ * A decoder is reused from one line to the next and is not thread safe.
+ */
+public class TelemetryDecoder {
+
+	/**
+	 * Powers of ten exactly represented by a double
+	 */
+	private static final double[] POW10 = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5,
+			1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16,
+			1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+	/**
+	 * Largest integer exactly represented by a double
+	 */
+	private static final long MAX_EXACT = 1L << 53;
+
+	/** the line decoded */
+	private CharSequence line;
+	/** position of the next character to read */
+	private int pos;
+	/** end of the line */
+	private int end;
+	/** view of the bytes when decoding a buffer */
+	private final AsciiSequence ascii = new AsciiSequence();
+
+	/**
+	 * Starts the decoding of a line
+	 *
+	 * @param s
+	 * @return this decoder
+	 */
+	public TelemetryDecoder reset(CharSequence s) {
+		return reset(s, 0, s.length());
+	}
+
+	/**
+	 * Starts the decoding of a part of a line
+	 *
+	 * @param s
+	 * @param from
+	 *            index of the first character
+	 * @param to
+	 *            index after the last character
+	 * @return this decoder
+	 */
+	public TelemetryDecoder reset(CharSequence s, int from, int to) {
+		this.line = s;
+		this.pos = from;
+		this.end = to;
+		return this;
+	}
+
+	/**
+	 * Starts the decoding of a line stored as ASCII bytes, without copying
+	 * them
+	 *
+	 * @param buffer
+	 * @param from
+	 *            index of the first byte
+	 * @param to
+	 *            index after the last byte
+	 * @return this decoder
+	 */
+	public TelemetryDecoder reset(ByteBuffer buffer, int from, int to) {
+		ascii.wrap(buffer);
+		return reset(ascii, from, to);
+	}
+
+	private static boolean isSeparator(char c) {
+		return c == ' ' || c == ',' || c == '\t' || c == '\r' || c == '\n';
+	}
+
+	private void skipSeparators() {
+		while (pos < end && isSeparator(line.charAt(pos))) {
+			pos++;
+		}
+	}
+
+	/**
+	 * @return true if there is a token left on the line
+	 */
+	public boolean hasNext() {
+		skipSeparators();
+		return pos < end;
+	}
+
+	/**
+	 * Skips the next token
+	 *
+	 * @return this decoder
+	 */
+	public TelemetryDecoder skip() {
+		skipSeparators();
+		while (pos < end && !isSeparator(line.charAt(pos))) {
+			pos++;
+		}
+		return this;
+	}
+
+	/**
+	 * Skips the next tokens
+	 *
+	 * @param n
+	 *            number of tokens to skip
+	 * @return this decoder
+	 */
+	public TelemetryDecoder skip(int n) {
+		for (int i = 0; i < n; i++) {
+			skip();
+		}
+		return this;
+	}
+
+	/**
+	 * Reads the next token and compares it
+	 *
+	 * @param token
+	 * @return true if the next token is equal to the one given
+	 */
+	public boolean nextEquals(CharSequence token) {
+		skipSeparators();
+		int start = pos;
+		skip();
+		return regionEquals(start, pos - start, token);
+	}
+
+	private boolean regionEquals(int start, int length, CharSequence token) {
+		if (length != token.length()) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			if (line.charAt(start + i) != token.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Reads the next token as a signed integer
+	 *
+	 * @return the value of the token
+	 * @throws NumberFormatException
+	 *             if the token is missing or is not an int
+	 */
+	public int nextInt() {
+		int start = pos;
+		long value = nextLong();
+		if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+			throw error(start);
+		}
+		return (int) value;
+	}
+
+	/**
+	 * Reads the next token as a signed long
+	 *
+	 * @return the value of the token
+	 * @throws NumberFormatException
+	 *             if the token is missing or is not a long
+	 */
+	public long nextLong() {
+		skipSeparators();
+		int start = pos;
+		boolean negative = false;
+		if (pos < end && (line.charAt(pos) == '-' || line.charAt(pos) == '+')) {
+			negative = line.charAt(pos) == '-';
+			pos++;
+		}
+		int digits = pos;
+		long value = 0;
+		while (pos < end) {
+			char c = line.charAt(pos);
+			if (c < '0' || c > '9') {
+				break;
+			}
+			// accumulé en négatif pour accepter Long.MIN_VALUE
+			long next = value * 10 - (c - '0');
+			if (value < Long.MIN_VALUE / 10 || next > value) {
+				throw error(start);
+			}
+			value = next;
+			pos++;
+		}
+		if (pos == digits || (pos < end && !isSeparator(line.charAt(pos)))) {
+			throw error(start);
+		}
+		if (!negative) {
+			if (value == Long.MIN_VALUE) {
+				throw error(start);
+			}
+			value = -value;
+		}
+		return value;
+	}
+
+	/**
+	 * Reads the next token as a decimal number ("-12", "968.", "2.5e-3"...)
+	 *
+	 * @return the value of the token, rounded as Double.parseDouble would
+	 * @throws NumberFormatException
+	 *             if the token is missing or is not a number
+	 */
+	public double nextDouble() {
+		skipSeparators();
+		int start = pos;
+		boolean negative = false;
+		if (pos < end && (line.charAt(pos) == '-' || line.charAt(pos) == '+')) {
+			negative = line.charAt(pos) == '-';
+			pos++;
+		}
+		long mantissa = 0;
+		int nbDigits = 0;
+		int exponent = 0;
+		boolean exact = true;
+		boolean point = false;
+		boolean any = false;
+		while (pos < end) {
+			char c = line.charAt(pos);
+			if (c >= '0' && c <= '9') {
+				any = true;
+				if (nbDigits < 18) {
+					mantissa = mantissa * 10 + (c - '0');
+					if (mantissa != 0) {
+						nbDigits++;
+					}
+					if (point) {
+						exponent--;
+					}
+				} else {
+					// chiffres non représentables : calcul exact délégué
+					exact = false;
+				}
+			} else if (c == '.' && !point) {
+				point = true;
+			} else {
+				break;
+			}
+			pos++;
+		}
+		if (any && pos < end
+				&& (line.charAt(pos) == 'e' || line.charAt(pos) == 'E')) {
+			pos++;
+			boolean negativeExp = false;
+			if (pos < end
+					&& (line.charAt(pos) == '-' || line.charAt(pos) == '+')) {
+				negativeExp = line.charAt(pos) == '-';
+				pos++;
+			}
+			int exp = 0;
+			int expDigits = pos;
+			while (pos < end && line.charAt(pos) >= '0'
+					&& line.charAt(pos) <= '9') {
+				exp = Math.min(exp * 10 + (line.charAt(pos) - '0'), 100000);
+				pos++;
+			}
+			if (pos == expDigits) {
+				any = false;
+			}
+			exponent += negativeExp ? -exp : exp;
+		}
+		if (!any || (pos < end && !isSeparator(line.charAt(pos)))) {
+			// NaN, Infinity, nombres hexadécimaux...
+			skip();
+			return slowParse(start);
+		}
+		if (!exact || mantissa > MAX_EXACT || exponent < -22 || exponent > 22) {
+			return slowParse(start);
+		}
+		double value = exponent < 0 ? mantissa / POW10[-exponent] : mantissa
+				* POW10[exponent];
+		return negative ? -value : value;
+	}
+
+	/**
+	 * Parses the token read from start with Double.parseDouble, for the
+	 * numbers the fast path can not round exactly
+	 */
+	private double slowParse(int start) {
+		return Double.parseDouble(line.subSequence(start, pos).toString());
+	}
+
+	private NumberFormatException error(int start) {
+		skipSeparators();
+		int from = start;
+		pos = start;
+		skip();
+		return new NumberFormatException("invalid number \""
+				+ line.subSequence(from, pos) + "\"");
+	}
+
+	/**
+	 * Bytes of a buffer read as ASCII characters
+	 */
+	private static class AsciiSequence implements CharSequence {
+
+		private ByteBuffer buffer;
+
+		void wrap(ByteBuffer b) {
+			this.buffer = b;
+		}
+
+		public char charAt(int index) {
+			return (char) (buffer.get(index) & 0xff);
+		}
+
+		public int length() {
+			return buffer.limit();
+		}
+
+		public CharSequence subSequence(int start, int end) {
+			byte[] bytes = new byte[end - start];
+			for (int i = start; i < end; i++) {
+				bytes[i - start] = buffer.get(i);
+			}
+			return new String(bytes, Charset.forName("US-ASCII"));
+		}
+
+		@Override
+		public String toString() {
+			return subSequence(0, length()).toString();
+		}
+	}
+}
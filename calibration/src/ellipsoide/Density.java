@@ -64,6 +64,14 @@ public class Density {
 		colorParameter = 0;
 	}
 
+	/**
+	 * @return true if the zone has enough points, its color being the
+	 *         brightest
+	 */
+	public boolean isComplete() {
+		return colorParameter == nbMaxColor;
+	}
+
 	/**
 	 * return the color of the zone
 	 * 
@@ -3,9 +3,9 @@
  */
 package ellipsoide;
 
+import java.awt.geom.Point2D;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.ListIterator;
 import java.util.logging.Logger;
 
 import data.IVector;
@@ -46,6 +46,19 @@ public class Sphere {
 	 * List of the zones
 	 */
 	private List<Zone> zoneList;
+	/**
+	 * The zones indexed by their bin : the regular zones longitude by
+	 * longitude, then the north and south polar caps
+	 */
+	private Zone[] zoneIndex;
+	/**
+	 * Number of longitude bins
+	 */
+	private int nbLongitudes;
+	/**
+	 * Number of latitude bins, polar caps included
+	 */
+	private int nbLatitudes;
 
 	/**
 	 * The surface of the sphere used to calculate the density accross the
@@ -59,9 +72,9 @@ public class Sphere {
 	 */
 	private int nbPointsMax;
 	/**
-	 * Current zone
+	 * Index of the current zone
 	 */
-	private Zone zoneCourante;
+	private int zoneCourante;
 
 	/**
 	 * Create the Sphere and define the number of zones
@@ -82,26 +95,41 @@ public class Sphere {
 		surfaceSphere = 0;
 		zoneList = new ArrayList<Zone>();
 		createAllZones();
-		ListIterator<Zone> j = zoneList.listIterator();
-		zoneCourante = j.next();
+		zoneCourante = 0;
 	}
 
-	public void clean() {
+	public synchronized void clean() {
 		center = new Vector(0, 0, 0);
 		radius = 0;
 		surfaceSphere = 0;
 		zoneList = new ArrayList<Zone>();
 		createAllZones();
-		ListIterator<Zone> j = zoneList.listIterator();
-		zoneCourante = j.next();
+		zoneCourante = 0;
 	}
 
 	/**
 	 * Returns the zone in which the user is plotting
 	 * 
 	 */
-	public Zone getCurrentZone() {
-		return zoneCourante;
+	public synchronized Zone getCurrentZone() {
+		return zoneIndex[zoneCourante];
+	}
+
+	/**
+	 * Copies the state of the sphere to display it outside the thread
+	 * updating it
+	 * 
+	 * @return the contours and colors of the zones, and the current zone
+	 */
+	public synchronized SphereSnapshot snapshot() {
+		List<List<Point2D>> contours = new ArrayList<List<Point2D>>(
+				zoneIndex.length);
+		int[] colors = new int[zoneIndex.length];
+		for (int i = 0; i < zoneIndex.length; i++) {
+			contours.add(zoneIndex[i].getListContour());
+			colors[i] = zoneIndex[i].getDensity().getColor();
+		}
+		return new SphereSnapshot(contours, colors, zoneCourante, getRayon());
 	}
 
 	/**
@@ -116,8 +144,28 @@ public class Sphere {
 	 */
 	public void update(final double p_radius, final IVector<Double> newcenter,
 			final IVector<Double> vectorToAdd) {
+		update(p_radius, newcenter, vectorToAdd.getX(), vectorToAdd.getY(),
+				vectorToAdd.getZ(), vectorToAdd.isCorrect());
+	}
+
+	/**
+	 * method called each time a new sample is added
+	 * 
+	 * @param p_radius
+	 *            radius of the sphere
+	 * @param newcenter
+	 *            center of the sphere
+	 * @param x
+	 * @param y
+	 * @param z
+	 * @param correct
+	 *            false if the sample is noisy
+	 */
+	public synchronized void update(final double p_radius,
+			final IVector<Double> newcenter, final double x, final double y,
+			final double z, final boolean correct) {
 		boolean valuesHaveChanged = false;
-		if (vectorToAdd.isCorrect()) {
+		if (correct) {
 			// Si le centre ou le rayon ont suffisamment changé, on met à jour
 			// les informations sur la sphere (rayon, centre, surface...)
 			if ((Math.abs(center.getX() - newcenter.getX()) > ERROR_TOLERATED)
@@ -130,7 +178,7 @@ public class Sphere {
 				valuesHaveChanged = true;
 			}
 		}
-		updateAllZones(vectorToAdd, valuesHaveChanged);
+		updateAllZones(x, y, z, correct, valuesHaveChanged);
 	}
 
 	/**
@@ -163,6 +211,8 @@ public class Sphere {
 						long_angle_begin, long_angle_end, nbPointsMax));
 			}
 		}
+		nbLongitudes = (int) Math.ceil(longitude);
+		nbLatitudes = zoneList.size() / nbLongitudes + 2;
 
 		lat_angle_low = (Math.PI / latitude) * ((double) (latitude - 1))
 				- Math.PI / 2.0;
@@ -172,31 +222,79 @@ public class Sphere {
 				nbPointsMax));
 		zoneList.add(new Zone(-Math.PI / 2.0, lat_angle_high, -Math.PI,
 				Math.PI, nbPointsMax));
+		zoneIndex = zoneList.toArray(new Zone[zoneList.size()]);
 	}
 
 	/**
-	 * method that update all the zones with all vectors
+	 * Finds the zone of a vector from its angles relative to the center,
+	 * without testing each zone
+	 * 
+	 * @param dx
+	 *            x coordinate relative to the center
+	 * @param dy
+	 *            y coordinate relative to the center
+	 * @param dz
+	 *            z coordinate relative to the center
+	 * @return the index of the zone containing the vector, -1 on the axis of
+	 *         the sphere
 	 */
-	private void updateAllZones(IVector<Double> vectorToAdd,
-			boolean valuesHaveChanged) {
-		Zone ztemp;
-		ListIterator<Zone> zoneListIt = zoneList.listIterator();
-
-		while (zoneListIt.hasNext()) {
-			ztemp = zoneListIt.next();
+	private int findZone(double dx, double dy, double dz) {
+		double distance = Math.sqrt(dx * dx + dy * dy);
+		if (distance == 0) {
+			return -1;
+		}
+		// bande de latitude : 0 pour la calotte sud, nbLatitudes - 1 pour
+		// la calotte nord
+		int lat = (int) ((Math.atan(dz / distance) + Math.PI / 2.0)
+				/ (Math.PI / latitude));
+		if (lat <= 0) {
+			return zoneIndex.length - 1;
+		}
+		if (lat >= nbLatitudes - 1) {
+			return zoneIndex.length - 2;
+		}
+		int lon = (int) ((Math.atan2(dy, dx) + Math.PI)
+				/ ((2.0 * Math.PI) / longitude));
+		if (lon >= nbLongitudes) {
+			lon = nbLongitudes - 1;
+		}
+		return lon * (nbLatitudes - 2) + lat - 1;
+	}
 
-			if (valuesHaveChanged) {
+	/**
+	 * method that update the zone of the vector, and all the zones when the
+	 * sphere has changed
+	 */
+	private void updateAllZones(double x, double y, double z,
+			boolean correct, boolean valuesHaveChanged) {
+		if (valuesHaveChanged) {
+			for (Zone ztemp : zoneIndex) {
 				ztemp.majListContour(radius);
 				ztemp.calculateSurface(radius, surfaceSphere);
 			}
+		}
 
-			boolean vectorIsInZone = ztemp.containsVector(vectorToAdd, center);
+		if (correct) {
+			int zone = findZone(x - center.getX(), y - center.getY(),
+					z - center.getZ());
+			if (zone >= 0) {
+				zoneIndex[zone].updateDensity();
+				zoneCourante = zone;
+			}
+		}
+	}
 
-			if (vectorIsInZone && vectorToAdd.isCorrect()) {
-				ztemp.updateDensity();
-				zoneCourante = ztemp;
+	/**
+	 * @return the fraction of the zones whose density is complete, in [0;1]
+	 */
+	public synchronized double getCoverage() {
+		int covered = 0;
+		for (Zone zone : zoneIndex) {
+			if (zone.getDensity().isComplete()) {
+				covered++;
 			}
 		}
+		return (double) covered / zoneIndex.length;
 	}
 
 	/**
@@ -204,7 +302,7 @@ public class Sphere {
 	 * 
 	 * @return radius of the sphere
 	 */
-	public int getRayon() {
+	public synchronized int getRayon() {
 		return (int) radius;
 	}
 
@@ -0,0 +1,89 @@
+/**
+ * Classes used to display view of the current calibration
+ */
+package ellipsoide;
+
+import java.awt.geom.Point2D;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable copy of the state of the sphere, handed from the thread receiving
+ * the samples to the panel displaying it
+ */
+public class SphereSnapshot {
+
+	/**
+	 * Contours of the zones, in the order of the sphere
+	 */
+	private final List<List<Point2D>> contours;
+	/**
+	 * Color parameter of the density of each zone, in [0;255]
+	 */
+	private final int[] colors;
+	/**
+	 * Index of the zone in which the user is plotting
+	 */
+	private final int currentZone;
+	/**
+	 * Radius of the sphere
+	 */
+	private final int radius;
+
+	/**
+	 * @param contours
+	 *            contours of the zones, which must not be modified afterwards
+	 * @param colors
+	 *            color parameter of each zone
+	 * @param currentZone
+	 *            index of the current zone
+	 * @param radius
+	 *            radius of the sphere
+	 */
+	public SphereSnapshot(List<List<Point2D>> contours, int[] colors,
+			int currentZone, int radius) {
+		this.contours = Collections.unmodifiableList(contours);
+		this.colors = colors.clone();
+		this.currentZone = currentZone;
+		this.radius = radius;
+	}
+
+	/**
+	 * @return the number of zones
+	 */
+	public int getNbZones() {
+		return colors.length;
+	}
+
+	/**
+	 * @param zone
+	 *            index of the zone
+	 * @return the points defining the boundaries of the zone
+	 */
+	public List<Point2D> getContour(int zone) {
+		return contours.get(zone);
+	}
+
+	/**
+	 * @param zone
+	 *            index of the zone
+	 * @return the matching color of the density of the zone
+	 */
+	public int getColor(int zone) {
+		return colors[zone];
+	}
+
+	/**
+	 * @return the index of the zone in which the user is plotting
+	 */
+	public int getCurrentZone() {
+		return currentZone;
+	}
+
+	/**
+	 * @return the radius of the sphere
+	 */
+	public int getRayon() {
+		return radius;
+	}
+}
@@ -5,6 +5,7 @@ package ellipsoide;
 
 import java.awt.geom.Point2D;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.logging.Logger;
@@ -53,7 +54,9 @@ public class Zone {
 	 */
 	private static int NB_POINTS_BY_LINE = 4;
 	/**
-	 * List of the points defining the boundaries of the zone
+	 * List of the points defining the boundaries of the zone, replaced (never
+	 * modified) when the sphere changes so that it can be displayed by
+	 * another thread
 	 */
 	private List<Point2D> listContour;
 	/**
@@ -101,7 +104,7 @@ public class Zone {
 		this.latAngleHigh = lat_angle_high;
 		this.longAngleBegin = long_angle_begin;
 		this.longAngleEnd = long_angle_end;
-		listContour = new ArrayList<Point2D>();
+		listContour = Collections.emptyList();
 		density = new Density(nbPointsMax);
 		surface = 1;
 		surfaceSphere = 1;
@@ -211,7 +214,7 @@ public class Zone {
 	 *            radius of the sphere needed to represent the 2D points
 	 */
 	public void majListContour(double radius) {
-		listContour.clear();
+		List<Point2D> contour = new ArrayList<Point2D>(4 * NB_POINTS_BY_LINE);
 
 		double lat;
 		double lon;
@@ -227,32 +230,34 @@ public class Zone {
 		for (int i = 0; i < NB_POINTS_BY_LINE; i++) {
 			lat = latAngleLow;
 			lon = longAngleBegin + step_longitude * i;
-			addPoint(lat, lon, cstx, csty);
+			addPoint(contour, lat, lon, cstx, csty);
 		}
 		// right side of the zone
 		for (int i = 0; i < NB_POINTS_BY_LINE; i++) {
 			lat = latAngleLow + i * step_latitude;
 			lon = longAngleEnd;
-			addPoint(lat, lon, cstx, csty);
+			addPoint(contour, lat, lon, cstx, csty);
 		}
 		// top of the zone
 		for (int i = 0; i < NB_POINTS_BY_LINE; i++) {
 			lat = latAngleHigh;
 			// minus to get along the zone in the right order
 			lon = longAngleEnd - step_longitude * i;
-			addPoint(lat, lon, cstx, csty);
+			addPoint(contour, lat, lon, cstx, csty);
 		}
 		// left side of the zone
 		for (int i = 0; i < NB_POINTS_BY_LINE; i++) {
 			// minus to get along the zone in the right order
 			lat = latAngleHigh - i * step_latitude;
 			lon = longAngleBegin;
-			addPoint(lat, lon, cstx, csty);
+			addPoint(contour, lat, lon, cstx, csty);
 		}
+		listContour = Collections.unmodifiableList(contour);
 	}
 
-	private void addPoint(double lat, double lon, double cstx, double csty) {
-		listContour.add(new Point2D.Double((cstx * lon * Math.cos(lat)),
+	private void addPoint(List<Point2D> contour, double lat, double lon,
+			double cstx, double csty) {
+		contour.add(new Point2D.Double((cstx * lon * Math.cos(lat)),
 				(csty * Math.sin(lat))));
 	}
 
@@ -0,0 +1,210 @@
+/**Package grouping all classes used to filter data*/
+package filtre;
+
+import java.util.logging.Logger;
+
+import org.apache.commons.math3.linear.Array2DRowRealMatrix;
+import org.apache.commons.math3.linear.ArrayRealVector;
+import org.apache.commons.math3.linear.DecompositionSolver;
+import org.apache.commons.math3.linear.LUDecomposition;
+import org.apache.commons.math3.linear.RealVector;
+
+/**
+ * Incremental least squares fit of the quadric A x² + B y² + C z² (+ 2D xy +
+ * 2E xz + 2F yz) + 2G x + 2H y + 2I z = 1 on the measurements.
+ *
+ * Only the moments of the normal equations are stored, so adding a sample
+ * costs the same whatever the number of samples already added, and the fit is
+ * solved on demand from a 6x6 (axis aligned) or 9x9 (with cross axis terms)
+ * system.
+ */
+public class EllipsoidEstimator {
+
+	private static Logger logger = Logger.getLogger(EllipsoidEstimator.class
+			.getName());
+
+	/**
+	 * Number of parameters of the quadric
+	 */
+	private final int nbParameters;
+	/**
+	 * true if the cross axis terms are fitted
+	 */
+	private final boolean crossAxis;
+	/**
+	 * Norm expected for a calibrated measurement
+	 */
+	private final double sensorRef;
+	/**
+	 * Upper triangle of the sum of phi.phi^T, phi being the terms of the
+	 * quadric for a sample
+	 */
+	private final double[][] ata;
+	/**
+	 * Sum of phi
+	 */
+	private final double[] atb;
+	/**
+	 * Terms of the current sample
+	 */
+	private final double[] phi;
+	/**
+	 * Number of samples added
+	 */
+	private long nbSamples = 0;
+	/**
+	 * The measurements are divided by this factor (norm of the first sample)
+	 * to keep the moments well conditioned
+	 */
+	private double norm = 0;
+
+	/**
+	 * @param crossAxis
+	 *            true to fit the cross axis terms (9 parameters)
+	 * @param sensorRef
+	 *            the norm expected for a calibrated measurement
+	 */
+	public EllipsoidEstimator(boolean crossAxis, double sensorRef) {
+		this.crossAxis = crossAxis;
+		this.sensorRef = sensorRef;
+		this.nbParameters = crossAxis ? 9 : 6;
+		ata = new double[nbParameters][nbParameters];
+		atb = new double[nbParameters];
+		phi = new double[nbParameters];
+	}
+
+	/**
+	 * Adds a sample to the moments
+	 *
+	 * @param xRaw
+	 * @param yRaw
+	 * @param zRaw
+	 */
+	public synchronized void add(double xRaw, double yRaw, double zRaw) {
+		if (norm == 0) {
+			norm = Math.sqrt(xRaw * xRaw + yRaw * yRaw + zRaw * zRaw);
+			if (norm == 0) {
+				return;
+			}
+		}
+		double x = xRaw / norm;
+		double y = yRaw / norm;
+		double z = zRaw / norm;
+		phi[0] = x * x;
+		phi[1] = y * y;
+		phi[2] = z * z;
+		if (crossAxis) {
+			phi[3] = 2 * x * y;
+			phi[4] = 2 * x * z;
+			phi[5] = 2 * y * z;
+		}
+		phi[nbParameters - 3] = 2 * x;
+		phi[nbParameters - 2] = 2 * y;
+		phi[nbParameters - 1] = 2 * z;
+		for (int i = 0; i < nbParameters; i++) {
+			for (int j = i; j < nbParameters; j++) {
+				ata[i][j] += phi[i] * phi[j];
+			}
+			atb[i] += phi[i];
+		}
+		nbSamples++;
+	}
+
+	/**
+	 * Forget all the samples
+	 */
+	public synchronized void reset() {
+		for (int i = 0; i < nbParameters; i++) {
+			for (int j = 0; j < nbParameters; j++) {
+				ata[i][j] = 0;
+			}
+			atb[i] = 0;
+		}
+		nbSamples = 0;
+		norm = 0;
+	}
+
+	/**
+	 * @return the number of samples added
+	 */
+	public synchronized long getNbSamples() {
+		return nbSamples;
+	}
+
+	/**
+	 * Solves the normal equations with the samples added so far
+	 *
+	 * @return the fit, null if there is not enough samples or if they do not
+	 *         describe an ellipsoid
+	 */
+	public synchronized EllipsoidFit solve() {
+		if (nbSamples < nbParameters) {
+			return null;
+		}
+		double[][] full = new double[nbParameters][nbParameters];
+		for (int i = 0; i < nbParameters; i++) {
+			for (int j = i; j < nbParameters; j++) {
+				full[i][j] = ata[i][j];
+				full[j][i] = ata[i][j];
+			}
+		}
+		DecompositionSolver solver = new LUDecomposition(
+				new Array2DRowRealMatrix(full, false)).getSolver();
+		if (!solver.isNonSingular()) {
+			return null;
+		}
+		RealVector b = new ArrayRealVector(atb, false);
+		RealVector v = solver.solve(b);
+
+		// résidu algébrique : (v.AtA.v - 2 v.Atb + n) / n
+		double sq = v.dotProduct(new Array2DRowRealMatrix(full, false)
+				.operate(v)) - 2 * v.dotProduct(b) + nbSamples;
+		double residual = Math.sqrt(Math.max(0, sq) / nbSamples);
+
+		// matrice de forme Q et terme lineaire g
+		double[][] q = new double[3][3];
+		q[0][0] = v.getEntry(0);
+		q[1][1] = v.getEntry(1);
+		q[2][2] = v.getEntry(2);
+		if (crossAxis) {
+			q[0][1] = q[1][0] = v.getEntry(3);
+			q[0][2] = q[2][0] = v.getEntry(4);
+			q[1][2] = q[2][1] = v.getEntry(5);
+		}
+		double[] g = { v.getEntry(nbParameters - 3),
+				v.getEntry(nbParameters - 2), v.getEntry(nbParameters - 1) };
+
+		DecompositionSolver qSolver = new LUDecomposition(
+				new Array2DRowRealMatrix(q, false)).getSolver();
+		if (!qSolver.isNonSingular()) {
+			return null;
+		}
+		// centre : Q c = -g
+		double[] center = qSolver.solve(new ArrayRealVector(g).mapMultiply(-1))
+				.toArray();
+		double k = 1;
+		for (int i = 0; i < 3; i++) {
+			for (int j = 0; j < 3; j++) {
+				k += center[i] * q[i][j] * center[j];
+			}
+		}
+		if (k <= 0 || q[0][0] <= 0 || q[1][1] <= 0 || q[2][2] <= 0) {
+			return null;
+		}
+
+		double[] offset = new double[3];
+		double[] scale = new double[3];
+		for (int i = 0; i < 3; i++) {
+			offset[i] = center[i] * norm;
+			scale[i] = sensorRef * Math.sqrt(q[i][i] / k) / norm;
+		}
+		double[] cross = null;
+		if (crossAxis) {
+			cross = new double[] {
+					q[0][1] / Math.sqrt(q[0][0] * q[1][1]),
+					q[0][2] / Math.sqrt(q[0][0] * q[2][2]),
+					q[1][2] / Math.sqrt(q[1][1] * q[2][2]) };
+		}
+		return new EllipsoidFit(offset, scale, cross, residual, nbSamples);
+	}
+}
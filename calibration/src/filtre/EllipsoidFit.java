@@ -0,0 +1,73 @@
+/**Package grouping all classes used to filter data*/
+package filtre;
+
+import java.util.Locale;
+
+/**
+ * Result of the fit of an ellipsoid on the measurements : neutral and
+ * sensitivity of each axis, as in the airframe file
+ */
+public class EllipsoidFit {
+
+	/** Neutral of each axis */
+	private final double[] offset;
+	/** Sensitivity of each axis */
+	private final double[] scale;
+	/** Normalized cross axis terms xy, xz, yz, null if not fitted */
+	private final double[] crossAxis;
+	/** Root mean square of the algebraic residual */
+	private final double residual;
+	/** Number of samples used by the fit */
+	private final long nbSamples;
+
+	public EllipsoidFit(double[] offset, double[] scale, double[] crossAxis,
+			double residual, long nbSamples) {
+		this.offset = offset.clone();
+		this.scale = scale.clone();
+		this.crossAxis = crossAxis == null ? null : crossAxis.clone();
+		this.residual = residual;
+		this.nbSamples = nbSamples;
+	}
+
+	public double[] getOffset() {
+		return offset.clone();
+	}
+
+	public double[] getScale() {
+		return scale.clone();
+	}
+
+	/**
+	 * @return the cross axis terms xy, xz, yz, null if not fitted
+	 */
+	public double[] getCrossAxis() {
+		return crossAxis == null ? null : crossAxis.clone();
+	}
+
+	public double getResidual() {
+		return residual;
+	}
+
+	public long getNbSamples() {
+		return nbSamples;
+	}
+
+	/**
+	 * @param res
+	 *            resolution of the sensitivities in the airframe file
+	 * @return the text displayed during the calibration
+	 */
+	public String toString(int res) {
+		double f = Math.pow(2, res);
+		return String.format(Locale.US,
+				"neutres : %d %d %d  sens : %.3f %.3f %.3f  résidu : %.4f",
+				Math.round(offset[0]), Math.round(offset[1]),
+				Math.round(offset[2]), scale[0] * f, scale[1] * f, scale[2]
+						* f, residual);
+	}
+
+	@Override
+	public String toString() {
+		return toString(0);
+	}
+}
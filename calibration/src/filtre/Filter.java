@@ -3,8 +3,12 @@ package filtre;
 
 import java.util.logging.Logger;
 
+import common.TypeCalibration;
+
 import data.IVector;
+import data.SampleRing;
 import data.Vector;
+import ellipsoide.Sphere;
 
 /**
  * Mother class of all filter use to discriminates vector according to their
@@ -33,47 +37,198 @@ public class Filter {
 	 * The number of vector discarded used to reinitialize the progress bar
 	 */
 	protected int nbWrongVect = 0;
+	/**
+	 * The sensor filtered
+	 */
+	protected TypeCalibration type;
+	/**
+	 * Classifies the samples as calibrate.py does before solving
+	 */
+	private final NoiseDetector noise;
+	/**
+	 * Live fit of the ellipsoid on the correct vectors
+	 */
+	private EllipsoidEstimator estimator;
+	/**
+	 * The sphere showing the coverage of the samples, null if not tracked
+	 */
+	private Sphere sphere;
+	/**
+	 * Follows the samples, the view displaying the sphere, null if the filter
+	 * runs in background
+	 */
+	private volatile FilterListener listener;
 
 	/**
 	 * Creates a filter with fixed window size which filter the type of
 	 * calibration given in parameter
 	 * 
-	 * @param windowSize
 	 * @param t
+	 *            the sensor filtered
+	 * @param crossAxis
+	 *            true to estimate the cross axis terms of the ellipsoid
 	 */
-	public Filter() {
+	public Filter(TypeCalibration t, boolean crossAxis) {
+		this(t, crossAxis, null);
 	}
 
 	/**
-	 * add the vector building the correct window if not already built and
-	 * updates the window
+	 * Creates a filter updating the coverage of a sphere
+	 * 
+	 * @param t
+	 *            the sensor filtered
+	 * @param crossAxis
+	 *            true to estimate the cross axis terms of the ellipsoid
+	 * @param s
+	 *            the sphere updated with the samples, null if not tracked
+	 */
+	public Filter(TypeCalibration t, boolean crossAxis, Sphere s) {
+		this.type = t;
+		this.noise = new NoiseDetector(t);
+		this.estimator = new EllipsoidEstimator(crossAxis, t.getSensorRef());
+		this.sphere = s;
+	}
+
+	/**
+	 * add the vector to the noise window, the vector classified is then
+	 * added as correct or noisy
 	 * 
 	 * @param v
 	 */
 	public void add(final IVector<Double> v) {
-		if (v.isCorrect()) {
+		classify((int) v.getX(), (int) v.getY(), (int) v.getZ());
+	}
+
+	/**
+	 * add the sample of the ring given by its sequence number, without any
+	 * allocation
+	 * 
+	 * @param ring
+	 *            the raw samples
+	 * @param seq
+	 *            the sequence number of the sample to add
+	 */
+	public void add(SampleRing ring, long seq) {
+		classify(ring.getX(seq), ring.getY(seq), ring.getZ(seq));
+	}
+
+	/**
+	 * adds a sample to the noise window, and the sample classified by the
+	 * window to the sphere
+	 */
+	private void classify(int x, int y, int z) {
+		if (noise.add(x, y, z)) {
+			add(noise.getX(), noise.getY(), noise.getZ(), noise.isClean());
+		}
+	}
+
+	/**
+	 * updates the bounds, the center and the radius of the sphere with a
+	 * sample
+	 * 
+	 * @param x
+	 * @param y
+	 * @param z
+	 * @param correct
+	 *            false if the sample is noisy
+	 */
+	protected void add(int x, int y, int z, boolean correct) {
+		if (correct) {
 			nbCorrectVect++;
-			if (v.getX() > maxX) {
-				maxX = (int) v.getX();
-			} else if (v.getX() < minX) {
-				minX = (int) v.getX();
+			estimator.add(x, y, z);
+			boolean changed = false;
+			if (x > maxX) {
+				maxX = x;
+				changed = true;
+			} else if (x < minX) {
+				minX = x;
+				changed = true;
 			}
-			if (v.getY() > maxY) {
-				maxY = (int) v.getY();
-			} else if (v.getY() < minY) {
-				minY = (int) v.getY();
+			if (y > maxY) {
+				maxY = y;
+				changed = true;
+			} else if (y < minY) {
+				minY = y;
+				changed = true;
 			}
-			if (v.getZ() > maxZ) {
-				maxZ = (int) v.getZ();
-			} else if (v.getZ() < minZ) {
-				minZ = (int) v.getZ();
+			if (z > maxZ) {
+				maxZ = z;
+				changed = true;
+			} else if (z < minZ) {
+				minZ = z;
+				changed = true;
+			}
+			// le centre n'est recree que si les bornes ont change
+			if (changed) {
+				rayon = (max(maxX, maxY, maxZ) + max(abs(minX), abs(minY),
+						abs(minZ))) / 2;
+				center = new Vector((maxX + minX) / 2, (maxY + minY) / 2,
+						(maxZ + minZ) / 2);
 			}
 		} else
 			nbWrongVect++;
+		if (sphere != null) {
+			sphere.update(rayon, center, x, y, z, correct);
+			FilterListener l = listener;
+			if (l != null) {
+				l.sampleFiltered();
+			}
+		}
+	}
+
+	/**
+	 * Follows the samples of this filter, to display them
+	 * 
+	 * @param l
+	 *            called by the thread filtering at each new sample
+	 */
+	public void attach(FilterListener l) {
+		this.listener = l;
+	}
+
+	/**
+	 * Stops following the samples, the filter keeps filtering in background
+	 */
+	public void detach() {
+		this.listener = null;
+	}
+
+	/**
+	 * @return the listener attached, null if the filter runs in background
+	 */
+	protected FilterListener getListener() {
+		return listener;
+	}
 
-		rayon = (max(maxX, maxY, maxZ) + max(abs(minX), abs(minY), abs(minZ))) / 2;
-		center = new Vector((maxX + minX) / 2, (maxY + minY) / 2,
-				(maxZ + minZ) / 2);
+	/**
+	 * @return the sphere updated with the samples, null if not tracked
+	 */
+	public Sphere getSphere() {
+		return sphere;
+	}
+
+	/**
+	 * Solves the fit of the ellipsoid with the vectors added so far
+	 * 
+	 * @return the current fit, null if not available yet
+	 */
+	public EllipsoidFit getFit() {
+		return estimator.solve();
+	}
+
+	/**
+	 * @return the number of correct vectors added to the fit of the
+	 *         ellipsoid
+	 */
+	public long getNbFitted() {
+		return estimator.getNbSamples();
+	}
+
+	/**
+	 * @return the sensor filtered
+	 */
+	public TypeCalibration getType() {
+		return type;
 	}
 
 	private int abs(int m) {
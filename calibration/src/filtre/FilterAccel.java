@@ -1,21 +1,18 @@
 /**Package grouping all classes used to filter data*/
 package filtre;
 
-import ihm.DrawAccel;
-
 import java.util.logging.Logger;
 
-import javax.swing.SwingUtilities;
+import common.TypeCalibration;
 
-import data.IVector;
+import data.SampleRing;
+import ellipsoide.Sphere;
 
 public class FilterAccel extends Filter {
 
 	private static Logger logger = Logger
 			.getLogger(FilterAccel.class.getName());
 
-	/** The accelerator of the sphere */
-	private DrawAccel drawAccel;
 	/** The number of correct vector added */
 
 	private int thresholdOK;
@@ -25,37 +22,43 @@ public class FilterAccel extends Filter {
 	private int thresholdWrong;
 
 	/**
-	 * Creates a filter who plots the vector in a two dimensional window (simple
-	 * orthogonal projection on xy)
+	 * Creates a filter who updates the sphere given as an argument, the
+	 * progress of the current position is displayed by the view attached to
+	 * the filter
 	 * 
-	 * @param windowSize
-	 * @param type
+	 * @param thresholdOK
+	 * @param thresholdWrong
+	 * @param sphere
+	 *            the sphere of the calibration
 	 */
-	public FilterAccel(int thresholdOK, int thresholdWrong, DrawAccel drawAccel) {
+	public FilterAccel(int thresholdOK, int thresholdWrong, Sphere sphere) {
+		super(TypeCalibration.ACCELEROMETER, false, sphere);
 		this.thresholdOK = thresholdOK; // 200
 		this.thresholdWrong = thresholdWrong; // 40
 		nbCorrectVect = 0;
 		nbWrongVect = 0;
-		this.drawAccel = drawAccel;
 	}
 
 	/**
-	 * Add the vector given in argument to the filter and update the sphere with
-	 * new radius and center
+	 * Add the sample given in argument to the filter and update the sphere
+	 * with new radius and center, the view is repainted at its next frame
 	 * 
-	 * @param v
-	 *            vector to add
+	 * @param ring
+	 *            the raw samples
+	 * @param seq
+	 *            sequence number of the sample to add
 	 */
 	@Override
-	public void add(final IVector<Double> v) {
-		super.add(v);
-		SwingUtilities.invokeLater(new Runnable() {
-			public void run() {
-				drawAccel.update(rayon, center, v, nbCorrectVect);
-			}
-		});
+	public void add(final SampleRing ring, final long seq) {
+		super.add(ring, seq);
+		FilterListener listener = getListener();
+		if (listener != null) {
+			listener.positionProgress(nbCorrectVect);
+		}
 		if ((nbWrongVect > thresholdWrong) || (nbCorrectVect > thresholdOK)) {
-			drawAccel.changedStates((nbWrongVect > thresholdWrong));
+			if (listener != null) {
+				listener.positionDone((nbWrongVect > thresholdWrong));
+			}
 			nbWrongVect = 0;
 			nbCorrectVect = 0;
 		}
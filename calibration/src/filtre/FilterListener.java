@@ -0,0 +1,30 @@
+package filtre;
+
+import java.util.EventListener;
+
+/**
+ * Follows the samples of a filter, called by the thread filtering : the
+ * methods must not block
+ */
+public interface FilterListener extends EventListener {
+	/**
+	 * A sample has been classified and the sphere updated
+	 */
+	void sampleFiltered();
+
+	/**
+	 * The current position of the accelerometers has more correct samples
+	 *
+	 * @param nbCorrect
+	 *            number of correct samples of the position
+	 */
+	void positionProgress(int nbCorrect);
+
+	/**
+	 * The current position of the accelerometers is over
+	 *
+	 * @param tooManyWrongVectors
+	 *            true if the position has to be taken again
+	 */
+	void positionDone(boolean tooManyWrongVectors);
+}
@@ -1,13 +1,11 @@
 /**Package grouping all classes used to filter data*/
 package filtre;
 
-import ihm.DrawMagneto;
-
 import java.util.logging.Logger;
 
-import javax.swing.SwingUtilities;
+import common.TypeCalibration;
 
-import data.IVector;
+import ellipsoide.Sphere;
 
 public class FilterMagneto extends Filter {
 
@@ -15,37 +13,14 @@ public class FilterMagneto extends Filter {
 			.getName());
 
 	/**
-	 * Data of the sphere, max and min of each axis center, radius and the
-	 * sphere
-	 */
-	private DrawMagneto drawSphere;
-
-	/**
-	 * Creates a filter who uses the plot given as an argument to plot in a two
-	 * dimensional graph (simple orthogonal projection on xy)
-	 * 
-	 * @param windowSize
-	 * @param type
-	 */
-	public FilterMagneto(DrawMagneto p_drawSphere) {
-		this.drawSphere = p_drawSphere;
-	}
-
-	/**
-	 * Add the vector given in argument to the filter and update the sphere with
-	 * new radius and center
+	 * Creates a filter who updates the sphere given as an argument, the
+	 * sphere is displayed by the view attached to the filter
 	 * 
-	 * @param vectorToAdd
-	 *            vector to add
+	 * @param sphere
+	 *            the sphere of the calibration
 	 */
-	@Override
-	public void add(final IVector<Double> vectorToAdd) {
-		super.add(vectorToAdd);
-		SwingUtilities.invokeLater(new Runnable() {
-			public void run() {
-				drawSphere.update(rayon, center, vectorToAdd);
-			}
-		});
+	public FilterMagneto(Sphere sphere) {
+		super(TypeCalibration.MAGNETOMETER, true, sphere);
 	}
 
 }
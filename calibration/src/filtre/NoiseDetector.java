@@ -0,0 +1,173 @@
+/**Package grouping all classes used to filter data*/
+package filtre;
+
+import java.util.logging.Logger;
+
+import common.SlidingWindow;
+import common.TypeCalibration;
+
+/**
+ * Live version of the noise filter of calibrate.py (filter_meas) : a sample
+ * is clean when the norm of the standard deviation of the window [i -
+ * halfWindow; i + halfWindow[ is under the threshold. The mean and the
+ * variance of the window are updated when a sample enters or leaves it, so
+ * the cost of a sample does not depend on the size of the window.
+ *
+ * The decision needs the samples following the one classified : sample i is
+ * classified when sample i + halfWindow - 1 is added.
+ */
+public class NoiseDetector {
+
+	private static Logger logger = Logger.getLogger(NoiseDetector.class
+			.getName());
+
+	/** Half size of the window */
+	private final int halfWindow;
+	/** Maximum noise of a clean sample */
+	private final double threshold;
+	/** The window, the sample to classify being at index halfWindow */
+	private final SlidingWindow window;
+
+	/** Number of samples in the window */
+	private int n = 0;
+	/** Mean of each axis on the window */
+	private final double[] mean = new double[3];
+	/** Sum of the squared deviations of each axis on the window */
+	private final double[] m2 = new double[3];
+
+	/** The last sample classified */
+	private int x;
+	private int y;
+	private int z;
+	private double noise;
+
+	/**
+	 * @param t
+	 *            the sensor, giving the window and the threshold of
+	 *            calibrate.py
+	 */
+	public NoiseDetector(TypeCalibration t) {
+		this(t.getNoiseWindow(), t.getNoiseThreshold());
+	}
+
+	/**
+	 * @param halfWindow
+	 *            half size of the window
+	 * @param threshold
+	 *            maximum noise of a clean sample
+	 */
+	public NoiseDetector(int halfWindow, double threshold) {
+		if (halfWindow < 1) {
+			throw new IllegalArgumentException("invalid noise window "
+					+ halfWindow);
+		}
+		this.halfWindow = halfWindow;
+		this.threshold = threshold;
+		this.window = new SlidingWindow(2 * halfWindow);
+	}
+
+	/**
+	 * Adds a sample to the window
+	 *
+	 * @param x
+	 * @param y
+	 * @param z
+	 * @return true if a sample has been classified, given by getX(), getY(),
+	 *         getZ() and isClean()
+	 */
+	public boolean add(int x, int y, int z) {
+		if (window.isFull()) {
+			leave(window.getX(0), window.getY(0), window.getZ(0));
+		}
+		window.add(x, y, z);
+		enter(x, y, z);
+		if (!window.isFull()) {
+			return false;
+		}
+		this.x = window.getX(halfWindow);
+		this.y = window.getY(halfWindow);
+		this.z = window.getZ(halfWindow);
+		double var = 0;
+		for (int a = 0; a < 3; a++) {
+			var += Math.max(0, m2[a] / n);
+		}
+		noise = Math.sqrt(var);
+		return true;
+	}
+
+	/**
+	 * Welford update of the statistics with a sample entering the window
+	 */
+	private void enter(int x, int y, int z) {
+		n++;
+		update(0, x, 1);
+		update(1, y, 1);
+		update(2, z, 1);
+	}
+
+	/**
+	 * Welford update of the statistics with a sample leaving the window
+	 */
+	private void leave(int x, int y, int z) {
+		n--;
+		if (n == 0) {
+			for (int a = 0; a < 3; a++) {
+				mean[a] = 0;
+				m2[a] = 0;
+			}
+			return;
+		}
+		update(0, x, -1);
+		update(1, y, -1);
+		update(2, z, -1);
+	}
+
+	/**
+	 * @param sign
+	 *            1 for a value entering the window, -1 for a value leaving it
+	 */
+	private void update(int a, int value, int sign) {
+		double delta = value - mean[a];
+		mean[a] += sign * delta / n;
+		m2[a] += sign * delta * (value - mean[a]);
+	}
+
+	/**
+	 * @return true if the last sample classified is clean
+	 */
+	public boolean isClean() {
+		return noise < threshold;
+	}
+
+	/**
+	 * @return the noise of the window of the last sample classified
+	 */
+	public double getNoise() {
+		return noise;
+	}
+
+	public int getX() {
+		return x;
+	}
+
+	public int getY() {
+		return y;
+	}
+
+	public int getZ() {
+		return z;
+	}
+
+	/**
+	 * Empties the window
+	 */
+	public void reset() {
+		window.clear();
+		n = 0;
+		for (int a = 0; a < 3; a++) {
+			mean[a] = 0;
+			m2[a] = 0;
+		}
+		noise = 0;
+	}
+}
@@ -0,0 +1,587 @@
+package ihm;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.logging.Logger;
+
+import calibrate.CalibrateGyro;
+import calibrate.CalibrateJava;
+import calibrate.CalibrationResult;
+import calibrate.FitMethod;
+import calibrate.SessionReader;
+
+import common.TypeCalibration;
+
+import data.TelemetryDecoder;
+
+import testData.MappedLogReader;
+
+/**
+ * Calibrates without display all the logs of a directory : each log is split
+ * by aircraft and sensor, and the accelerometers and magnetometers are solved
+ * in parallel on a fork/join pool, then the gyrometers with the turntable of
+ * the log if any (IMU_TURNTABLE), or else with the magnetometer of their
+ * aircraft. An airframe fragment is written for each aircraft of each log,
+ * and a summary of all the calibrations in a csv file.
+ */
+public class BatchCalibration {
+
+	private static Logger logger = Logger.getLogger(BatchCalibration.class
+			.getName());
+
+	/** The sensors calibrated */
+	private static final TypeCalibration[] SENSORS = {
+			TypeCalibration.ACCELEROMETER, TypeCalibration.MAGNETOMETER,
+			TypeCalibration.GYROSCOPE };
+	/** Separator of the columns of the summary */
+	private static final String SEPARATOR = ";";
+	/** Name of the summary in the output directory */
+	public static final String SUMMARY = "summary.csv";
+
+	/** The directory of the fragments and of the summary */
+	private final File outputDir;
+	/** The pool running the calibrations */
+	private final ForkJoinPool pool;
+	/** The fit of the neutrals and the sensitivities */
+	private FitMethod method = FitMethod.MIN_MAX;
+
+	/**
+	 * @param outputDir
+	 *            the directory of the results, created if needed
+	 * @param parallelism
+	 *            number of threads of the pool
+	 */
+	public BatchCalibration(File outputDir, int parallelism) {
+		this.outputDir = outputDir;
+		this.pool = new ForkJoinPool(parallelism);
+	}
+
+	/**
+	 * @param method
+	 *            the fit of the neutrals and the sensitivities
+	 */
+	public void setMethod(FitMethod method) {
+		this.method = method;
+	}
+
+	/**
+	 * @param directory
+	 * @return the .data logs and the .afs sessions of the directory, sorted by
+	 *         name
+	 */
+	public static File[] listLogs(File directory) {
+		File[] logs = directory.listFiles(new FilenameFilter() {
+			public boolean accept(File dir, String name) {
+				return name.endsWith(".data") || name.endsWith(".afs");
+			}
+		});
+		if (logs == null) {
+			return new File[0];
+		}
+		Arrays.sort(logs);
+		return logs;
+	}
+
+	/**
+	 * Calibrates the logs and writes the results
+	 *
+	 * @param logs
+	 * @return the lines of the summary, without the header
+	 * @throws IOException
+	 *             if the results can't be written
+	 */
+	public List<String> run(File[] logs) throws IOException {
+		if (!outputDir.isDirectory() && !outputDir.mkdirs()) {
+			throw new IOException("can't create " + outputDir);
+		}
+		final List<LogTask> tasks = new ArrayList<LogTask>();
+		for (File log : logs) {
+			tasks.add(new LogTask(log, outputDir, method));
+		}
+		List<String> summary = pool.invoke(new RecursiveTask<List<String>>() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected List<String> compute() {
+				invokeAll(tasks);
+				List<String> lines = new ArrayList<String>();
+				for (LogTask task : tasks) {
+					lines.addAll(task.join());
+				}
+				return lines;
+			}
+		});
+
+		String nl = System.getProperty("line.separator");
+		Writer out = new BufferedWriter(new OutputStreamWriter(
+				new FileOutputStream(new File(outputDir, SUMMARY)),
+				Charset.forName("UTF-8")));
+		try {
+			out.write("log" + SEPARATOR + "ac_id" + SEPARATOR + "sensor"
+					+ SEPARATOR + "records" + SEPARATOR + "filtered"
+					+ SEPARATOR + "avg" + SEPARATOR + "std" + SEPARATOR
+					+ "x_neutral" + SEPARATOR + "y_neutral" + SEPARATOR
+					+ "z_neutral" + SEPARATOR + "x_sens" + SEPARATOR
+					+ "y_sens" + SEPARATOR + "z_sens" + SEPARATOR + "status"
+					+ nl);
+			for (String line : summary) {
+				out.write(line + nl);
+			}
+		} finally {
+			out.close();
+		}
+		return summary;
+	}
+
+	/**
+	 * Stops the threads of the pool
+	 */
+	public void shutdown() {
+		pool.shutdown();
+	}
+
+	/**
+	 * The measurements of a log, or of a part of a log
+	 */
+	private static class LogParts {
+		/** The measurements of the sensors, by aircraft and sensor */
+		final Map<Integer, EnumMap<TypeCalibration, List<double[]>>> sensors = new TreeMap<Integer, EnumMap<TypeCalibration, List<double[]>>>();
+		/** The rates of the turntables : rate, time, by turntable id */
+		final Map<Integer, List<double[]>> turntables = new TreeMap<Integer, List<double[]>>();
+
+		List<double[]> turntable(int id) {
+			List<double[]> rates = turntables.get(id);
+			if (rates == null) {
+				rates = new ArrayList<double[]>();
+				turntables.put(id, rates);
+			}
+			return rates;
+		}
+
+		void addAll(LogParts other) {
+			for (Map.Entry<Integer, EnumMap<TypeCalibration, List<double[]>>> ac : other.sensors
+					.entrySet()) {
+				for (Map.Entry<TypeCalibration, List<double[]>> sensor : ac
+						.getValue().entrySet()) {
+					measurements(sensors, ac.getKey(), sensor.getKey())
+							.addAll(sensor.getValue());
+				}
+			}
+			for (Map.Entry<Integer, List<double[]>> tt : other.turntables
+					.entrySet()) {
+				turntable(tt.getKey()).addAll(tt.getValue());
+			}
+		}
+
+		/**
+		 * @return the rates of the turntable sending the most, null if none
+		 */
+		double[][] getTurntable() {
+			List<double[]> best = null;
+			for (List<double[]> rates : turntables.values()) {
+				if (best == null || rates.size() > best.size()) {
+					best = rates;
+				}
+			}
+			if (turntables.size() > 1) {
+				logger.warning(turntables.size()
+						+ " turntables in the log, the one sending the most is used");
+			}
+			return best == null ? null : best.toArray(new double[best.size()][]);
+		}
+	}
+
+	/**
+	 * @return the list of the measurements of a sensor of an aircraft,
+	 *         created if needed
+	 */
+	private static List<double[]> measurements(
+			Map<Integer, EnumMap<TypeCalibration, List<double[]>>> parts,
+			int acId, TypeCalibration type) {
+		EnumMap<TypeCalibration, List<double[]>> sensors = parts.get(acId);
+		if (sensors == null) {
+			sensors = new EnumMap<TypeCalibration, List<double[]>>(
+					TypeCalibration.class);
+			parts.put(acId, sensors);
+		}
+		List<double[]> meas = sensors.get(type);
+		if (meas == null) {
+			meas = new ArrayList<double[]>();
+			sensors.put(type, meas);
+		}
+		return meas;
+	}
+
+	/**
+	 * Splits a log by aircraft and sensor, solves each part in a subtask and
+	 * writes the fragments of the aircrafts
+	 */
+	private static class LogTask extends RecursiveTask<List<String>> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final File log;
+		private final File outputDir;
+		private final FitMethod method;
+
+		LogTask(File log, File outputDir, FitMethod method) {
+			this.log = log;
+			this.outputDir = outputDir;
+			this.method = method;
+		}
+
+		@Override
+		protected List<String> compute() {
+			List<String> lines = new ArrayList<String>();
+			LogParts content;
+			try {
+				content = split(log);
+			} catch (IOException e) {
+				logger.warning("can't read " + log + " : " + e.getMessage());
+				return lines;
+			}
+			Map<Integer, EnumMap<TypeCalibration, List<double[]>>> parts = content.sensors;
+
+			List<SolveTask> tasks = new ArrayList<SolveTask>();
+			for (Map.Entry<Integer, EnumMap<TypeCalibration, List<double[]>>> ac : parts
+					.entrySet()) {
+				for (Map.Entry<TypeCalibration, List<double[]>> sensor : ac
+						.getValue().entrySet()) {
+					if (sensor.getKey() != TypeCalibration.GYROSCOPE) {
+						tasks.add(new SolveTask(sensor.getValue(), sensor
+								.getKey(), ac.getKey(), method));
+					}
+				}
+			}
+			invokeAll(tasks);
+			List<CalibrationResult> all = new ArrayList<CalibrationResult>();
+			for (SolveTask task : tasks) {
+				all.add(task.join());
+			}
+
+			// les gyrometres ont besoin de la table tournante, ou a defaut
+			// du magnetometre calibre de l'avion
+			double[][] turntable = content.getTurntable();
+			List<GyroTask> gyroTasks = new ArrayList<GyroTask>();
+			for (Map.Entry<Integer, EnumMap<TypeCalibration, List<double[]>>> ac : parts
+					.entrySet()) {
+				List<double[]> gyro = ac.getValue().get(
+						TypeCalibration.GYROSCOPE);
+				if (gyro != null) {
+					gyroTasks.add(new GyroTask(gyro, turntable, ac.getValue()
+							.get(TypeCalibration.MAGNETOMETER), magParameters(
+							all, ac.getKey()), ac.getKey()));
+				}
+			}
+			invokeAll(gyroTasks);
+			for (GyroTask task : gyroTasks) {
+				all.add(task.join());
+			}
+			Collections.sort(all, new Comparator<CalibrationResult>() {
+				public int compare(CalibrationResult a, CalibrationResult b) {
+					if (a.getAcId() != b.getAcId()) {
+						return a.getAcId() < b.getAcId() ? -1 : 1;
+					}
+					return a.getType().compareTo(b.getType());
+				}
+			});
+
+			// résultats regroupés par avion, dans l'ordre des capteurs
+			Map<Integer, List<CalibrationResult>> byAircraft = new TreeMap<Integer, List<CalibrationResult>>();
+			for (CalibrationResult result : all) {
+				List<CalibrationResult> results = byAircraft.get(result
+						.getAcId());
+				if (results == null) {
+					results = new ArrayList<CalibrationResult>();
+					byAircraft.put(result.getAcId(), results);
+				}
+				results.add(result);
+				lines.add(log.getName() + SEPARATOR + result.toCsv(SEPARATOR));
+			}
+			for (Map.Entry<Integer, List<CalibrationResult>> ac : byAircraft
+					.entrySet()) {
+				try {
+					writeFragment(ac.getKey(), ac.getValue());
+				} catch (IOException e) {
+					logger.warning("can't write the fragment of aircraft "
+							+ ac.getKey() + " of " + log + " : "
+							+ e.getMessage());
+				}
+			}
+			return lines;
+		}
+
+		/**
+		 * @return the neutrals and sensitivities of the magnetometer of an
+		 *         aircraft, null if not solved
+		 */
+		private static double[] magParameters(List<CalibrationResult> results,
+				int acId) {
+			for (CalibrationResult result : results) {
+				if (result.getAcId() == acId
+						&& result.getType() == TypeCalibration.MAGNETOMETER) {
+					return result.getParameters();
+				}
+			}
+			return null;
+		}
+
+		/**
+		 * Reads the measurements of the log, the chunks of a text log in
+		 * parallel
+		 *
+		 * @return the measurements, by aircraft and sensor, and the rates of
+		 *         the turntables
+		 */
+		private LogParts split(File file) throws IOException {
+			LogParts parts = new LogParts();
+			if (file.getName().endsWith(".afs")) {
+				SessionReader session = new SessionReader(file.getPath());
+				if (Arrays.asList(SENSORS).contains(session.getType())) {
+					measurements(parts.sensors, session.getAcId(),
+							session.getType()).addAll(
+							Arrays.asList(session.getMeasurements()));
+				}
+				return parts;
+			}
+
+			// les morceaux du log sont lus en parallèle puis remis bout à bout
+			MappedLogReader reader = new MappedLogReader(file.getPath());
+			try {
+				List<ChunkTask> tasks = new ArrayList<ChunkTask>();
+				for (int i = 0; i < reader.getNbChunks(); i++) {
+					tasks.add(new ChunkTask(reader.cursor(i), file.getName()));
+				}
+				invokeAll(tasks);
+				for (ChunkTask task : tasks) {
+					parts.addAll(task.join());
+				}
+			} finally {
+				reader.close();
+			}
+			return parts;
+		}
+
+		/**
+		 * Writes the defines of an aircraft, to be copied in the IMU section
+		 * of its airframe file. The file is named after the whole name of the
+		 * log, so that foo.data and foo.afs don't overwrite each other
+		 */
+		private void writeFragment(int acId, List<CalibrationResult> results)
+				throws IOException {
+			String nl = System.getProperty("line.separator");
+			Writer out = new BufferedWriter(new OutputStreamWriter(
+					new FileOutputStream(new File(outputDir, log.getName()
+							+ "_" + acId + ".xml")), Charset.forName("UTF-8")));
+			try {
+				out.write("<!-- aircraft " + acId + ", log " + log.getName()
+						+ " -->" + nl);
+				out.write("<section name=\"IMU\" prefix=\"IMU_\">" + nl);
+				for (CalibrationResult result : results) {
+					out.write("<!-- " + result.getType().getSensor() + " : "
+							+ result.getNbRecords() + " records, "
+							+ result.getNbFiltered() + " after filtering, "
+							+ result.getStatus() + " -->");
+					out.write(result.isSolved() ? result.toXml() : nl);
+				}
+				out.write("</section>" + nl);
+			} finally {
+				out.close();
+			}
+		}
+	}
+
+	/**
+	 * Reads the measurements of a chunk of a log
+	 */
+	private static class ChunkTask extends RecursiveTask<LogParts> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final MappedLogReader.Cursor records;
+		private final String name;
+
+		ChunkTask(MappedLogReader.Cursor records, String name) {
+			this.records = records;
+			this.name = name;
+		}
+
+		@Override
+		protected LogParts compute() {
+			LogParts parts = new LogParts();
+			TelemetryDecoder decoder = new TelemetryDecoder();
+			while (records.next()) {
+				if (records.getAcId() < 0) {
+					continue;
+				}
+				if (records.nameEquals(CalibrateGyro.TURNTABLE_MESSAGE)) {
+					try {
+						records.payload(decoder);
+						parts.turntable(records.getAcId()).add(
+								new double[] { decoder.nextDouble(),
+										records.getTime() });
+					} catch (NumberFormatException e) {
+						logger.fine("line ignored in " + name + " : \""
+								+ records.getLine() + "\"");
+					}
+					continue;
+				}
+				for (TypeCalibration type : SENSORS) {
+					if (!records.nameEquals(type.getRawMessage())) {
+						continue;
+					}
+					try {
+						records.payload(decoder);
+						// la date sert a synchroniser les gyrometres
+						measurements(parts.sensors, records.getAcId(), type)
+								.add(
+								new double[] { decoder.nextDouble(),
+										decoder.nextDouble(),
+										decoder.nextDouble(),
+										records.getTime() });
+					} catch (NumberFormatException e) {
+						logger.fine("line ignored in " + name + " : \""
+								+ records.getLine() + "\"");
+					}
+				}
+			}
+			return parts;
+		}
+	}
+
+	/**
+	 * Calibrates a sensor of an aircraft
+	 */
+	private static class SolveTask extends RecursiveTask<CalibrationResult> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final List<double[]> measurements;
+		private final TypeCalibration type;
+		private final int acId;
+		private final FitMethod method;
+
+		SolveTask(List<double[]> measurements, TypeCalibration type,
+				int acId, FitMethod method) {
+			this.measurements = measurements;
+			this.type = type;
+			this.acId = acId;
+			this.method = method;
+		}
+
+		@Override
+		protected CalibrationResult compute() {
+			return CalibrateJava.solve(
+					measurements.toArray(new double[measurements.size()][]),
+					type, acId, method);
+		}
+	}
+
+	/**
+	 * Calibrates the gyrometers of an aircraft
+	 */
+	private static class GyroTask extends RecursiveTask<CalibrationResult> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final List<double[]> gyro;
+		private final double[][] turntable;
+		private final List<double[]> mag;
+		private final double[] magParameters;
+		private final int acId;
+
+		/**
+		 * @param turntable
+		 *            the rates of the turntable, null if none : the
+		 *            magnetometer is used
+		 * @param mag
+		 *            the samples of the magnetometer, null if none
+		 * @param magParameters
+		 *            its calibration, null if not solved
+		 */
+		GyroTask(List<double[]> gyro, double[][] turntable,
+				List<double[]> mag, double[] magParameters, int acId) {
+			this.gyro = gyro;
+			this.turntable = turntable;
+			this.mag = mag == null ? new ArrayList<double[]>() : mag;
+			this.magParameters = magParameters;
+			this.acId = acId;
+		}
+
+		@Override
+		protected CalibrationResult compute() {
+			if (turntable != null) {
+				return CalibrateGyro.solveTurntable(
+						gyro.toArray(new double[gyro.size()][]), turntable,
+						acId);
+			}
+			return CalibrateGyro.solve(
+					gyro.toArray(new double[gyro.size()][]),
+					mag.toArray(new double[mag.size()][]), magParameters, acId);
+		}
+	}
+
+	/**
+	 * Calibrates all the logs of a directory
+	 *
+	 * @param args
+	 *            optionally the fit method (-java, -direct, -fast or
+	 *            -robust), the directory of the logs, and optionally the
+	 *            directory of the results (log_directory/calibration by
+	 *            default)
+	 */
+	public static void main(String[] args) {
+		FitMethod method = FitMethod.MIN_MAX;
+		if (args.length > 0 && args[0].startsWith("-")) {
+			try {
+				method = FitMethod.fromName(args[0].substring(1));
+			} catch (IllegalArgumentException e) {
+				System.err.println(e.getMessage());
+				System.exit(1);
+			}
+			args = Arrays.copyOfRange(args, 1, args.length);
+		}
+		if (args.length < 1 || args.length > 2) {
+			System.err
+					.println("usage: BatchCalibration [-java|-direct|-fast|-robust] log_directory [output_directory]");
+			System.exit(1);
+		}
+		File directory = new File(args[0]);
+		File output = args.length == 2 ? new File(args[1]) : new File(
+				directory, "calibration");
+		File[] logs = listLogs(directory);
+
+		long start = System.currentTimeMillis();
+		BatchCalibration batch = new BatchCalibration(output, Runtime
+				.getRuntime().availableProcessors());
+		batch.setMethod(method);
+		try {
+			List<String> summary = batch.run(logs);
+			logger.info(logs.length + " logs, " + summary.size()
+					+ " calibrations done in "
+					+ (System.currentTimeMillis() - start) + " ms, results in "
+					+ output);
+		} catch (IOException e) {
+			logger.warning(e.getMessage());
+			System.exit(1);
+		} finally {
+			batch.shutdown();
+		}
+	}
+}
@@ -11,8 +11,9 @@ import java.util.Properties;
 import java.util.logging.FileHandler;
 import java.util.logging.Logger;
 
+import testData.ReplayEngine;
 import testData.Sender;
-import calibrate.PrintLog;
+import calibrate.SessionManager;
 
 import common.LogFormatter;
 
@@ -33,7 +34,10 @@ public class Calibration {
 	 */
 	private IMU imu;
 
-	private PrintLog log = new PrintLog();
+	/**
+	 * The calibrations in progress, solved in parallel
+	 */
+	private SessionManager sessions;
 
 	/**
 	 * Launch the application.
@@ -49,7 +53,7 @@ public class Calibration {
 			initializeLogger(prop);
 
 			// Démarrage de l'application
-			new Calibration();
+			new Calibration(prop);
 
 			// Simulation de données de calibration
 			// (uniquement si un fichier est défini dans les properties)
@@ -57,7 +61,9 @@ public class Calibration {
 					.getProperty("simulation_calibration_data");
 			if (simulationCalibrationData != null
 					&& simulationCalibrationData != "") {
-				Sender s = new Sender(simulationCalibrationData);
+				Sender s = new Sender(simulationCalibrationData,
+						ReplayEngine.parseSpeed(prop
+								.getProperty("simulation_speed")));
 				s.sendRawMessage();
 			}
 
@@ -94,11 +100,18 @@ public class Calibration {
 
 	/**
 	 * Create the application.
+	 * 
+	 * @param prop
+	 *            the properties of the application
 	 */
-	public Calibration() {
+	public Calibration(Properties prop) {
 		startImu();
+		sessions = new SessionManager(imu, SessionManager.getNbThreads(prop));
+		// arret automatique des calibrations (si autostop=true)
+		sessions.setAutoStop(prop);
 
-		MainFrame window = new MainFrame(log, imu);
+		MainFrame window = new MainFrame(imu, sessions,
+				RenderScheduler.getFrameRate(prop));
 		window.setVisible(true);
 
 		// start the discovering of all connected aircraft
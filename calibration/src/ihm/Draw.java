@@ -11,8 +11,12 @@ import javax.swing.JTextArea;
 import javax.swing.JTextPane;
 
 import net.miginfocom.swing.MigLayout;
-import data.IVector;
+import common.TypeCalibration;
+
 import ellipsoide.Sphere;
+import filtre.EllipsoidFit;
+import filtre.Filter;
+import filtre.FilterListener;
 
 /**
  * Gère les affichages des calibrations
@@ -20,7 +24,7 @@ import ellipsoide.Sphere;
  * @author camille
  * 
  */
-public abstract class Draw extends JPanel {
+public abstract class Draw extends JPanel implements FilterListener {
 
 	private static Logger logger = Logger.getLogger(Draw.class.getName());
 
@@ -29,7 +33,7 @@ public abstract class Draw extends JPanel {
 	/**
 	 * The sphere to display
 	 */
-	private Sphere sphere;
+	private volatile Sphere sphere;
 	/**
 	 * ProgressBar which represents the amount of correct vectors collected on
 	 * the current position
@@ -46,16 +50,33 @@ public abstract class Draw extends JPanel {
 
 	private SpherePanel spherePanel;
 
+	/** Live estimation of the neutrals and sensitivities */
+	private JLabel fitReadout;
+
+	/** Repaints the view at a fixed frame rate */
+	private RenderScheduler scheduler;
+
+	/** The filter whose fit is displayed */
+	private volatile Filter filter;
+
 	/**
 	 * Creates an affich for a sphere
+	 * 
+	 * @param fps
+	 *            the maximum number of repaints per second
 	 */
-	public Draw(Sphere s, String p_title, int p_thresholdOK) {
+	public Draw(Sphere s, String p_title, int p_thresholdOK, int fps) {
 		this.sphere = s;
 		this.thresholdOK = p_thresholdOK;
+		this.scheduler = new RenderScheduler(fps, new Runnable() {
+			public void run() {
+				render();
+			}
+		});
 
 		// Affichage du texte
 		setLayout(new MigLayout("", "10[220px, grow 400]10",
-				"[10px][80px][300px, grow 600][14px]"));
+				"[10px][80px][300px, grow 600][14px][14px]"));
 
 		initializeTitle(p_title);
 
@@ -65,6 +86,7 @@ public abstract class Draw extends JPanel {
 
 		initializeProgressBar();
 
+		initializeFitReadout();
 	}
 
 	private void initializeTitle(String p_title) {
@@ -125,19 +147,94 @@ public abstract class Draw extends JPanel {
 		this.add(progressBar, "cell 0 3,growx,aligny top");
 	}
 
+	private void initializeFitReadout() {
+		fitReadout = new JLabel("Estimation : en attente de données");
+		fitReadout.setFont(new Font("Arial", Font.PLAIN, 11));
+		this.add(fitReadout, "cell 0 4,growx,aligny top");
+	}
+
 	/**
-	 * Updates the sphere
+	 * Updates the live estimation of the calibration
 	 * 
-	 * @param radius
-	 * @param newcenter
-	 * @param windowsFirstElement
-	 *            : le premier élément de la pile de messages
-	 * @param vectorToAdd
+	 * @param fit
+	 *            the current fit, null if not available yet
+	 * @param type
+	 *            the sensor calibrated
+	 */
+	public void setFit(EllipsoidFit fit, TypeCalibration type) {
+		if (fit == null) {
+			fitReadout.setText("Estimation : en attente de données");
+		} else {
+			fitReadout.setText("Estimation : "
+					+ fit.toString(type.getSensorRes()));
+		}
+	}
+
+	/**
+	 * Displays the sphere and the live fit of a filter, called on the event
+	 * dispatch thread. The view is repainted until stopped
+	 * 
+	 * @param s
+	 *            the sphere updated by the filter
+	 * @param f
+	 *            the filter whose live fit is displayed
+	 */
+	public void show(Sphere s, Filter f) {
+		this.sphere = s;
+		this.filter = f;
+		spherePanel.setSphere(s);
+		setFit(null, f.getType());
+		requestFrame();
+		scheduler.start();
+	}
+
+	/**
+	 * Stops the repaints, the view keeps its last frame until a calibration
+	 * is shown again
+	 */
+	public void stop() {
+		scheduler.stop();
+	}
+
+	/**
+	 * The view removed from its window is not repainted anymore
+	 */
+	@Override
+	public void removeNotify() {
+		scheduler.stop();
+		super.removeNotify();
+	}
+
+	/**
+	 * Asks for a repaint at the next frame. Can be called from any thread
+	 */
+	public void requestFrame() {
+		scheduler.requestFrame();
+	}
+
+	public void sampleFiltered() {
+		requestFrame();
+	}
+
+	/**
+	 * Only the accelerometers are taken position by position
+	 */
+	public void positionProgress(int nbCorrect) {
+	}
+
+	public void positionDone(boolean tooManyWrongVectors) {
+	}
+
+	/**
+	 * Repaints the view with the samples received since the last frame,
+	 * called on the event dispatch thread
 	 */
-	public void update(final double radius, final IVector<Double> newcenter,
-			final IVector<Double> vectorToAdd) {
-		getSphere().update(radius, newcenter, vectorToAdd);
+	protected void render() {
 		spherePanel.majZone();
+		Filter f = filter;
+		if (f != null) {
+			setFit(f.getFit(), f.getType());
+		}
 		this.repaint();
 		spherePanel.repaint();
 	}
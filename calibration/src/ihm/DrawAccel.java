@@ -3,9 +3,9 @@
  */
 package ihm;
 
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Logger;
 
-import data.IVector;
 import ellipsoide.Sphere;
 
 /**
@@ -23,13 +23,19 @@ public class DrawAccel extends Draw {
 	 */
 	private static final long serialVersionUID = -1632196092075420985L;
 
+	/** The number of correct vectors at the last update */
+	private volatile int nbCorrect = 0;
+
+	/** true if the position has to be taken again since the last frame */
+	private final AtomicBoolean stateChanged = new AtomicBoolean(false);
+
 	/**
 	 * Create the sphere and the layout of the accelerometer's view s the sphere
 	 * to display
 	 */
 
-	public DrawAccel(Sphere p_sphere, int thresholdOK) {
-		super(p_sphere, "Accélérométrie", thresholdOK);
+	public DrawAccel(Sphere p_sphere, int thresholdOK, int fps) {
+		super(p_sphere, "Accélérométrie", thresholdOK, fps);
 
 		// Affichage du texte
 		getInstructions()
@@ -39,18 +45,30 @@ public class DrawAccel extends Draw {
 	}
 
 	/**
-	 * Updates the sphere
+	 * Updates the number of correct vectors of the current position, the view
+	 * is repainted at the next frame. Can be called from any thread
 	 * 
-	 * @param radius
-	 * @param newcenter
-	 * @param vcourant
 	 * @param nbCorrectOK
 	 */
-	public void update(final double radius, final IVector<Double> newcenter,
-			final IVector<Double> vcourant, final int nbCorrectOK) {
-		super.update(radius, newcenter, vcourant);
+	@Override
+	public void positionProgress(final int nbCorrectOK) {
+		this.nbCorrect = nbCorrectOK;
+		requestFrame();
+	}
+
+	@Override
+	protected void render() {
+		super.render();
+		if (stateChanged.getAndSet(false)) {
+			setValueProgressBar(0);
+			getInstructions()
+					.setText(
+							"Trop de données incorrectes reçues. Merci de maintenir la position.");
+			return;
+		}
 
 		// Mise à jour de la barre de progression
+		int nbCorrectOK = nbCorrect;
 		setValueProgressBar(nbCorrectOK);
 
 		// Affichage du libellé
@@ -64,12 +82,13 @@ public class DrawAccel extends Draw {
 
 	/**
 	 * Give some informations and put the initial value on the progress bar to
-	 * indicate a new position for the drone
+	 * indicate a new position for the drone, at the next frame. Can be called
+	 * from any thread
 	 */
-	public void changedStates(boolean tooManyWrongVectors) {
-		setValueProgressBar(0);
-		getInstructions()
-				.setText(
-						"Trop de données incorrectes reçues. Merci de maintenir la position.");
+	@Override
+	public void positionDone(boolean tooManyWrongVectors) {
+		nbCorrect = 0;
+		stateChanged.set(true);
+		requestFrame();
 	}
 }
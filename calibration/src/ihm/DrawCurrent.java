@@ -0,0 +1,135 @@
+package ihm;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.util.Locale;
+import java.util.logging.Logger;
+
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JTextArea;
+
+import net.miginfocom.swing.MigLayout;
+import calibrate.CurrentRegression;
+import calibrate.CurrentSession;
+
+/**
+ * Displays the live coefficients of the calibration of the magnetometer
+ * against the current
+ */
+public class DrawCurrent extends JPanel {
+
+	private static Logger logger = Logger.getLogger(DrawCurrent.class
+			.getName());
+
+	private static final long serialVersionUID = 1L;
+
+	private static final String[] AXES = { "X", "Y", "Z" };
+
+	/** Number of samples received */
+	private JLabel samples;
+	/** Coefficient and correlation of each axis */
+	private JLabel[] coefficients = new JLabel[3];
+
+	/** Repaints the view at a fixed frame rate */
+	private RenderScheduler scheduler;
+
+	/** The calibration displayed */
+	private volatile CurrentSession session;
+
+	/**
+	 * @param fps
+	 *            the maximum number of repaints per second
+	 */
+	public DrawCurrent(int fps) {
+		this.scheduler = new RenderScheduler(fps, new Runnable() {
+			public void run() {
+				render();
+			}
+		});
+		setLayout(new MigLayout("", "10[220px, grow 400]10",
+				"[10px][80px][20px][20px][20px][20px]"));
+
+		JTextArea title = new JTextArea("Magnétomètre / courant");
+		title.setFont(new Font("Arial", Font.BOLD, 12));
+		title.setEditable(false);
+		title.setOpaque(false);
+		this.add(title, "cell 0 0,alignx center");
+
+		JTextArea instructions = new JTextArea(
+				"Instructions :\nFaire varier les gaz du minimum au maximum, "
+						+ "les coefficients sont prêts à la fin du balayage");
+		instructions.setEditable(false);
+		instructions.setLineWrap(true);
+		instructions.setWrapStyleWord(true);
+		instructions.setBackground(Color.WHITE);
+		this.add(instructions, "cell 0 1,grow");
+
+		samples = new JLabel();
+		this.add(samples, "cell 0 2,growx");
+		for (int a = 0; a < 3; a++) {
+			coefficients[a] = new JLabel();
+			coefficients[a].setFont(new Font("Arial", Font.PLAIN, 11));
+			this.add(coefficients[a], "cell 0 " + (a + 3) + ",growx");
+		}
+		render();
+	}
+
+	/**
+	 * Displays a calibration, called on the event dispatch thread. The view
+	 * is repainted until stopped
+	 *
+	 * @param s
+	 *            the calibration, its samples ask for a repaint
+	 */
+	public void show(CurrentSession s) {
+		this.session = s;
+		s.attach(new Runnable() {
+			public void run() {
+				scheduler.requestFrame();
+			}
+		});
+		scheduler.requestFrame();
+		scheduler.start();
+	}
+
+	/**
+	 * Stops the repaints, the view keeps its last frame until a calibration
+	 * is shown again
+	 */
+	public void stop() {
+		scheduler.stop();
+	}
+
+	/**
+	 * The view removed from its window is not repainted anymore
+	 */
+	@Override
+	public void removeNotify() {
+		scheduler.stop();
+		super.removeNotify();
+	}
+
+	/**
+	 * Updates the coefficients, called on the event dispatch thread
+	 */
+	protected void render() {
+		CurrentSession s = session;
+		if (s == null) {
+			samples.setText("Estimation : en attente de données");
+			for (JLabel l : coefficients) {
+				l.setText("");
+			}
+			return;
+		}
+		CurrentRegression regression = s.getRegression();
+		samples.setText(regression.getNbSamples() + " mesures");
+		double[] c = regression.getCoefficients();
+		double[] r = regression.getCorrelations();
+		for (int a = 0; a < 3; a++) {
+			coefficients[a].setText(String.format(Locale.US,
+					"MAG_%s_CURRENT_COEF = %.6g   (r = %.3f)", AXES[a], c[a],
+					r[a]));
+		}
+	}
+}
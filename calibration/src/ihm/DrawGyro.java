@@ -0,0 +1,158 @@
+package ihm;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.util.Locale;
+import java.util.logging.Logger;
+
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JTextArea;
+
+import net.miginfocom.swing.MigLayout;
+import calibrate.GyroSession;
+import calibrate.TurntableRegression;
+
+/**
+ * Displays the live neutrals and sensitivities of the calibration of the
+ * gyrometers
+ */
+public class DrawGyro extends JPanel {
+
+	private static Logger logger = Logger.getLogger(DrawGyro.class.getName());
+
+	private static final long serialVersionUID = 1L;
+
+	private static final String[] AXES = { "X", "Y", "Z" };
+
+	/** Number of samples received */
+	private JLabel samples;
+	/** Rate of the turntable */
+	private JLabel rate;
+	/** Neutral and sensitivity of each axis */
+	private JLabel[] axes = new JLabel[3];
+
+	/** Repaints the view at a fixed frame rate */
+	private RenderScheduler scheduler;
+
+	/** The calibration displayed */
+	private volatile GyroSession session;
+
+	/**
+	 * @param fps
+	 *            the maximum number of repaints per second
+	 */
+	public DrawGyro(int fps) {
+		this.scheduler = new RenderScheduler(fps, new Runnable() {
+			public void run() {
+				render();
+			}
+		});
+		setLayout(new MigLayout("", "10[220px, grow 400]10",
+				"[10px][80px][20px][20px][20px][20px][20px]"));
+
+		JTextArea title = new JTextArea("Gyromètres");
+		title.setFont(new Font("Arial", Font.BOLD, 12));
+		title.setEditable(false);
+		title.setOpaque(false);
+		this.add(title, "cell 0 0,alignx center");
+
+		JTextArea instructions = new JTextArea(
+				"Instructions :\nLaisser l'avion immobile pour les neutres, "
+						+ "puis le faire tourner sur la table tournante "
+						+ "autour de chaque axe pour les sensibilités");
+		instructions.setEditable(false);
+		instructions.setLineWrap(true);
+		instructions.setWrapStyleWord(true);
+		instructions.setBackground(Color.WHITE);
+		this.add(instructions, "cell 0 1,grow");
+
+		samples = new JLabel();
+		this.add(samples, "cell 0 2,growx");
+		rate = new JLabel();
+		this.add(rate, "cell 0 3,growx");
+		for (int a = 0; a < 3; a++) {
+			axes[a] = new JLabel();
+			axes[a].setFont(new Font("Arial", Font.PLAIN, 11));
+			this.add(axes[a], "cell 0 " + (a + 4) + ",growx");
+		}
+		render();
+	}
+
+	/**
+	 * Displays a calibration, called on the event dispatch thread. The view
+	 * is repainted until stopped
+	 *
+	 * @param s
+	 *            the calibration, its samples ask for a repaint
+	 */
+	public void show(GyroSession s) {
+		this.session = s;
+		s.attach(new Runnable() {
+			public void run() {
+				scheduler.requestFrame();
+			}
+		});
+		scheduler.requestFrame();
+		scheduler.start();
+	}
+
+	/**
+	 * Stops the repaints, the view keeps its last frame until a calibration
+	 * is shown again
+	 */
+	public void stop() {
+		scheduler.stop();
+	}
+
+	/**
+	 * The view removed from its window is not repainted anymore
+	 */
+	@Override
+	public void removeNotify() {
+		scheduler.stop();
+		super.removeNotify();
+	}
+
+	/**
+	 * Updates the neutrals and the sensitivities, called on the event
+	 * dispatch thread
+	 */
+	protected void render() {
+		GyroSession s = session;
+		if (s == null) {
+			samples.setText("Estimation : en attente de données");
+			rate.setText("");
+			for (JLabel l : axes) {
+				l.setText("");
+			}
+			return;
+		}
+		TurntableRegression regression = s.getRegression();
+		samples.setText(s.size() + " mesures, " + s.getNbStationary()
+				+ " immobiles, " + regression.getNbSamples()
+				+ " sur la table tournante");
+		double r = s.getRate();
+		rate.setText(Double.isNaN(r) ? "Table tournante : absente" : String
+				.format(Locale.US, "Table tournante : %.2f rad/s", r));
+		double[] neutrals = s.getNeutrals();
+		double[] slopes = regression.getSlopes();
+		double[] intercepts = regression.getIntercepts();
+		double[] correlations = regression.getCorrelations();
+		boolean[] calibrated = regression.getCalibratedAxes();
+		for (int a = 0; a < 3; a++) {
+			// les axes tournes prennent le neutre de leur regression
+			String neutral = "-";
+			String sens = "-";
+			if (calibrated[a]) {
+				neutral = String.format(Locale.US, "%.1f", intercepts[a]);
+				sens = String.format(Locale.US, "%.6g", 1 / slopes[a]);
+			} else if (neutrals != null) {
+				neutral = String.format(Locale.US, "%.1f", neutrals[a]);
+			}
+			axes[a].setText(String.format(Locale.US,
+					"GYRO_%s_NEUTRAL = %s   GYRO_%s_SENS = %s   (r = %.3f)",
+					AXES[a], neutral, AXES[a], sens, correlations[a]));
+		}
+	}
+}
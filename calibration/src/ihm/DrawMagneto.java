@@ -25,9 +25,12 @@ public class DrawMagneto extends Draw {
 
 	/**
 	 * Creates an affichsphere for a sphere
+	 * 
+	 * @param fps
+	 *            the maximum number of repaints per second
 	 */
-	public DrawMagneto(Sphere s) {
-		super(s, "Magnétométrie", 0);
+	public DrawMagneto(Sphere s, int fps) {
+		super(s, "Magnétométrie", 0, fps);
 
 		// Affichage du texte
 		getInstructions().setText("Tourner le drone dans tous les sens");
@@ -13,6 +13,7 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.ItemEvent;
 import java.awt.event.ItemListener;
+import java.util.concurrent.CompletableFuture;
 import java.util.logging.Logger;
 
 import javax.swing.DefaultComboBoxModel;
@@ -29,12 +30,12 @@ import javax.swing.SwingUtilities;
 import javax.swing.border.LineBorder;
 
 import net.miginfocom.swing.MigLayout;
-import calibrate.PrintLog;
-
-import common.TypeCalibration;
+import calibrate.CalibrationSession;
+import calibrate.CurrentSession;
+import calibrate.GyroSession;
+import calibrate.SessionManager;
 
 import data.Aircraft;
-import data.Data;
 import ellipsoide.Sphere;
 import filtre.FilterAccel;
 import filtre.FilterMagneto;
@@ -54,13 +55,25 @@ public class MainFrame {
 	protected static int THRESHOLD_NUMBER_VECTORS_KO = 40;
 
 	private JFrame frmCalibrate;
-	private PrintLog log;
 	private IMU imu;
-	private TypeCalibration type;
+	/** The calibrations in progress */
+	private SessionManager sessions;
+	/** The calibration displayed, null on the welcome panel */
+	private CalibrationSession current;
+	/** The current calibration displayed, null if none */
+	private CurrentSession currentCalibration;
+	/** The gyrometers calibration displayed, null if none */
+	private GyroSession gyroCalibration;
+	/** The view of the calibration displayed, stopped when detached */
+	private Draw view;
+	private DrawCurrent currentView;
+	private DrawGyro gyroView;
 
 	// Buttons du menu
 	private JButton btnAccelerometer;
 	private JButton btnMagnetometer;
+	private JButton btnCurrent;
+	private JButton btnGyro;
 	private JButton btnResults;
 	private JButton btnHome;
 	// Entete
@@ -70,9 +83,13 @@ public class MainFrame {
 	private JComboBox<Aircraft> comboBoxAircraft;
 	private JComboBox<String> comboBoxSendingModes;
 
-	public MainFrame(PrintLog log, IMU imu) {
-		this.log = log;
+	// Nombre maximal de rafraîchissements par seconde des vues
+	private int fps;
+
+	public MainFrame(IMU imu, SessionManager sessions, int fps) {
 		this.imu = imu;
+		this.sessions = sessions;
+		this.fps = fps;
 
 		// Initialisation de la fenêtre
 		initialize();
@@ -106,40 +123,119 @@ public class MainFrame {
 
 		// Initialisation des panneaux Magnétomètre et Accéléromètre
 		final Sphere sphere = new Sphere(7, 7, 100);
-		final DrawMagneto panelMagneto = new DrawMagneto(sphere);
+		final DrawMagneto panelMagneto = new DrawMagneto(sphere, fps);
 		final DrawAccel panelAccelero = new DrawAccel(sphere,
-				THRESHOLD_NUMBER_VECTORS_OK);
+				THRESHOLD_NUMBER_VECTORS_OK, fps);
 
 		mainPanel.add("panelAccelero", panelAccelero);
 		mainPanel.add("panelMagneto", panelMagneto);
 
+		// Initialisation du panneau Magnétomètre / courant
+		final DrawCurrent panelCurrent = new DrawCurrent(fps);
+		mainPanel.add("panelCurrent", panelCurrent);
+
+		// Initialisation du panneau Gyromètres
+		final DrawGyro panelGyro = new DrawGyro(fps);
+		mainPanel.add("panelGyro", panelGyro);
+
 		// Initialisation du panneau Résultats
-		final Result results = new Result("Results", true, log, imu);
+		final Result results = new Result("Results", true, sessions);
 
 		// Listeners for all panels
 		addImuListeners();
+		addSessionListeners(results);
 		addComboboxListeners();
-		addButtonsListeners(mainPanel, sphere, panelMagneto, panelAccelero,
-				results);
+		addButtonsListeners(mainPanel, panelMagneto, panelAccelero,
+				panelCurrent, panelGyro, results);
+
+	}
 
+	/**
+	 * Displays a calibration in a view, the calibration displayed before keeps
+	 * collecting in background
+	 * 
+	 * @param session
+	 * @param view
+	 */
+	private void display(CalibrationSession session, Draw view) {
+		detach();
+		current = session;
+		this.view = view;
+		sessions.setDisplayed(session);
+		view.show(session.getFilter().getSphere(), session.getFilter());
+		session.getFilter().attach(view);
+	}
+
+	/**
+	 * Displays a current calibration, the calibration displayed before keeps
+	 * collecting in background
+	 * 
+	 * @param session
+	 * @param view
+	 */
+	private void display(CurrentSession session, DrawCurrent view) {
+		detach();
+		currentCalibration = session;
+		currentView = view;
+		sessions.setDisplayed(session);
+		view.show(session);
+	}
+
+	/**
+	 * Displays a gyrometers calibration, the calibration displayed before
+	 * keeps collecting in background
+	 * 
+	 * @param session
+	 * @param view
+	 */
+	private void display(GyroSession session, DrawGyro view) {
+		detach();
+		gyroCalibration = session;
+		gyroView = view;
+		sessions.setDisplayed(session);
+		view.show(session);
+	}
+
+	/**
+	 * The calibration displayed keeps collecting in background, its view is
+	 * not repainted anymore
+	 */
+	private void detach() {
+		sessions.setDisplayed(null);
+		if (current != null) {
+			current.getFilter().detach();
+			view.stop();
+			current = null;
+		}
+		if (currentCalibration != null) {
+			currentCalibration.detach();
+			currentView.stop();
+			currentCalibration = null;
+		}
+		if (gyroCalibration != null) {
+			gyroCalibration.detach();
+			gyroView.stop();
+			gyroCalibration = null;
+		}
 	}
 
 	/**
 	 * Ajoute les listeners sur les boutons
 	 * 
 	 * @param mainPanel
-	 * @param sphere
 	 * @param panelMagneto
 	 * @param panelAccelero
+	 * @param panelCurrent
+	 * @param panelGyro
 	 * @param results
 	 */
 	private void addButtonsListeners(final JPanel mainPanel,
-			final Sphere sphere, final DrawMagneto panelMagneto,
-			final DrawAccel panelAccelero, final Result results) {
+			final DrawMagneto panelMagneto, final DrawAccel panelAccelero,
+			final DrawCurrent panelCurrent, final DrawGyro panelGyro,
+			final Result results) {
 		btnResults.addActionListener(new ActionListener() {
 			public void actionPerformed(ActionEvent arg0) {
-				imu.stopListenRaw(type, log,
-						((Aircraft) comboBoxAircraft.getSelectedItem()).getId());
+				sessions.pauseDisplayed();
 				results.getCalib();
 			}
 		});
@@ -152,7 +248,6 @@ public class MainFrame {
 						SwingUtilities.invokeLater(new Runnable() {
 							public void run() {
 								logger.info("starting calibration of magnetometer...");
-								type = TypeCalibration.MAGNETOMETER;
 								ImageIcon icon = new ImageIcon(this.getClass()
 										.getResource("sphereMag.png"));
 								icon.setImage(icon.getImage()
@@ -160,21 +255,17 @@ public class MainFrame {
 												Image.SCALE_SMOOTH));
 								panelMagneto.getImageModel().setIcon(icon);
 								FilterMagneto filtre = new FilterMagneto(
-										panelMagneto);
-								Data data = new Data(filtre);
-								imu.ListenRaw(data, type, log,
+										new Sphere(7, 7, 100));
+								display(sessions.start(
 										((Aircraft) comboBoxAircraft
-												.getSelectedItem()).getId());
-								imu.stopListenAllId((Aircraft) comboBoxAircraft
-										.getSelectedItem());
-								results.setData(data);
-								results.setType(type);
-								results.setId(((Aircraft) comboBoxAircraft
-										.getSelectedItem()).getId());
+												.getSelectedItem()).getId(),
+										filtre), panelMagneto);
 								((CardLayout) mainPanel.getLayout()).show(
 										mainPanel, "panelMagneto");
 								btnMagnetometer.setEnabled(false);
 								btnAccelerometer.setEnabled(false);
+								btnCurrent.setEnabled(false);
+								btnGyro.setEnabled(false);
 								btnResults.setEnabled(true);
 								btnHome.setEnabled(true);
 								panelMagneto.getImageModel().setVisible(true);
@@ -193,7 +284,6 @@ public class MainFrame {
 						SwingUtilities.invokeLater(new Runnable() {
 							public void run() {
 								logger.info("starting calibration of accelerometer...");
-								type = TypeCalibration.ACCELEROMETER;
 								ImageIcon icon = new ImageIcon(this.getClass()
 										.getResource("sphereAccel.png"));
 								icon.setImage(icon.getImage()
@@ -203,21 +293,17 @@ public class MainFrame {
 								FilterAccel filtre = new FilterAccel(
 										THRESHOLD_NUMBER_VECTORS_OK,
 										THRESHOLD_NUMBER_VECTORS_KO,
-										panelAccelero);
-								Data data = new Data(filtre);
-								imu.ListenRaw(data, type, log,
+										new Sphere(7, 7, 100));
+								display(sessions.start(
 										((Aircraft) comboBoxAircraft
-												.getSelectedItem()).getId());
-								imu.stopListenAllId((Aircraft) comboBoxAircraft
-										.getSelectedItem());
-								results.setData(data);
-								results.setType(type);
-								results.setId(((Aircraft) comboBoxAircraft
-										.getSelectedItem()).getId());
+												.getSelectedItem()).getId(),
+										filtre), panelAccelero);
 								((CardLayout) mainPanel.getLayout()).show(
 										mainPanel, "panelAccelero");
 								btnMagnetometer.setEnabled(false);
 								btnAccelerometer.setEnabled(false);
+								btnCurrent.setEnabled(false);
+								btnGyro.setEnabled(false);
 								btnResults.setEnabled(true);
 								btnHome.setEnabled(true);
 								panelAccelero.getImageModel().setVisible(true);
@@ -230,24 +316,57 @@ public class MainFrame {
 			}
 		});
 
+		btnCurrent.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				logger.info("starting calibration of magnetometer against current...");
+				display(sessions.startCurrent(((Aircraft) comboBoxAircraft
+						.getSelectedItem()).getId()), panelCurrent);
+				((CardLayout) mainPanel.getLayout()).show(mainPanel,
+						"panelCurrent");
+				btnMagnetometer.setEnabled(false);
+				btnAccelerometer.setEnabled(false);
+				btnCurrent.setEnabled(false);
+				btnGyro.setEnabled(false);
+				btnResults.setEnabled(true);
+				btnHome.setEnabled(true);
+			}
+		});
+
+		btnGyro.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				logger.info("starting calibration of gyrometers...");
+				display(sessions.startGyro(((Aircraft) comboBoxAircraft
+						.getSelectedItem()).getId()), panelGyro);
+				((CardLayout) mainPanel.getLayout()).show(mainPanel,
+						"panelGyro");
+				btnMagnetometer.setEnabled(false);
+				btnAccelerometer.setEnabled(false);
+				btnCurrent.setEnabled(false);
+				btnGyro.setEnabled(false);
+				btnResults.setEnabled(true);
+				btnHome.setEnabled(true);
+			}
+		});
+
 		btnHome.addActionListener(new ActionListener() {
 			public void actionPerformed(ActionEvent e) {
-				imu.stopListenRaw(TypeCalibration.MAGNETOMETER, log,
-						((Aircraft) comboBoxAircraft.getSelectedItem()).getId());
-				imu.stopListenRaw(TypeCalibration.ACCELEROMETER, log,
-						((Aircraft) comboBoxAircraft.getSelectedItem()).getId());
-				imu.stopListenAllId();
-				comboBoxAircraft.removeAllItems();
-				imu.listenAllAc();
+				// la calibration affichée continue en arrière-plan, les
+				// autres avions restent suivis
+				detach();
 				new Thread(new Runnable() {
 					public void run() {
 						SwingUtilities.invokeLater(new Runnable() {
 							public void run() {
-								btnMagnetometer.setEnabled(false);
-								btnAccelerometer.setEnabled(false);
-								btnResults.setEnabled(false);
+								Aircraft ac = (Aircraft) comboBoxAircraft
+										.getSelectedItem();
+								boolean raw = ac != null && ac.isRawData();
+								btnMagnetometer.setEnabled(raw);
+								btnAccelerometer.setEnabled(raw);
+								btnCurrent.setEnabled(raw);
+								btnGyro.setEnabled(raw);
+								btnResults.setEnabled(!sessions
+										.getCalibrations().isEmpty());
 								btnHome.setEnabled(false);
-								sphere.clean();
 								((CardLayout) mainPanel.getLayout()).show(
 										mainPanel, "welcome");
 							}
@@ -258,6 +377,26 @@ public class MainFrame {
 		});
 	}
 
+	/**
+	 * Affiche le résultat des calibrations arrêtées automatiquement
+	 * 
+	 * @param results
+	 */
+	private void addSessionListeners(final Result results) {
+		sessions.addListener(new SessionManager.Listener() {
+			public void sessionCompleted(final CalibrationSession session,
+					final CompletableFuture<String> result) {
+				SwingUtilities.invokeLater(new Runnable() {
+					public void run() {
+						logger.info("calibration of " + session
+								+ " stopped automatically");
+						results.getCalib(session, result);
+					}
+				});
+			}
+		});
+	}
+
 	/**
 	 * Ajoute les listeners sur les combobox (choix du drone et type de données)
 	 */
@@ -282,11 +421,15 @@ public class MainFrame {
 													.setBackground(Color.GREEN);
 											btnMagnetometer.setEnabled(true);
 											btnAccelerometer.setEnabled(true);
+											btnCurrent.setEnabled(true);
+											btnGyro.setEnabled(true);
 										} else {
 											colorPnCorrectTelemetryMode
 													.setBackground(Color.RED);
 											btnMagnetometer.setEnabled(false);
 											btnAccelerometer.setEnabled(false);
+											btnCurrent.setEnabled(false);
+											btnGyro.setEnabled(false);
 										}
 									}
 								});
@@ -363,6 +506,8 @@ public class MainFrame {
 												.setBackground(Color.RED);
 										btnMagnetometer.setEnabled(false);
 										btnAccelerometer.setEnabled(false);
+										btnCurrent.setEnabled(false);
+										btnGyro.setEnabled(false);
 									}
 								} catch (Exception e) {
 									logger.warning("aircraftExited : comboBox AC vide");
@@ -389,6 +534,8 @@ public class MainFrame {
 
 										btnMagnetometer.setEnabled(true);
 										btnAccelerometer.setEnabled(true);
+										btnCurrent.setEnabled(true);
+										btnGyro.setEnabled(true);
 									}
 								} catch (Exception e) {
 									logger.warning("aircraftRawOn : comboBox AC vide");
@@ -413,6 +560,8 @@ public class MainFrame {
 
 										btnMagnetometer.setEnabled(false);
 										btnAccelerometer.setEnabled(false);
+										btnCurrent.setEnabled(false);
+										btnGyro.setEnabled(false);
 									}
 								} catch (Exception e) {
 									logger.warning("aircraftRawOff : comboBoxAircraft vide");
@@ -519,7 +668,7 @@ public class MainFrame {
 		frmCalibrate.getContentPane().add(menuSide, BorderLayout.WEST);
 		menuSide.setBorder(new LineBorder(Color.GRAY));
 		menuSide.setLayout(new MigLayout("", "[183px,grow 230]",
-				"[20px][46px][46px][41px][46px][46px][][][][][][]"));
+				"[20px][46px][46px][41px][41px][46px][46px][][][][][]"));
 
 		JTextPane txtpnChooseAMode = new JTextPane();
 		txtpnChooseAMode.setAlignmentY(Component.TOP_ALIGNMENT);
@@ -538,15 +687,23 @@ public class MainFrame {
 		menuSide.add(btnMagnetometer, "cell 0 2,grow");
 		btnMagnetometer.setEnabled(false);
 
+		btnCurrent = new JButton("Magnétomètres / courant");
+		menuSide.add(btnCurrent, "cell 0 3,grow");
+		btnCurrent.setEnabled(false);
+
+		btnGyro = new JButton("Gyromètres");
+		menuSide.add(btnGyro, "cell 0 4,grow");
+		btnGyro.setEnabled(false);
+
 		btnResults = new JButton("Résultats");
 		btnResults.setVisible(true);
 		btnResults.setEnabled(false);
-		menuSide.add(btnResults, "cell 0 4,grow");
+		menuSide.add(btnResults, "cell 0 5,grow");
 
 		btnHome = new JButton("Retour à l'accueil");
 		btnHome.setVisible(true);
 		btnHome.setEnabled(false);
-		menuSide.add(btnHome, "cell 0 5,grow");
+		menuSide.add(btnHome, "cell 0 6,grow");
 	}
 
 	public void setVisible(boolean visibility) {
@@ -0,0 +1,92 @@
+package ihm;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+
+import javax.swing.Timer;
+
+/**
+ * Repaints a view at a fixed frame rate. The thread receiving the samples
+ * only asks for a frame, all the requests received between two frames are
+ * coalesced into one repaint on the event dispatch thread.
+ */
+public class RenderScheduler {
+
+	private static Logger logger = Logger.getLogger(RenderScheduler.class
+			.getName());
+
+	/**
+	 * Frame rate used when none is configured
+	 */
+	public static final int DEFAULT_FPS = 30;
+
+	/**
+	 * Timer ticking on the event dispatch thread
+	 */
+	private final Timer timer;
+
+	/**
+	 * true if a frame has been requested since the last repaint
+	 */
+	private final AtomicBoolean dirty = new AtomicBoolean(false);
+
+	/**
+	 * @param fps
+	 *            the maximum number of frames per second
+	 * @param frame
+	 *            the repaint, run on the event dispatch thread
+	 */
+	public RenderScheduler(int fps, final Runnable frame) {
+		if (fps <= 0) {
+			logger.warning("invalid frame rate " + fps + ", using "
+					+ DEFAULT_FPS);
+			fps = DEFAULT_FPS;
+		}
+		timer = new Timer(Math.max(1, 1000 / fps), new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				if (dirty.getAndSet(false)) {
+					frame.run();
+				}
+			}
+		});
+		timer.setCoalesce(true);
+	}
+
+	/**
+	 * Asks for a repaint at the next frame, can be called from any thread
+	 */
+	public void requestFrame() {
+		dirty.set(true);
+	}
+
+	public void start() {
+		timer.start();
+	}
+
+	public void stop() {
+		timer.stop();
+	}
+
+	/**
+	 * Reads the frame rate in the properties
+	 * 
+	 * @param prop
+	 * @return the value of render_fps, DEFAULT_FPS if not set
+	 */
+	public static int getFrameRate(Properties prop) {
+		String fps = prop.getProperty("render_fps");
+		if (fps == null || fps.trim().isEmpty()) {
+			return DEFAULT_FPS;
+		}
+		try {
+			return Integer.parseInt(fps.trim());
+		} catch (NumberFormatException e) {
+			logger.warning("invalid render_fps " + fps + ", using "
+					+ DEFAULT_FPS);
+			return DEFAULT_FPS;
+		}
+	}
+}
@@ -11,25 +11,32 @@ import java.awt.GridBagLayout;
 import java.awt.Insets;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.logging.Logger;
 
 import javax.swing.JButton;
 import javax.swing.JDialog;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
+import javax.swing.JScrollPane;
 import javax.swing.JTextArea;
+import javax.swing.SwingUtilities;
 
-import calibrate.CalibrateSystem;
-import calibrate.PrintLog;
+import calibrate.Calibration;
+import calibrate.CalibrationSession;
+import calibrate.SessionManager;
 
 import common.ContextMenuMouseListener;
-import common.TypeCalibration;
-
-import data.Data;
 
 /**
  * Show the result of the calibration in a JDialog
@@ -44,13 +51,9 @@ public class Result extends JDialog {
 	private static int NB_LIGNES_MIN = 0;// 2000
 
 	/**
-	 * Used to command for the listeners
-	 * 
+	 * The calibrations whose results are displayed
 	 */
-	private Data data;
-	private TypeCalibration type = TypeCalibration.MAGNETOMETER;
-	private PrintLog log;
-	private int idDrone;
+	private SessionManager sessions;
 
 	private JTextArea textPaneResults;
 
@@ -60,12 +63,12 @@ public class Result extends JDialog {
 	 * @param title
 	 *            title of the JDialog
 	 * @param modal
-	 * @param imu
-	 *            the imu
+	 * @param sessions
+	 *            the calibrations in progress
 	 */
-	public Result(String title, boolean modal, final PrintLog log, final IMU imu) {
+	public Result(String title, boolean modal, final SessionManager sessions) {
 		super();
-		this.log = log;
+		this.sessions = sessions;
 		this.setTitle("Results");
 		// The size of the JDialog
 		this.setBounds(100, 100, 400, 300);
@@ -98,7 +101,7 @@ public class Result extends JDialog {
 		gbc_textPane.fill = GridBagConstraints.BOTH;
 		gbc_textPane.gridx = 0;
 		gbc_textPane.gridy = 1;
-		getContentPane().add(textPaneResults, gbc_textPane);
+		getContentPane().add(new JScrollPane(textPaneResults), gbc_textPane);
 
 		JPanel panel = new JPanel();
 		GridBagConstraints gbc_panel = new GridBagConstraints();
@@ -115,11 +118,15 @@ public class Result extends JDialog {
 		btnRetour.addActionListener(new ActionListener() {
 			public void actionPerformed(ActionEvent e) {
 				setVisible(false);
-				imu.ListenRaw(data, type, log, idDrone);
+				sessions.resumePaused();
 			}
 		});
 	}
 
+	/**
+	 * Solves the calibration of all the sessions in parallel, each result is
+	 * displayed as soon as it is available
+	 */
 	public void getCalib() {
 		this.setVisible(true);
 
@@ -129,23 +136,26 @@ public class Result extends JDialog {
 			input = new FileInputStream("config.properties");
 			Properties prop = new Properties();
 			prop.load(input);
-			String calibrationData = prop
-					.getProperty("autofocus_calibration_data");
-			String paparazziScriptCalibration = prop
-					.getProperty("paparazzi_script_calibration");
-
-			if (log.dataSize() > NB_LIGNES_MIN) {
-				textPaneResults.setText("calcul en cours...");
-
-				log.print(calibrationData);
-
-				new CalibrateSystem(type, paparazziScriptCalibration,
-						calibrationData, textPaneResults).run();
-			} else {
-				textPaneResults.setText("quantité de données insuffisante");
-				logger.info("quantité de données insuffisante pour pouvoir calculer une calibration : "
-						+ log.dataSize() + "/" + NB_LIGNES_MIN);
+
+			final List<Calibration> list = sessions.getCalibrations();
+			final String[] texts = new String[list.size()];
+			for (int i = 0; i < list.size(); i++) {
+				final int index = i;
+				Calibration session = list.get(i);
+				if (session.size() > NB_LIGNES_MIN) {
+					texts[i] = "calcul en cours...";
+					await(sessions.solve(session, prop), list, texts, index);
+				} else {
+					texts[i] = "quantité de données insuffisante";
+					logger.info("quantité de données insuffisante pour pouvoir calculer une calibration de "
+							+ session
+							+ " : "
+							+ session.size()
+							+ "/"
+							+ NB_LIGNES_MIN);
+				}
 			}
+			display(list, texts);
 		} catch (FileNotFoundException e) {
 			logger.warning(e.getMessage());
 		} catch (IOException e) {
@@ -153,22 +163,85 @@ public class Result extends JDialog {
 		}
 	}
 
-	/** set the data in order to be able to begin the raw collect again */
-	public void setData(Data d) {
-		this.data = d;
+	/**
+	 * Displays the result of a session stopped by its auto stop, the other
+	 * sessions keep collecting. Called on the event dispatch thread
+	 * 
+	 * @param session
+	 * @param result
+	 *            the text of the result, completed by a solver
+	 */
+	public void getCalib(CalibrationSession session,
+			CompletableFuture<String> result) {
+		this.setVisible(true);
+		List<Calibration> list = Collections
+				.<Calibration> singletonList(session);
+		String[] texts = new String[] { "calcul en cours..." };
+		await(result, list, texts, 0);
+		display(list, texts);
+	}
+
+	/**
+	 * Displays the result of a session when it is completed
+	 */
+	private void await(CompletableFuture<String> result,
+			final List<Calibration> list, final String[] texts, final int index) {
+		result.thenAccept(new Consumer<String>() {
+			public void accept(String parameters) {
+				show(list, texts, index, parameters);
+			}
+		}).exceptionally(new Function<Throwable, Void>() {
+			public Void apply(Throwable e) {
+				logger.warning(e.getMessage());
+				show(list, texts, index, "Unable to calibrate");
+				return null;
+			}
+		});
 	}
 
-	/** set the type of the current calibration */
-	public void setType(TypeCalibration t) {
-		this.type = t;
+	/**
+	 * Displays the result of a session, from any thread
+	 */
+	private void show(final List<Calibration> list,
+			final String[] texts, final int index, final String parameters) {
+		SwingUtilities.invokeLater(new Runnable() {
+			public void run() {
+				texts[index] = parameters;
+				display(list, texts);
+			}
+		});
 	}
 
-	public void setId(int id) {
-		this.idDrone = id;
+	/**
+	 * Displays the results of all the sessions, on the event dispatch thread
+	 */
+	private void display(List<Calibration> list, String[] texts) {
+		if (list.isEmpty()) {
+			textPaneResults.setText("aucune calibration en cours");
+			return;
+		}
+		String nl = System.getProperty("line.separator");
+		StringBuffer text = new StringBuffer();
+		for (int i = 0; i < list.size(); i++) {
+			text.append("--- " + list.get(i) + " ---" + nl);
+			text.append(texts[i] + nl);
+		}
+		textPaneResults.setText(text.toString());
+		textPaneResults.setCaretPosition(0);
 	}
 
 	public static void main(String[] args) {
-		new Result("test", true, new PrintLog(), new IMU()).setVisible(true);
+		final IMU imu = new IMU();
+		final SessionManager sessions = new SessionManager(imu, 1);
+		Result result = new Result("test", true, sessions);
+		result.setDefaultCloseOperation(DISPOSE_ON_CLOSE);
+		result.addWindowListener(new WindowAdapter() {
+			public void windowClosed(WindowEvent e) {
+				sessions.shutdown();
+				imu.close();
+			}
+		});
+		result.setVisible(true);
 	}
 
 	/**
@@ -12,7 +12,7 @@ import java.util.logging.Logger;
 import javax.swing.JPanel;
 
 import ellipsoide.Sphere;
-import ellipsoide.Zone;
+import ellipsoide.SphereSnapshot;
 
 /**
  * Classe en charge d'afficher la sphere
@@ -39,14 +39,24 @@ public class SpherePanel extends JPanel {
 	 */
 	private Sphere sphere;
 	/**
-	 * The list of the zones belonging to the sphere. It allows us to draw each
-	 * of them at each iteration
+	 * The last state of the sphere taken. It allows us to draw each of the
+	 * zones at each frame without locking the sphere
 	 */
-	private List<Zone> zones;
+	private SphereSnapshot snapshot;
 
 	public SpherePanel(Sphere p_sphere) {
 		this.sphere = p_sphere;
-		this.zones = p_sphere.getZones();
+		this.snapshot = p_sphere.snapshot();
+	}
+
+	/**
+	 * Displays another sphere from the next repaint
+	 * 
+	 * @param p_sphere
+	 */
+	public void setSphere(Sphere p_sphere) {
+		this.sphere = p_sphere;
+		majZone();
 	}
 
 	/**
@@ -63,34 +73,35 @@ public class SpherePanel extends JPanel {
 		Graphics2D g2d = (Graphics2D) graphics;
 		g2d.clearRect(0, 0, super.getHeight(), super.getWidth());
 
+		SphereSnapshot current = snapshot;
 		List<Point2D> points;
 		// useful store structure
-		int nbrPoints = zones.get(1).getListContour().size();
+		int nbrPoints = current.getContour(1).size();
+		int rayon = current.getRayon();
 
 		// Redraw all the zones
-		for (Zone zone : zones) {
-			points = zone.getListContour();
+		for (int i = 0; i < current.getNbZones(); i++) {
+			points = current.getContour(i);
 			// Couleur rouge ou verte (+/- foncée) selon la densité
-			Color color = new Color(255 - zone.getDensity().getColor(), zone
-					.getDensity().getColor(), 0);
-			drawZone(g2d, points, nbrPoints, color, true);
+			Color color = new Color(255 - current.getColor(i),
+					current.getColor(i), 0);
+			drawZone(g2d, points, nbrPoints, rayon, color, true);
 		}
 		// Draws the current zone
-		Zone currZone = sphere.getCurrentZone();
-		points = currZone.getListContour();
-		drawZone(g2d, points, nbrPoints, Color.yellow, false);
+		points = current.getContour(current.getCurrentZone());
+		drawZone(g2d, points, nbrPoints, rayon, Color.yellow, false);
 	}
 
 	private void drawZone(Graphics2D g2d, List<Point2D> points, int nbrPoints,
-			Color color, boolean fillPolygon) {
+			int rayon, Color color, boolean fillPolygon) {
 		int xPoints[] = new int[nbrPoints];
 		int yPoints[] = new int[nbrPoints];
 		int i = 0;
 
 		for (Point2D point : points) {
-			xPoints[i] = (int) ((point.getX() / (float) sphere.getRayon()
+			xPoints[i] = (int) ((point.getX() / (float) rayon
 					* (float) super.getWidth() / 2 + (float) super.getWidth() / 2));
-			yPoints[i] = (int) ((point.getY() / (float) sphere.getRayon()
+			yPoints[i] = (int) ((point.getY() / (float) rayon
 					* (float) super.getHeight() / 2 + (float) super.getHeight() / 2));
 			i++;
 		}
@@ -107,10 +118,10 @@ public class SpherePanel extends JPanel {
 	}
 
 	/**
-	 * Recalculates all the zones thanks to sphere
+	 * Takes the current state of the sphere to display at the next repaint
 	 */
 	public void majZone() {
-		zones = sphere.getZones();
+		snapshot = sphere.snapshot();
 	}
 
 }
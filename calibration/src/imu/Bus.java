@@ -0,0 +1,81 @@
+package imu;
+
+import fr.dgac.ivy.IvyException;
+import fr.dgac.ivy.IvyMessageListener;
+
+/**
+ * The bus the application talks to the aircrafts and the ground on. A
+ * listener bound to a regexp receives the messages the regexp is found in,
+ * with the groups of the regexp as arguments.
+ * 
+ * @see IvyBus
+ * @see LoopbackBus
+ */
+public interface Bus {
+
+	/**
+	 * Connects to the bus
+	 * 
+	 * @param domain
+	 *            the domain of the bus, null for the default one
+	 * @throws IvyException
+	 */
+	void start(String domain) throws IvyException;
+
+	/**
+	 * Disconnects from the bus
+	 */
+	void stop();
+
+	/**
+	 * Sends a message to the agents bound to it
+	 * 
+	 * @param message
+	 * @return the number of agents the message has been sent to
+	 * @throws IvyException
+	 */
+	int sendMsg(String message) throws IvyException;
+
+	/**
+	 * Receives the messages matching a regexp
+	 * 
+	 * @param regexp
+	 * @param listener
+	 * @return the id of the binding
+	 * @throws IvyException
+	 *             if the regexp is not valid
+	 */
+	int bindMsg(String regexp, IvyMessageListener listener)
+			throws IvyException;
+
+	/**
+	 * Receives the first message matching a regexp, the binding is then
+	 * removed
+	 * 
+	 * @param regexp
+	 * @param listener
+	 * @return the id of the binding
+	 * @throws IvyException
+	 *             if the regexp is not valid
+	 */
+	int bindMsgOnce(String regexp, IvyMessageListener listener)
+			throws IvyException;
+
+	/**
+	 * Removes a binding
+	 * 
+	 * @param id
+	 *            the id of the binding
+	 * @throws IvyException
+	 *             if there is no such binding
+	 */
+	void unBindMsg(int id) throws IvyException;
+
+	/**
+	 * Removes the binding of a regexp
+	 * 
+	 * @param regexp
+	 * @return false if the regexp is not bound
+	 */
+	boolean unBindMsg(String regexp);
+}
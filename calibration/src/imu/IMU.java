@@ -1,25 +1,29 @@
 package imu;
 
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntFunction;
 import java.util.logging.Logger;
 
-import javax.swing.Timer;
 import javax.swing.event.EventListenerList;
 
 import rawmode.ExtractRawData;
-import calibrate.PrintLog;
+import calibrate.CalibrateGyro;
+import calibrate.Calibration;
+import calibrate.CalibrationSession;
+import calibrate.CurrentSession;
+import calibrate.GyroSession;
 
 import common.TypeCalibration;
 
 import data.Aircraft;
-import data.Data;
-import fr.dgac.ivy.Ivy;
+import data.AircraftRegistry;
+import data.TelemetryDecoder;
 import fr.dgac.ivy.IvyClient;
 import fr.dgac.ivy.IvyException;
 import fr.dgac.ivy.IvyMessageListener;
@@ -34,24 +38,43 @@ public class IMU {
 
 	private static Logger logger = Logger.getLogger(IMU.class.getName());
 
-	/** list of the names of the connected Aircraft */
-	private Set<Aircraft> acL;
+	/** the aircrafts on the bus, by id */
+	private final AircraftRegistry acL = new AircraftRegistry();
+	/** builds the aircrafts added to the registry */
+	private final IntFunction<Aircraft> acFactory = new IntFunction<Aircraft>() {
+		public Aircraft apply(int acId) {
+			return buildAc(acId);
+		}
+	};
 	/** bus to which the IMU is connected */
-	private static Ivy bus;
+	private final Bus bus;
 	/** Listeners store */
 	private final EventListenerList listeners = new EventListenerList();
-	/** for request */
-	// FIXME : what is this variable ? why 42 ??
-	final Integer reqid = 42;
+	/** sends the requests and correlates their answers */
+	private final IvyRequester requester;
+	/** dispatches the messages of the bus to the aircrafts */
+	private final MessageRouter router;
+	/** the handler of the messages of each calibration listening */
+	private final Map<Calibration, MessageRouter.Handler> listening = new ConcurrentHashMap<Calibration, MessageRouter.Handler>();
+	/** the handler of the turntable of each gyrometers calibration */
+	private final Map<GyroSession, MessageRouter.Handler> turntables = new ConcurrentHashMap<GyroSession, MessageRouter.Handler>();
+	/** Time without message after which a stream has stopped, in ms */
+	private static final long STREAM_TIMEOUT = 2000;
+	/** detects the aircrafts and the raw data which have stopped */
+	private final TimeoutWheel timeouts = new TimeoutWheel();
 	/** used to update the presence of any aircraft */
-	private Hashtable<Integer, Timer> timerPresence;
+	private final Hashtable<Integer, TimeoutWheel.Timeout> timerPresence = new Hashtable<Integer, TimeoutWheel.Timeout>();
 	/** used to update Raw presence for every aircraft */
-	private Hashtable<Integer, Timer> timerRaw;
+	private final Hashtable<Integer, TimeoutWheel.Timeout> timerRaw = new Hashtable<Integer, TimeoutWheel.Timeout>();
+	/** follows the presence and the raw data of every aircraft */
+	private final Hashtable<Integer, MessageRouter.Handler> handlerPresence = new Hashtable<Integer, MessageRouter.Handler>();
+	/** follows the telemetry mode of every aircraft */
+	private final Hashtable<Integer, MessageRouter.Handler> handlerMode = new Hashtable<Integer, MessageRouter.Handler>();
 
 	/** Method returning name list */
 	public List<String> getNames() {
 		List<String> l = new ArrayList<String>();
-		for (Aircraft ac : acL) {
+		for (Aircraft ac : acL.snapshot()) {
 			l.add(ac.getName());
 		}
 		return l;
@@ -89,7 +112,6 @@ public class IMU {
 	 * @param as
 	 */
 	private void fireAircraftConnected(final Aircraft ac) {
-		timerPresence.get(ac.getId()).start();
 		for (IMUListener imuL : this.getIMUListeners()) {
 			imuL.aircraftConnected(ac);
 		}
@@ -101,7 +123,6 @@ public class IMU {
 	 * @param ac
 	 */
 	private void fireAircraftRawOn(Aircraft ac) {
-		timerRaw.get(ac.getId()).start();
 		for (IMUListener imuL : this.getIMUListeners()) {
 			imuL.aircraftRawOn(ac);
 		}
@@ -113,7 +134,6 @@ public class IMU {
 	 * @param ac
 	 */
 	protected void fireAircraftRawOff(Aircraft ac) {
-		timerRaw.get(ac.getId()).stop();
 		for (IMUListener imuL : this.getIMUListeners()) {
 			imuL.aircraftRawOff(ac);
 		}
@@ -136,7 +156,6 @@ public class IMU {
 	 * @param ac
 	 */
 	protected void fireAircraftExited(Aircraft ac) {
-		timerPresence.get(ac.getId()).stop();
 		for (IMUListener imuL : this.getIMUListeners()) {
 			imuL.aircraftExited(ac);
 		}
@@ -146,121 +165,107 @@ public class IMU {
 	 * creates a new aircraft in the model
 	 * 
 	 * @param acId
-	 * @param reqid
-	 * @return the built aircraft
+	 * @return the built aircraft, its configuration is updated when received
 	 */
-	private Aircraft buildAc(final int acId, int reqid) {
+	private Aircraft buildAc(final int acId) {
 		final Aircraft ac = new Aircraft("", acId, "", 0,
 				new ArrayList<String>(), 0);
-		try {
-			bus.bindMsgOnce(("^" + reqid + " " + "[A-Za-z0-9]+ CONFIG (.*)"),
-					new IvyMessageListener() {
-						public void receive(IvyClient arg0, String[] args) {
-							String temp[] = args[0].split(" ");
-							// Update Aircraft with informations found
-							ac.setName(temp[6]);
-							ac.setSettings(temp[4]);
-							final List<String> listMod = new ArrayList<String>();
-							try {
-								// Detect all the available modes of the drone
-								ExtractRawData allModes = new ExtractRawData(
-										String.valueOf(temp[4].subSequence(7,
-												temp[4].length())));
-								for (String s : allModes.extract()) {
-									listMod.add(s);
-								}
-								ac.setModes(listMod);
-								ac.setIndexTelemetry(allModes.getIndex());
-							} catch (Exception e) {
-								logger.warning("Extract mode issue, modes list probably wrong , file \""
-										+ temp[4] + "\"");
-								logger.warning(e.getMessage());
-							}
-						}
-					});
-			Thread.sleep(20);
-			bus.sendMsg("calibrate " + reqid + " CONFIG_REQ " + acId);
-			Thread.sleep(20);
-
-			// Creates a timer to check if the aircraft is present
-			timerPresence.put(new Integer(acId), new Timer(2000,
-					new ActionListener() {
-						public void actionPerformed(ActionEvent arg0) {
-							if (ac.isConnected()) {
-								fireAircraftExited(ac);
-								ac.connected(false);
+		requester.request("[A-Za-z0-9]+", "CONFIG", String.valueOf(acId))
+				.thenAccept(new Consumer<String>() {
+					public void accept(String config) {
+						String temp[] = config.split(" ");
+						// Update Aircraft with informations found
+						ac.setName(temp[6]);
+						ac.setSettings(temp[4]);
+						final List<String> listMod = new ArrayList<String>();
+						try {
+							// Detect all the available modes of the drone
+							ExtractRawData allModes = new ExtractRawData(
+									String.valueOf(temp[4].subSequence(7,
+											temp[4].length())));
+							for (String s : allModes.extract()) {
+								listMod.add(s);
 							}
+							ac.setModes(listMod);
+							ac.setIndexTelemetry(allModes.getIndex());
+						} catch (Exception e) {
+							logger.warning("Extract mode issue, modes list probably wrong , file \""
+									+ temp[4] + "\"");
+							logger.warning(e.getMessage());
 						}
-					}));
-			// add a listener to the telemetry mode of the aircraft
-			bus.bindMsg("^ground" + " DL_VALUES ([0-9]+) (.*)",
-					new IvyMessageListener() {
-						public void receive(IvyClient arg0, String[] args) {
-							int currMode = (Double.valueOf(args[1].split(",")[ac
-									.getIndexTelemetry()]).intValue());
-							if (Integer.valueOf(args[0]).equals(
-									Integer.valueOf(acId))
-									&& ac.getMode() != currMode) {
-								ac.setMode(currMode);
-								fireAircraftModChanged(ac);
-							}
-							try {
-								Thread.sleep(20);
-							} catch (InterruptedException e) {
-								logger.warning(e.getMessage());
-							}
-							// it is considered that the two first DL_SETTINGS
-							// of the .XML of the drone are unused
-							// FIXME : why ??
-						}
-					});
-			// Creates timer to check raw
-			timerRaw.put(new Integer(acId), new Timer(2000,
-					new ActionListener() {
-						public void actionPerformed(ActionEvent arg0) {
-							if (ac.isRawData()) {
-								fireAircraftRawOff(ac);
-								ac.setRaw(false);
-							}
+					}
+				}).exceptionally(new Function<Throwable, Void>() {
+					public Void apply(Throwable e) {
+						logger.warning("no configuration received for aircraft "
+								+ acId + " : " + e.getMessage());
+						return null;
+					}
+				});
+
+		// Creates a timeout to check if the aircraft is present, the expiry
+		// is called by the thread of the wheel
+		final TimeoutWheel.Timeout presence = timeouts.newTimeout(
+				STREAM_TIMEOUT, new Runnable() {
+					public void run() {
+						if (ac.connected(false)) {
+							fireAircraftExited(ac);
 						}
-					}));
-			// Creates associated listener
-			bus.bindMsg("^" + acId + " IMU_[A-Z]+_RAW(.*)",
-					new IvyMessageListener() {
-						public void receive(IvyClient arg0, String[] args) {
-							try {
-								Thread.sleep(20);
-							} catch (InterruptedException e) {
-								logger.warning(e.getMessage());
-							}
-							if (!ac.isRawData()) {
-								ac.setRaw(true);
-								fireAircraftRawOn(ac);
-							}
-							timerRaw.get(acId).restart();
+					}
+				});
+		timerPresence.put(acId, presence);
+		// add a listener to the telemetry mode of the aircraft
+		MessageRouter.Handler mode = new MessageRouter.Handler() {
+			private final TelemetryDecoder decoder = new TelemetryDecoder();
+
+			public synchronized void receive(int id, String name, String values) {
+				int currMode = (int) decoder.reset(values)
+						.skip(ac.getIndexTelemetry()).nextDouble();
+				if (ac.setMode(currMode)) {
+					fireAircraftModChanged(ac);
+				}
+				// it is considered that the two first DL_SETTINGS
+				// of the .XML of the drone are unused
+				// FIXME : why ??
+			}
+		};
+		handlerMode.put(acId, mode);
+		router.bindGround(acId, "DL_VALUES", mode);
+		// Creates timeout to check raw
+		final TimeoutWheel.Timeout raw = timeouts.newTimeout(STREAM_TIMEOUT,
+				new Runnable() {
+					public void run() {
+						if (ac.setRaw(false)) {
+							fireAircraftRawOff(ac);
 						}
-					});
-		} catch (InterruptedException e) {
-			logger.warning("thread sleep fail in IMU, aircraft list probably incorrect");
-			logger.warning(e.getMessage());
-		} catch (IvyException e) {
-			logger.warning("Ivy reception failed in IMU, aircraft list probably incorrect");
-			logger.warning(e.getMessage());
-		}
-		try {
-			String test = new String("^" + acId);
-			bus.bindMsg(test, new IvyMessageListener() {
-				public void receive(IvyClient arg0, final String args[]) {
-					if (!ac.isConnected() && ac.getModes().size() != 0) {
-						fireAircraftConnected(ac);
-						ac.connected(true);
 					}
-					timerPresence.get(acId).restart();
+				});
+		timerRaw.put(acId, raw);
+		// Creates associated listener, on all the messages of the aircraft
+		MessageRouter.Handler present = new MessageRouter.Handler() {
+			public void receive(int id, String name, String payload) {
+				// présence de l'avion : la date est notee avant le
+				// changement d'etat, l'expiration ne le defait pas
+				presence.touch();
+				if (!ac.isConnected() && ac.getModes().size() != 0
+						&& ac.connected(true)) {
+					fireAircraftConnected(ac);
 				}
-			});
-		} catch (IvyException e) {
-			logger.warning(e.getMessage());
-		}
+
+				// présence des données brutes (IMU_*_RAW, ou mesures
+				// du courant)
+				if (name.startsWith("IMU_")
+						&& (name.endsWith("_RAW") || name
+								.equals(TypeCalibration.MAG_CURRENT
+										.getRawMessage()))) {
+					raw.touch();
+					if (!ac.isRawData() && ac.setRaw(true)) {
+						fireAircraftRawOn(ac);
+					}
+				}
+			}
+		};
+		handlerPresence.put(acId, present);
+		router.bind(acId, MessageRouter.ANY_MESSAGE, present);
 		logger.info("new aircraft built with id=" + acId);
 		return ac;
 	}
@@ -271,47 +276,51 @@ public class IMU {
 	 * @param ac
 	 */
 	public void deleteAc(Aircraft ac) {
-		bus.unBindMsg("^ground" + " DL_VALUES ([0-9]+) (.*)");
-		bus.unBindMsg("^" + ac.getId() + " IMU_[A-Z]+_RAW(.*)");
-		bus.unBindMsg("^" + ac.getId());
-		timerPresence.get(ac.getId()).stop();
-		timerRaw.get(ac.getId()).stop();
-		acL.remove(ac);
+		acL.remove(ac.getId(), release);
 	}
 
+	/**
+	 * Stops the bindings and the timers of an aircraft removed from the
+	 * registry, called under its lock. The handlers of the calibrations are
+	 * kept : the calibration displayed receives again the raw data when the
+	 * aircraft comes back
+	 */
+	private final Consumer<Aircraft> release = new Consumer<Aircraft>() {
+		public void accept(Aircraft ac) {
+			router.unbind(ac.getId(), MessageRouter.ANY_MESSAGE,
+					handlerPresence.remove(ac.getId()));
+			router.unbindGround(ac.getId(), "DL_VALUES",
+					handlerMode.remove(ac.getId()));
+			timerPresence.remove(ac.getId()).cancel();
+			timerRaw.remove(ac.getId()).cancel();
+		}
+	};
+
+	/** adds the aircrafts announced by the ground */
+	private final MessageRouter.Handler newAircraft = new MessageRouter.Handler() {
+		public void receive(int acId, String name, String payload) {
+			logger.info("new aircraft detected");
+			acL.addIfAbsent(acId, acFactory);
+		}
+	};
+
+	/** removes the aircrafts lost by the ground */
+	private final MessageRouter.Handler aircraftDie = new MessageRouter.Handler() {
+		public void receive(int acId, String name, String payload) {
+			logger.info("aircraft dies");
+			Aircraft dead = acL.remove(acId, release);
+			if (dead != null && dead.connected(false)) {
+				fireAircraftExited(dead);
+			}
+		}
+	};
+
 	/** Method used to keep up to date the list of all connected aicrafts */
 	private void refreshAllAc() {
-		try {
-			String test = new String("^ground NEW_AIRCRAFT ([0-9]*)");
-			bus.bindMsg(test, new IvyMessageListener() {
-				public void receive(IvyClient arg0, final String args[]) {
-					logger.info("new aircraft detected");
-					acL.add(buildAc(new Integer(args[0]), reqid));
-				}
-			});
-			test = new String("^ground AIRCRAFT_DIE ([0-9]*)");
-			bus.bindMsg(test, new IvyMessageListener() {
-				public void receive(IvyClient arg0, final String args[]) {
-					logger.info("aircraft dies");
-					int i = 0;
-					int res = 0;
-					for (Aircraft ac : acL) {
-						if (ac.getId() == Integer.valueOf(args[0]).intValue()) {
-							res = i;
-							fireAircraftExited(ac);
-						}
-						i++;
-					}
-					acL.remove(res);
-				}
-			});
-			Thread.sleep(20);
-			test = new String("^ground" + " DL_VALUES ([0-9]+) (.*)");
-		} catch (IvyException e) {
-			logger.warning(e.getMessage());
-		} catch (InterruptedException e) {
-			logger.warning(e.getMessage());
-		}
+		router.bindGround(MessageRouter.ANY_AIRCRAFT, "NEW_AIRCRAFT",
+				newAircraft);
+		router.bindGround(MessageRouter.ANY_AIRCRAFT, "AIRCRAFT_DIE",
+				aircraftDie);
 	}
 
 	/**
@@ -319,23 +328,22 @@ public class IMU {
 	 * 
 	 */
 	public void getAllAc() {
-		try {
-			bus.bindMsgOnce(("^" + reqid + " " + "ground AIRCRAFTS (.*)"),
-					new IvyMessageListener() {
-						public void receive(IvyClient arg0, String[] args) {
-							String temp[] = args[0].split(",");
-							for (String id : temp) {
-								acL.add(buildAc(Integer.valueOf(id), reqid));
-							}
+		requester.request("ground", "AIRCRAFTS", "")
+				.thenAccept(new Consumer<String>() {
+					public void accept(String aircrafts) {
+						String temp[] = aircrafts.split(",");
+						for (String id : temp) {
+							acL.addIfAbsent(Integer.parseInt(id.trim()),
+									acFactory);
 						}
-					});
-			Thread.sleep(20);
-			bus.sendMsg("IMU " + reqid + " AIRCRAFTS_REQ");
-		} catch (IvyException e) {
-			logger.warning(e.getMessage());
-		} catch (InterruptedException e) {
-			logger.warning(e.getMessage());
-		}
+					}
+				}).exceptionally(new Function<Throwable, Void>() {
+					public Void apply(Throwable e) {
+						logger.warning("no aircraft list received : "
+								+ e.getMessage());
+						return null;
+					}
+				});
 	}
 
 	/**
@@ -352,94 +360,191 @@ public class IMU {
 	 * 
 	 */
 	public void stopListenAllId() {
-		bus.unBindMsg("^ground NEW_AIRCRAFT ([0-9]*)");
-		bus.unBindMsg("^ground AIRCRAFT_DIE ([0-9]*)");
-		bus.unBindMsg("^ground" + " DL_VALUES ([0-9]+) (.*)");
-		for (Aircraft ac : acL) {
+		router.unbindGround(MessageRouter.ANY_AIRCRAFT, "NEW_AIRCRAFT",
+				newAircraft);
+		router.unbindGround(MessageRouter.ANY_AIRCRAFT, "AIRCRAFT_DIE",
+				aircraftDie);
+		for (Aircraft ac : acL.snapshot()) {
 			deleteAc(ac);
 		}
 	}
 
 	/**
-	 * Delete all aircraft in the model except the one given as argument used
-	 * when a calibration mode has been chosen
+	 * Binds the handler of the messages of a calibration, replacing the one
+	 * already bound for it : a calibration listens once, and the other
+	 * handlers of the same message are kept
 	 * 
-	 * @param acToSave
+	 * @param session
+	 * @param handler
+	 *            the handler of the messages of the type of the calibration
 	 */
-	public void stopListenAllId(Aircraft acToSave) {
-		bus.unBindMsg("^ground NEW_AIRCRAFT ([0-9]*)");
-		bus.unBindMsg("^ground AIRCRAFT_DIE ([0-9]*)");
-		bus.unBindMsg("^ground" + " DL_VALUES ([0-9]+) (.*)");
-		for (Aircraft ac : acL) {
-			if (!ac.equals(acToSave)) {
-				deleteAc(ac);
-			}
+	private void listen(Calibration session, MessageRouter.Handler handler) {
+		String message = session.getType().getRawMessage();
+		MessageRouter.Handler previous = listening.put(session, handler);
+		if (previous != null) {
+			router.unbind(session.getAcId(), message, previous);
 		}
+		router.bind(session.getAcId(), message, handler);
 	}
 
 	/**
-	 * method called to listen the RAW DATA messages on the IVY bus
+	 * Unbinds the handler of the messages of a calibration
 	 * 
-	 * @param data
-	 * @param calibration
+	 * @param session
 	 */
-	public void ListenRaw(final Data data, final TypeCalibration calibration,
-			final PrintLog log, final int idDrone) {
-		logger.info("listening raw datas for drone " + idDrone + "...");
-		try {
+	private void stopListening(Calibration session) {
+		MessageRouter.Handler handler = listening.remove(session);
+		if (handler != null) {
+			router.unbind(session.getAcId(), session.getType()
+					.getRawMessage(), handler);
+		}
+	}
 
-			// build the regexp according to parameters
-			StringBuffer regexp = new StringBuffer("^");
-			regexp.append(idDrone);
-			regexp.append(TypeCalibration.MAGNETOMETER.equals(calibration) ? " IMU_MAG_RAW"
-					: " IMU_ACCEL_RAW");
+	/**
+	 * @param session
+	 * @return true if the calibration receives the messages of its sensor
+	 */
+	public boolean isListening(Calibration session) {
+		return listening.containsKey(session);
+	}
 
-			regexp.append(" ([\\-]*[0-9]+)");
-			regexp.append(" ([\\-]*[0-9]+)");
-			regexp.append(" ([\\-]*[0-9]+)");
-			String test = regexp.toString();
+	/**
+	 * method called to listen the RAW DATA messages of a calibration session
+	 * on the IVY bus, the aircraft keeps its other bindings
+	 * 
+	 * @param session
+	 *            the calibration of a sensor of an aircraft
+	 */
+	public void ListenRaw(final CalibrationSession session) {
+		logger.info("listening raw datas for " + session + "...");
+		listen(session, new MessageRouter.Handler() {
+			private final TelemetryDecoder decoder = new TelemetryDecoder();
+
+			public synchronized void receive(int acId, String name,
+					String payload) {
+				try {
+					decoder.reset(payload);
+					session.store(decoder.nextInt(), decoder.nextInt(),
+							decoder.nextInt(), System.nanoTime());
+				} catch (NumberFormatException e) {
+					logger.fine("message ignored for " + session + " : \""
+							+ payload + "\"");
+				}
+			}
+		});
+	}
 
-			bus.bindMsg(test, new IvyMessageListener() {
-				public void receive(IvyClient arg0, final String args[]) {
-					// logger.info("IMY mess received  "
-					// + Integer.valueOf(args[0]) + " "
-					// + Integer.valueOf(args[1]) + " "
-					// + Integer.valueOf(args[2]));
-					data.store(Integer.valueOf(args[0]),
-							Integer.valueOf(args[1]), Integer.valueOf(args[2]));
-
-					log.add(idDrone
-							+ (TypeCalibration.MAGNETOMETER.equals(calibration) ? " IMU_MAG_RAW"
-									: " IMU_ACCEL_RAW") + " " + args[0] + " "
-							+ args[1] + " " + args[2]);
+	/**
+	 * unbind a calibration session from data messages
+	 * 
+	 * @param session
+	 *            the calibration of a sensor of an aircraft
+	 */
+	public void stopListenRaw(final CalibrationSession session) {
+		stopListening(session);
+
+		logger.warning("stopped listening raw datas for " + session);
+	}
+
+	/**
+	 * method called to listen the magnetometer and current messages of a
+	 * current calibration on the IVY bus
+	 * 
+	 * @param session
+	 *            the current calibration of an aircraft
+	 */
+	public void ListenCurrent(final CurrentSession session) {
+		logger.info("listening current datas for " + session + "...");
+		listen(session, new MessageRouter.Handler() {
+			private final TelemetryDecoder decoder = new TelemetryDecoder();
+
+			public synchronized void receive(int acId, String name,
+					String payload) {
+				try {
+					decoder.reset(payload);
+					session.store(decoder.nextDouble(), decoder.nextDouble(),
+							decoder.nextDouble(), decoder.nextDouble());
+				} catch (NumberFormatException e) {
+					logger.fine("message ignored for " + session + " : \""
+							+ payload + "\"");
 				}
-			});
-		} catch (Exception e) {
-			logger.warning("Erreur d'initialisation d'IMU");
-			logger.warning(e.getMessage());
+			}
+		});
+	}
+
+	/**
+	 * unbind a current calibration from its messages
+	 * 
+	 * @param session
+	 *            the current calibration of an aircraft
+	 */
+	public void stopListenCurrent(final CurrentSession session) {
+		stopListening(session);
+
+		logger.warning("stopped listening current datas for " + session);
+	}
+
+	/**
+	 * method called to listen the IMU_GYRO_RAW messages of a gyrometers
+	 * calibration, and the rate of the turntable whatever its id
+	 * 
+	 * @param session
+	 *            the gyrometers calibration of an aircraft
+	 */
+	public void ListenGyro(final GyroSession session) {
+		logger.info("listening gyrometers datas for " + session + "...");
+		listen(session, new MessageRouter.Handler() {
+			private final TelemetryDecoder decoder = new TelemetryDecoder();
+
+			public synchronized void receive(int acId, String name,
+					String payload) {
+				try {
+					decoder.reset(payload);
+					session.store(decoder.nextInt(), decoder.nextInt(),
+							decoder.nextInt(), System.nanoTime());
+				} catch (NumberFormatException e) {
+					logger.fine("message ignored for " + session + " : \""
+							+ payload + "\"");
+				}
+			}
+		});
+		MessageRouter.Handler turntable = new MessageRouter.Handler() {
+			private final TelemetryDecoder decoder = new TelemetryDecoder();
+
+			public synchronized void receive(int acId, String name,
+					String payload) {
+				try {
+					session.storeTurntable(decoder.reset(payload).nextDouble());
+				} catch (NumberFormatException e) {
+					logger.fine("turntable message ignored : \"" + payload
+							+ "\"");
+				}
+			}
+		};
+		MessageRouter.Handler previous = turntables.put(session, turntable);
+		if (previous != null) {
+			router.unbind(MessageRouter.ANY_AIRCRAFT,
+					CalibrateGyro.TURNTABLE_MESSAGE, previous);
 		}
+		router.bind(MessageRouter.ANY_AIRCRAFT,
+				CalibrateGyro.TURNTABLE_MESSAGE, turntable);
 	}
 
 	/**
-	 * unbind the imu from data messages
+	 * unbind a gyrometers calibration from its messages
 	 * 
-	 * @param calibration
-	 *            type of the current calibration
+	 * @param session
+	 *            the gyrometers calibration of an aircraft
 	 */
-	public void stopListenRaw(final TypeCalibration calibration,
-			final PrintLog log, final int idDrone) {
-		StringBuffer regexp = new StringBuffer("^");
-		regexp.append(idDrone);
-		regexp.append(TypeCalibration.MAGNETOMETER.equals(calibration) ? " IMU_MAG_RAW"
-				: " IMU_ACCEL_RAW");
-
-		regexp.append(" ([\\-]*[0-9]+)");
-		regexp.append(" ([\\-]*[0-9]+)");
-		regexp.append(" ([\\-]*[0-9]+)");
-		String test = regexp.toString();
-		bus.unBindMsg(test);
-
-		logger.warning("stopped listening raw datas for drone " + idDrone);
+	public void stopListenGyro(final GyroSession session) {
+		stopListening(session);
+		MessageRouter.Handler turntable = turntables.remove(session);
+		if (turntable != null) {
+			router.unbind(MessageRouter.ANY_AIRCRAFT,
+					CalibrateGyro.TURNTABLE_MESSAGE, turntable);
+		}
+
+		logger.warning("stopped listening gyrometers datas for " + session);
 	}
 
 	/**
@@ -448,7 +553,7 @@ public class IMU {
 	 * @return list of the aircrafts
 	 */
 	public Aircraft[] getAcs() {
-		return acL.toArray(new Aircraft[1]);
+		return acL.snapshot();
 	}
 
 	/**
@@ -468,28 +573,55 @@ public class IMU {
 	}
 
 	/**
-	 * the Builder
+	 * the Builder, connected to the ivy bus
 	 * 
 	 */
 	public IMU() {
-		bus = new Ivy("IMU", "IMU Ready", null);
+		this(new IvyBus("IMU", "IMU Ready"));
+	}
+
+	/**
+	 * @param bus
+	 *            the bus to connect to, started by the IMU
+	 */
+	public IMU(Bus bus) {
+		this.bus = bus;
 		try {
 			bus.start(null);
 		} catch (IvyException e) {
 			logger.warning(e.getMessage());
 		}
-		acL = new HashSet<Aircraft>();
-		timerPresence = new Hashtable<Integer, Timer>();
-		timerRaw = new Hashtable<Integer, Timer>();
+		requester = new IvyRequester(bus, "calibrate");
+		router = new MessageRouter(bus);
+		try {
+			router.start();
+		} catch (IvyException e) {
+			logger.warning(e.getMessage());
+		}
+	}
+
+	/**
+	 * Stops the threads of the timeouts and of the requests and disconnects
+	 * from the bus, to be called when the IMU is discarded
+	 */
+	public void close() {
+		timeouts.shutdown();
+		requester.shutdown();
+		bus.stop();
 	}
 
 	/** Test method */
 	public static void main(String args[]) {
-		new IMU();
+		final IMU imu = new IMU();
+		Runtime.getRuntime().addShutdownHook(new Thread() {
+			public void run() {
+				imu.close();
+			}
+		});
 		// Permet de voir tout ce qui passe sur le bus IVY
 		String test = new String("(.*)");// + " IMU_[A-Z]+_RAW(.*)");
 		try {
-			bus.bindMsg(test, new IvyMessageListener() {
+			imu.bus.bindMsg(test, new IvyMessageListener() {
 				public void receive(IvyClient arg0, final String args[]) {
 					logger.info("read : " + args[0]);
 				}
@@ -0,0 +1,66 @@
+package imu;
+
+import java.util.logging.Logger;
+
+import fr.dgac.ivy.Ivy;
+import fr.dgac.ivy.IvyException;
+import fr.dgac.ivy.IvyMessageListener;
+
+/**
+ * The ivy bus of Paparazzi, the bus used by default
+ */
+public class IvyBus implements Bus {
+
+	private static Logger logger = Logger.getLogger(IvyBus.class.getName());
+
+	private final Ivy ivy;
+
+	/**
+	 * @param name
+	 *            name of the agent on the bus
+	 * @param ready
+	 *            message sent when connected
+	 */
+	public IvyBus(String name, String ready) {
+		this.ivy = new Ivy(name, ready, null);
+	}
+
+	/**
+	 * @param sendToSelf
+	 *            true to receive the messages sent by this agent
+	 */
+	public void sendToSelf(boolean sendToSelf) {
+		ivy.sendToSelf(sendToSelf);
+	}
+
+	public void start(String domain) throws IvyException {
+		ivy.start(domain);
+		logger.fine("connected to the ivy bus");
+	}
+
+	public void stop() {
+		ivy.stop();
+	}
+
+	public int sendMsg(String message) throws IvyException {
+		return ivy.sendMsg(message);
+	}
+
+	public int bindMsg(String regexp, IvyMessageListener listener)
+			throws IvyException {
+		return ivy.bindMsg(regexp, listener);
+	}
+
+	public int bindMsgOnce(String regexp, IvyMessageListener listener)
+			throws IvyException {
+		return ivy.bindMsgOnce(regexp, listener);
+	}
+
+	public void unBindMsg(int id) throws IvyException {
+		ivy.unBindMsg(id);
+	}
+
+	public boolean unBindMsg(String regexp) {
+		return ivy.unBindMsg(regexp);
+	}
+}
@@ -0,0 +1,153 @@
+package imu;
+
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import fr.dgac.ivy.IvyClient;
+import fr.dgac.ivy.IvyException;
+import fr.dgac.ivy.IvyMessageListener;
+
+/**
+ * Sends the requests of the ivy bus (CONFIG_REQ, AIRCRAFTS_REQ...) and
+ * correlates their answers with a request id unique to each call. The answer
+ * is given as a future, so no thread waits for it.
+ */
+public class IvyRequester {
+
+	private static Logger logger = Logger.getLogger(IvyRequester.class
+			.getName());
+
+	/**
+	 * Time given to an answer by default, in milliseconds
+	 */
+	public static final long DEFAULT_TIMEOUT = 2000;
+	/**
+	 * Delay between the bind of the answer and the sending of the request, in
+	 * milliseconds : the other agents have to receive the new regexp before
+	 * answering
+	 */
+	public static final long BIND_DELAY = 20;
+
+	/**
+	 * Next request id, shared by all the requesters of the application and
+	 * starting at a random value so that two applications on the bus do not
+	 * read each other's answers
+	 */
+	private static final AtomicInteger nextId = new AtomicInteger(
+			new Random().nextInt(1000000));
+
+	/**
+	 * The bus to send the requests on
+	 */
+	private final Bus bus;
+	/**
+	 * Name of the sender of the requests
+	 */
+	private final String senderName;
+	/**
+	 * Sends the requests and fails the ones which have timed out
+	 */
+	private final ScheduledExecutorService scheduler;
+
+	/**
+	 * @param bus
+	 *            the bus to send the requests on
+	 * @param senderName
+	 *            name of the sender written in the requests
+	 */
+	public IvyRequester(Bus bus, String senderName) {
+		this.bus = bus;
+		this.senderName = senderName;
+		this.scheduler = Executors
+				.newSingleThreadScheduledExecutor(new ThreadFactory() {
+					public Thread newThread(Runnable r) {
+						Thread t = new Thread(r, "ivy-requests");
+						t.setDaemon(true);
+						return t;
+					}
+				});
+	}
+
+	/**
+	 * Sends a request with the default timeout
+	 * 
+	 * @see #request(String, String, String, long)
+	 */
+	public CompletableFuture<String> request(String replier, String name,
+			String args) {
+		return request(replier, name, args, DEFAULT_TIMEOUT);
+	}
+
+	/**
+	 * Sends "sender id NAME_REQ args" and waits for "id replier NAME answer"
+	 * 
+	 * @param replier
+	 *            regexp of the name of the agent answering
+	 * @param name
+	 *            name of the message requested, without _REQ
+	 * @param args
+	 *            arguments of the request, may be empty
+	 * @param timeout
+	 *            time given to the answer, in milliseconds
+	 * @return the future answer, without the id, the replier and the name.
+	 *         Completed exceptionally with a TimeoutException if no answer is
+	 *         received in time
+	 */
+	public CompletableFuture<String> request(String replier,
+			final String name, String args, long timeout) {
+		final int reqid = nextId.incrementAndGet();
+		final CompletableFuture<String> answer = new CompletableFuture<String>();
+		final int binding;
+		try {
+			binding = bus.bindMsgOnce("^" + reqid + " " + replier + " " + name
+					+ " (.*)", new IvyMessageListener() {
+				public void receive(IvyClient client, String[] args) {
+					answer.complete(args[0]);
+				}
+			});
+		} catch (IvyException e) {
+			answer.completeExceptionally(e);
+			return answer;
+		}
+
+		final String message = senderName + " " + reqid + " " + name + "_REQ"
+				+ (args == null || args.isEmpty() ? "" : " " + args);
+		scheduler.schedule(new Runnable() {
+			public void run() {
+				try {
+					bus.sendMsg(message);
+				} catch (IvyException e) {
+					answer.completeExceptionally(e);
+				}
+			}
+		}, BIND_DELAY, TimeUnit.MILLISECONDS);
+
+		scheduler.schedule(new Runnable() {
+			public void run() {
+				if (answer.completeExceptionally(new TimeoutException(name
+						+ " request " + reqid + " timed out"))) {
+					try {
+						bus.unBindMsg(binding);
+					} catch (IvyException e) {
+						logger.warning(e.getMessage());
+					}
+				}
+			}
+		}, BIND_DELAY + timeout, TimeUnit.MILLISECONDS);
+		return answer;
+	}
+
+	/**
+	 * Stops sending the pending requests
+	 */
+	public void shutdown() {
+		scheduler.shutdownNow();
+	}
+}
@@ -0,0 +1,136 @@
+package imu;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import fr.dgac.ivy.IvyException;
+import fr.dgac.ivy.IvyMessageListener;
+
+/**
+ * A bus in memory, without network : the messages sent are matched against
+ * the regexps bound as on the ivy bus (the regexp is searched in the message,
+ * its groups are the arguments) and given to the listeners in the thread of
+ * the sender. Several agents can share the same loopback bus. The client
+ * given to the listeners is null.
+ */
+public class LoopbackBus implements Bus {
+
+	private static Logger logger = Logger.getLogger(LoopbackBus.class
+			.getName());
+
+	/**
+	 * A regexp bound to a listener
+	 */
+	private static class Binding {
+		final int id;
+		final String regexp;
+		final Pattern pattern;
+		final IvyMessageListener listener;
+		final boolean once;
+
+		Binding(int id, String regexp, Pattern pattern,
+				IvyMessageListener listener, boolean once) {
+			this.id = id;
+			this.regexp = regexp;
+			this.pattern = pattern;
+			this.listener = listener;
+			this.once = once;
+		}
+	}
+
+	private final AtomicInteger nextId = new AtomicInteger();
+	/** The bindings, in the order they were made */
+	private final List<Binding> bindings = new CopyOnWriteArrayList<Binding>();
+
+	/**
+	 * Nothing to connect to
+	 */
+	public void start(String domain) {
+	}
+
+	/**
+	 * Nothing to disconnect from, the bindings are kept
+	 */
+	public void stop() {
+	}
+
+	/**
+	 * Gives the message to the listeners of the regexps found in it, before
+	 * returning
+	 * 
+	 * @return the number of listeners which received the message
+	 */
+	public int sendMsg(String message) {
+		int count = 0;
+		for (Binding b : bindings) {
+			Matcher m = b.pattern.matcher(message);
+			if (!m.find()) {
+				continue;
+			}
+			// une seule réception pour les bindMsgOnce, même en concurrence
+			if (b.once && !bindings.remove(b)) {
+				continue;
+			}
+			String args[] = new String[m.groupCount()];
+			for (int i = 0; i < args.length; i++) {
+				args[i] = m.group(i + 1);
+			}
+			try {
+				b.listener.receive(null, args);
+			} catch (RuntimeException e) {
+				logger.warning("failed handling \"" + message + "\" : "
+						+ e.getMessage());
+			}
+			count++;
+		}
+		return count;
+	}
+
+	public int bindMsg(String regexp, IvyMessageListener listener)
+			throws IvyException {
+		return bind(regexp, listener, false);
+	}
+
+	public int bindMsgOnce(String regexp, IvyMessageListener listener)
+			throws IvyException {
+		return bind(regexp, listener, true);
+	}
+
+	private int bind(String regexp, IvyMessageListener listener, boolean once)
+			throws IvyException {
+		Pattern pattern;
+		try {
+			pattern = Pattern.compile(regexp);
+		} catch (PatternSyntaxException e) {
+			throw new IvyException("Invalid regexp " + regexp + " : "
+					+ e.getMessage());
+		}
+		int id = nextId.getAndIncrement();
+		bindings.add(new Binding(id, regexp, pattern, listener, once));
+		return id;
+	}
+
+	public void unBindMsg(int id) throws IvyException {
+		for (Binding b : bindings) {
+			if (b.id == id) {
+				bindings.remove(b);
+				return;
+			}
+		}
+		throw new IvyException("no binding with id " + id);
+	}
+
+	public boolean unBindMsg(String regexp) {
+		for (Binding b : bindings) {
+			if (b.regexp.equals(regexp)) {
+				return bindings.remove(b);
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,276 @@
+package imu;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.logging.Logger;
+
+import fr.dgac.ivy.IvyClient;
+import fr.dgac.ivy.IvyException;
+import fr.dgac.ivy.IvyMessageListener;
+
+/**
+ * Receives the messages of the aircrafts and of the ground with two bindings
+ * on the ivy bus, and dispatches each message to the handlers registered for
+ * its aircraft and its name. The cost of a message does not depend on the
+ * number of aircrafts or handlers.
+ */
+public class MessageRouter {
+
+	private static Logger logger = Logger.getLogger(MessageRouter.class
+			.getName());
+
+	/**
+	 * Id used to receive the messages of all the aircrafts
+	 */
+	public static final int ANY_AIRCRAFT = -1;
+	/**
+	 * Name used to receive all the messages of an aircraft
+	 */
+	public static final String ANY_MESSAGE = "*";
+
+	/**
+	 * Messages sent by an aircraft : id, name, payload
+	 */
+	static final String AIRCRAFT_PATTERN = "^([0-9]+) ([A-Z_0-9]+) ?(.*)";
+	/**
+	 * Messages sent by the ground about an aircraft : name, id, payload
+	 */
+	static final String GROUND_PATTERN = "^ground ([A-Z_0-9]+) ([0-9]+) ?(.*)";
+
+	/**
+	 * Handles a message dispatched by the router
+	 */
+	public interface Handler {
+		/**
+		 * @param acId
+		 *            id of the aircraft sending or concerned by the message
+		 * @param name
+		 *            name of the message
+		 * @param payload
+		 *            the rest of the message
+		 */
+		void receive(int acId, String name, String payload);
+	}
+
+	/**
+	 * The handlers of the messages, by aircraft and by name. The handlers of
+	 * an aircraft are added and removed atomically on its entry, so that two
+	 * threads binding or unbinding at the same time don't lose a handler
+	 */
+	private static class Routes {
+		private final Map<Integer, Map<String, List<Handler>>> handlers = new ConcurrentHashMap<Integer, Map<String, List<Handler>>>();
+
+		private static final Function<Integer, Map<String, List<Handler>>> NEW_AIRCRAFT = new Function<Integer, Map<String, List<Handler>>>() {
+			public Map<String, List<Handler>> apply(Integer acId) {
+				return new ConcurrentHashMap<String, List<Handler>>();
+			}
+		};
+
+		void add(final int acId, final String name, final Handler handler) {
+			// l'ajout est fait sous le verrou de l'avion, comme les retraits
+			handlers.compute(acId,
+					new BiFunction<Integer, Map<String, List<Handler>>, Map<String, List<Handler>>>() {
+						public Map<String, List<Handler>> apply(Integer id,
+								Map<String, List<Handler>> byName) {
+							if (byName == null) {
+								byName = NEW_AIRCRAFT.apply(id);
+							}
+							List<Handler> list = byName.get(name);
+							if (list == null) {
+								list = new CopyOnWriteArrayList<Handler>();
+								byName.put(name, list);
+							}
+							list.add(handler);
+							return byName;
+						}
+					});
+		}
+
+		void remove(int acId, final String name, final Handler handler) {
+			// la liste et l'avion vides sont retires dans le meme calcul
+			handlers.computeIfPresent(acId,
+					new BiFunction<Integer, Map<String, List<Handler>>, Map<String, List<Handler>>>() {
+						public Map<String, List<Handler>> apply(Integer id,
+								Map<String, List<Handler>> byName) {
+							List<Handler> list = byName.get(name);
+							if (list != null) {
+								list.remove(handler);
+								if (list.isEmpty()) {
+									byName.remove(name);
+								}
+							}
+							return byName.isEmpty() ? null : byName;
+						}
+					});
+		}
+
+		void removeAll(int acId) {
+			// retire sous le meme verrou que add et remove
+			handlers.remove(acId);
+		}
+
+		void dispatch(int acId, String name, String payload) {
+			dispatch(handlers.get(acId), acId, name, payload);
+			dispatch(handlers.get(ANY_AIRCRAFT), acId, name, payload);
+		}
+
+		private void dispatch(Map<String, List<Handler>> byName, int acId,
+				String name, String payload) {
+			if (byName == null) {
+				return;
+			}
+			dispatch(byName.get(name), acId, name, payload);
+			dispatch(byName.get(ANY_MESSAGE), acId, name, payload);
+		}
+
+		private void dispatch(List<Handler> list, int acId, String name,
+				String payload) {
+			if (list == null) {
+				return;
+			}
+			for (Handler handler : list) {
+				try {
+					handler.receive(acId, name, payload);
+				} catch (RuntimeException e) {
+					logger.warning("failed handling " + name + " of aircraft "
+							+ acId + " : " + e.getMessage());
+				}
+			}
+		}
+	}
+
+	/** bus the router is bound to */
+	private final Bus bus;
+	private final Routes aircraftRoutes = new Routes();
+	private final Routes groundRoutes = new Routes();
+	/** ids of the bindings on the bus, -1 if not started */
+	private int aircraftBinding = -1;
+	private int groundBinding = -1;
+
+	/**
+	 * @param bus
+	 *            the bus to listen, already started
+	 */
+	public MessageRouter(Bus bus) {
+		this.bus = bus;
+	}
+
+	/**
+	 * Binds the router to the bus
+	 * 
+	 * @throws IvyException
+	 */
+	public synchronized void start() throws IvyException {
+		if (aircraftBinding >= 0) {
+			return;
+		}
+		aircraftBinding = bus.bindMsg(AIRCRAFT_PATTERN,
+				new IvyMessageListener() {
+					public void receive(IvyClient client, String[] args) {
+						dispatch(aircraftRoutes, args[0], args[1], args[2]);
+					}
+				});
+		groundBinding = bus.bindMsg(GROUND_PATTERN, new IvyMessageListener() {
+			public void receive(IvyClient client, String[] args) {
+				dispatch(groundRoutes, args[1], args[0], args[2]);
+			}
+		});
+	}
+
+	/**
+	 * Unbinds the router from the bus
+	 */
+	public synchronized void stop() {
+		try {
+			if (aircraftBinding >= 0) {
+				bus.unBindMsg(aircraftBinding);
+				bus.unBindMsg(groundBinding);
+			}
+		} catch (IvyException e) {
+			logger.warning(e.getMessage());
+		}
+		aircraftBinding = -1;
+		groundBinding = -1;
+	}
+
+	/**
+	 * Dispatches a message received on the bus, an id out of the range of
+	 * the integers is logged like the failures of the handlers
+	 */
+	private static void dispatch(Routes routes, String acId, String name,
+			String payload) {
+		int id;
+		try {
+			id = Integer.parseInt(acId);
+		} catch (NumberFormatException e) {
+			logger.warning("failed handling " + name + " of aircraft " + acId
+					+ " : " + e.getMessage());
+			return;
+		}
+		routes.dispatch(id, name, payload == null ? "" : payload);
+	}
+
+	/**
+	 * Adds a handler of the messages sent by an aircraft
+	 * 
+	 * @param acId
+	 *            id of the aircraft, or ANY_AIRCRAFT
+	 * @param name
+	 *            name of the message, or ANY_MESSAGE
+	 * @param handler
+	 */
+	public void bind(int acId, String name, Handler handler) {
+		aircraftRoutes.add(acId, name, handler);
+	}
+
+	/**
+	 * Adds a handler of the messages sent by the ground about an aircraft
+	 * (DL_VALUES, NEW_AIRCRAFT...)
+	 * 
+	 * @param acId
+	 *            id of the aircraft, or ANY_AIRCRAFT
+	 * @param name
+	 *            name of the message, or ANY_MESSAGE
+	 * @param handler
+	 */
+	public void bindGround(int acId, String name, Handler handler) {
+		groundRoutes.add(acId, name, handler);
+	}
+
+	/**
+	 * Removes a handler of a message sent by an aircraft, the other handlers
+	 * of the message are kept
+	 * 
+	 * @param acId
+	 * @param name
+	 * @param handler
+	 *            the handler given to bind
+	 */
+	public void unbind(int acId, String name, Handler handler) {
+		aircraftRoutes.remove(acId, name, handler);
+	}
+
+	/**
+	 * Removes a handler of a message sent by the ground
+	 * 
+	 * @param acId
+	 * @param name
+	 * @param handler
+	 *            the handler given to bindGround
+	 */
+	public void unbindGround(int acId, String name, Handler handler) {
+		groundRoutes.remove(acId, name, handler);
+	}
+
+	/**
+	 * Removes all the handlers of an aircraft
+	 */
+	public void unbindAll(int acId) {
+		aircraftRoutes.removeAll(acId);
+		groundRoutes.removeAll(acId);
+	}
+}
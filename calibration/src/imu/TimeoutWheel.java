@@ -0,0 +1,224 @@
+package imu;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+
+/**
+ * Detects the streams of messages which have stopped (presence of an
+ * aircraft, raw data...). Each stream only records the time of its last
+ * message : receiving a message is a volatile write, the streams are not
+ * rescheduled for each message. A single thread turns a hashed wheel of
+ * slots and checks the streams whose deadline is reached, rescheduling the
+ * ones which have received messages since then.
+ */
+public class TimeoutWheel {
+
+	private static Logger logger = Logger.getLogger(TimeoutWheel.class
+			.getName());
+
+	/** Default duration of a tick, in milliseconds */
+	public static final long DEFAULT_TICK = 100;
+	/** Default number of slots of the wheel */
+	public static final int DEFAULT_SLOTS = 64;
+
+	/**
+	 * A stream of messages, expired when no message is received during its
+	 * timeout
+	 */
+	public final class Timeout {
+		/** Time of the last message, in nanoseconds */
+		private volatile long lastSeen;
+		/** True while in the wheel, false once expired */
+		private final AtomicBoolean armed = new AtomicBoolean(false);
+		private volatile boolean cancelled = false;
+		private final long timeoutNanos;
+		/** Called by the thread of the wheel when the stream stops */
+		private final Runnable onExpiry;
+		/** Turns of the wheel left before the deadline, used by the wheel */
+		private long rounds;
+
+		private Timeout(long timeoutNanos, Runnable onExpiry) {
+			this.timeoutNanos = timeoutNanos;
+			this.onExpiry = onExpiry;
+		}
+
+		/**
+		 * Records a message of the stream, and puts it back in the wheel if
+		 * it had expired
+		 */
+		public void touch() {
+			lastSeen = System.nanoTime();
+			if (!armed.get() && !cancelled && armed.compareAndSet(false, true)) {
+				arming.add(this);
+			}
+		}
+
+		/**
+		 * Stops watching the stream, the expiry is not called
+		 */
+		public void cancel() {
+			cancelled = true;
+		}
+
+		/**
+		 * @return true if the stream has received a message less than its
+		 *         timeout ago
+		 */
+		public boolean isAlive() {
+			return armed.get();
+		}
+	}
+
+	/** Streams of each slot, used by the thread of the wheel only */
+	private final List<List<Timeout>> slots;
+	private final int mask;
+	private final long tickNanos;
+	/** Streams touched after their expiry, waiting to be put in the wheel */
+	private final Queue<Timeout> arming = new ConcurrentLinkedQueue<Timeout>();
+	/** Number of ticks done */
+	private long tick = 0;
+	private final long start;
+	private final ScheduledExecutorService scheduler;
+
+	/**
+	 * A wheel of DEFAULT_SLOTS slots of DEFAULT_TICK milliseconds
+	 */
+	public TimeoutWheel() {
+		this(DEFAULT_TICK, DEFAULT_SLOTS);
+	}
+
+	/**
+	 * @param tickMillis
+	 *            precision of the timeouts, in milliseconds
+	 * @param nbSlots
+	 *            number of slots, rounded up to a power of 2
+	 */
+	public TimeoutWheel(long tickMillis, int nbSlots) {
+		int size = Integer.highestOneBit(Math.max(2, nbSlots) - 1) << 1;
+		slots = new ArrayList<List<Timeout>>(size);
+		for (int i = 0; i < size; i++) {
+			slots.add(new ArrayList<Timeout>());
+		}
+		mask = size - 1;
+		tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+		start = System.nanoTime();
+		scheduler = Executors
+				.newSingleThreadScheduledExecutor(new ThreadFactory() {
+					public Thread newThread(Runnable r) {
+						Thread t = new Thread(r, "imu-timeouts");
+						t.setDaemon(true);
+						return t;
+					}
+				});
+		scheduler.scheduleAtFixedRate(new Runnable() {
+			public void run() {
+				try {
+					advance();
+				} catch (RuntimeException e) {
+					// la roue ne doit pas s'arreter
+					logger.warning(e.getMessage());
+				}
+			}
+		}, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Creates the timeout of a stream, not watched until its first message
+	 *
+	 * @param timeoutMillis
+	 *            time without message after which the stream has stopped
+	 * @param onExpiry
+	 *            called once by the thread of the wheel each time the stream
+	 *            stops
+	 * @return the timeout, to touch on each message of the stream
+	 */
+	public Timeout newTimeout(long timeoutMillis, Runnable onExpiry) {
+		return new Timeout(TimeUnit.MILLISECONDS.toNanos(timeoutMillis),
+				onExpiry);
+	}
+
+	/**
+	 * Puts a stream in the slot of its deadline
+	 */
+	private void schedule(Timeout t) {
+		long deadline = t.lastSeen + t.timeoutNanos - start;
+		// tick de l'echeance, arrondi au suivant, jamais dans le passe
+		long ticks = Math.max(tick, (deadline + tickNanos - 1) / tickNanos);
+		t.rounds = (ticks - tick) / slots.size();
+		slots.get((int) ticks & mask).add(t);
+	}
+
+	/**
+	 * Checks the streams of the current slot
+	 */
+	private void advance() {
+		Timeout t;
+		while ((t = arming.poll()) != null) {
+			schedule(t);
+		}
+		List<Timeout> slot = slots.get((int) tick & mask);
+		List<Timeout> later = null;
+		long now = System.nanoTime();
+		for (Iterator<Timeout> it = slot.iterator(); it.hasNext();) {
+			t = it.next();
+			if (t.cancelled) {
+				it.remove();
+			} else if (t.rounds > 0) {
+				t.rounds--;
+			} else {
+				it.remove();
+				if (now - t.lastSeen < t.timeoutNanos) {
+					// messages recus depuis : l'echeance est reportee
+					if (later == null) {
+						later = new ArrayList<Timeout>();
+					}
+					later.add(t);
+				} else {
+					expire(t);
+				}
+			}
+		}
+		tick++;
+		if (later != null) {
+			for (Timeout l : later) {
+				schedule(l);
+			}
+		}
+	}
+
+	/**
+	 * Expires a stream, unless a message is received meanwhile
+	 */
+	private void expire(Timeout t) {
+		t.armed.set(false);
+		if (System.nanoTime() - t.lastSeen < t.timeoutNanos) {
+			// un message est arrive : il est remis dans la roue par touch
+			// ou ici
+			if (t.armed.compareAndSet(false, true)) {
+				arming.add(t);
+			}
+			return;
+		}
+		try {
+			t.onExpiry.run();
+		} catch (RuntimeException e) {
+			logger.warning("expiry of a stream : " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Stops the thread of the wheel, no expiry is called afterwards
+	 */
+	public void shutdown() {
+		scheduler.shutdownNow();
+	}
+}
@@ -1,97 +1,184 @@
 package rawmode;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
-import java.util.Iterator;
+import java.io.InputStream;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Logger;
 
-import org.jdom2.Element;
-import org.jdom2.JDOMException;
-import org.jdom2.input.SAXBuilder;
-
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Reads the telemetry modes of an aircraft in its settings.xml. The file is
+ * read as a stream, up to the end of the Telemetry block only, and the modes
+ * are kept by path : an aircraft announcing itself again with an unchanged
+ * file (same modification date and size) does not read it again.
+ */
 public class ExtractRawData {
 
 	private static Logger logger = Logger.getLogger(ExtractRawData.class
 			.getName());
 
-	private org.jdom2.Document document;
-	private Element racine;
-	// permet de sotcker l'index de la telemetry
-	private int indexTelemetry = 0;
+	/** Telemetry modes already read, by canonical path of the file */
+	private static final Map<String, Settings> cache = new ConcurrentHashMap<String, Settings>();
 
-	public ExtractRawData(String name) throws IOException {
-		parse(name);
-		try {
-			extract();
-		} catch (IncorrectXmlException e) {
-			logger.warning(e.getMessage());
-		}
+	private static final XMLInputFactory factory = XMLInputFactory
+			.newInstance();
+
+	static {
+		// pas de DTD ni d'entites externes dans les settings
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES,
+				Boolean.FALSE);
 	}
 
 	/**
-	 * Used to create the tree of the xml document given in input
-	 * 
-	 * @param toParse
+	 * The telemetry modes of a version of a settings file
 	 */
-	private void parse(String toParse) throws IOException {
-		// On cree une instance de SAXBuilder
-		try {
-			SAXBuilder sxb = new SAXBuilder();
-			// On creee un nouveau document JDOM avec en argument le fichier XML
-			// Le parsing est termine ;
-			File doc = new File(toParse);
-			document = sxb.build(doc);
-		} catch (JDOMException e) {
-			logger.warning("Fichier xml non valide");
-			logger.warning(e.getMessage());
+	private static class Settings {
+		/** Modification date and size of the file read */
+		final long lastModified;
+		final long length;
+		/** The modes, null if the file has no Telemetry block */
+		final List<String> modes;
+		/** Index of the Telemetry block among the dl_settings */
+		final int index;
+
+		Settings(long lastModified, long length, List<String> modes, int index) {
+			this.lastModified = lastModified;
+			this.length = length;
+			this.modes = modes;
+			this.index = index;
+		}
+	}
+
+	private final String name;
+	private final Settings settings;
+
+	public ExtractRawData(String name) throws IOException {
+		this.name = name;
+		this.settings = read(new File(name));
+		if (settings.modes == null) {
+			logger.warning("lecture du fichier " + name
+					+ " : modes de telemetrie introuvables");
 		}
-		// On initialise un nouvel element racine avec l'element racine du
-		// document.
-		racine = document.getRootElement();
 	}
 
 	/**
-	 * test function returning the root of the xml document stored in the object
-	 * 
+	 * @return the modes of the file, read again only if it has changed
 	 */
-	public void test() {
-		logger.info(racine.toString());
+	private static Settings read(File file) throws IOException {
+		String key = file.getCanonicalPath();
+		long lastModified = file.lastModified();
+		long length = file.length();
+		Settings s = cache.get(key);
+		if (s != null && s.lastModified == lastModified && s.length == length) {
+			return s;
+		}
+		s = parse(file, lastModified, length);
+		cache.put(key, s);
+		return s;
 	}
 
 	/**
-	 * used to create the information about the DL_SETTING node named telemetry
-	 * 
-	 * @return the var field of the node
+	 * Reads the file up to the end of the Telemetry block
 	 */
-	private String infoNoeud() throws IncorrectXmlException {
+	private static Settings parse(File file, long lastModified, long length)
+			throws IOException {
+		InputStream in = new FileInputStream(file);
 		try {
-			Iterator<Element> i = racine.getChildren("dl_settings").iterator();
-			i = i.next().getChildren("dl_settings").iterator();
-			Element temp = i.next();
-			String res = "";
-			while (!(temp.getAttribute("name").getValue().equals("Telemetry"))) {
-				temp = i.next();
-				indexTelemetry++;
+			XMLStreamReader reader = factory.createXMLStreamReader(in);
+			try {
+				return parse(reader, lastModified, length);
+			} finally {
+				reader.close();
 			}
-			i = temp.getChildren("dl_setting").iterator();
-			while (i.hasNext()) {
-				res = res + i.next().getAttribute("values").getValue() + '|';
+		} catch (XMLStreamException e) {
+			logger.warning("Fichier xml non valide");
+			logger.warning(e.getMessage());
+			return new Settings(lastModified, length, null, 0);
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * settings > dl_settings > dl_settings name="Telemetry" > dl_setting
+	 * values="mode|mode..."
+	 */
+	private static Settings parse(XMLStreamReader reader, long lastModified,
+			long length) throws XMLStreamException {
+		int depth = 0;
+		// seul le premier dl_settings de la racine est lu
+		boolean inSettings = false;
+		boolean inTelemetry = false;
+		int index = 0;
+		String res = "";
+		while (reader.hasNext()) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				depth++;
+				String element = reader.getLocalName();
+				if (depth == 2 && element.equals("dl_settings")) {
+					inSettings = true;
+				} else if (inSettings && depth == 3
+						&& element.equals("dl_settings")) {
+					if ("Telemetry".equals(reader.getAttributeValue(null,
+							"name"))) {
+						inTelemetry = true;
+					} else {
+						index++;
+					}
+				} else if (inTelemetry && depth == 4
+						&& element.equals("dl_setting")) {
+					String values = reader.getAttributeValue(null, "values");
+					if (values == null) {
+						return new Settings(lastModified, length, null, 0);
+					}
+					res = res + values + '|';
+				}
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				depth--;
+				if (inTelemetry && depth == 2) {
+					// la suite du fichier n'est pas lue
+					return new Settings(lastModified, length,
+							Collections.unmodifiableList(parseChoice(res)),
+							index);
+				}
+				if (inSettings && depth == 1) {
+					break;
+				}
 			}
-			return res;
-		} catch (Exception e) {
-			throw new IncorrectXmlException("lecture du fichier", e);
 		}
+		return new Settings(lastModified, length, null, 0);
+	}
 
+	/**
+	 * Forgets the modes read, the files are read again when asked
+	 */
+	public static void clearCache() {
+		cache.clear();
 	}
 
-	// on tient donc i au noeud dlSettings contenant les modes de telemetry
-	// on recupere la chaine qui va bien
+	/**
+	 * test function logging the modes read in the file
+	 *
+	 */
+	public void test() {
+		logger.info(name + " : " + settings.modes);
+	}
 
 	/**
 	 * used to transform the node in a list of choice
-	 * 
+	 *
 	 * @param toParse
 	 * @return list of the possible modes
 	 */
@@ -106,24 +193,28 @@ public class ExtractRawData {
 
 	/**
 	 * main fonction return the possible telemetry modes
-	 * 
-	 * @return the list of the telemetry modes
+	 *
+	 * @return the list of the telemetry modes, shared by the readers of the
+	 *         same file and not modifiable
 	 */
 	public List<String> extract() throws IncorrectXmlException {
-		return parseChoice(this.infoNoeud());
+		if (settings.modes == null) {
+			throw new IncorrectXmlException("lecture du fichier " + name, null);
+		}
+		return settings.modes;
 	}
 
 	/**
 	 * function use to get the number of the node named telemetry_mode_Main
-	 * 
+	 *
 	 * @return number of the node Telemetry_Mode_MAIN;
 	 * @throws IncorrectXmlException
 	 */
 	public int getIndex() throws IncorrectXmlException {
-		if (indexTelemetry >= 0) {
-			return indexTelemetry;
-		} else
+		if (settings.modes == null) {
 			throw new IncorrectXmlException();
+		}
+		return settings.index;
 	}
 
 	public static void main(String args[]) {
@@ -131,8 +222,7 @@ public class ExtractRawData {
 
 			ExtractRawData d = new ExtractRawData(
 					"C:\\Users\\Alino�\\Desktop\\settings.xml");
-			// logger.info(d.racine);
-			logger.info(parseChoice(d.infoNoeud()).toArray().toString());
+			logger.info(d.extract().toString());
 			logger.info("" + d.getIndex());
 		} catch (Exception e) {
 			e.printStackTrace();
@@ -1,37 +1,92 @@
 package testData;
 
-import java.io.BufferedReader;
-import java.io.FileInputStream;
-import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.io.Closeable;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.logging.Logger;
 
-public class DataReader implements Iterable<String> {
+import calibrate.SessionReader;
+
+/**
+ * Reads the messages of a log, to be closed once read : the text log is
+ * mapped in memory
+ */
+public class DataReader implements Iterable<String>, Closeable {
 
 	private static Logger logger = Logger.getLogger(DataReader.class.getName());
 
 	ArrayList<String> lignes = new ArrayList<String>();
 
+	/**
+	 * The text log, read line by line during the iteration
+	 */
+	private MappedLogReader log;
+
 	public DataReader(String arg) {
-		// lecture du fichier texte
-		try {
-			InputStream ips = new FileInputStream(arg);
-			InputStreamReader ipsr = new InputStreamReader(ips);
-			BufferedReader br = new BufferedReader(ipsr);
-			String ligne;
-			while ((ligne = br.readLine()) != null) {
-				lignes.add(ligne.substring(ligne.indexOf(" ") + 1));
+		// session binaire enregistrée par SessionWriter
+		if (arg.endsWith(".afs")) {
+			try {
+				SessionReader session = new SessionReader(arg);
+				for (int i = 0; i < session.size(); i++) {
+					lignes.add(session.getMessage(i));
+				}
+			} catch (Exception e) {
+				logger.warning(e.getMessage());
 			}
-			br.close();
-		} catch (Exception e) {
+			return;
+		}
+		// lecture du fichier texte, sans le charger en mémoire
+		try {
+			log = new MappedLogReader(arg);
+		} catch (IOException e) {
 			logger.warning(e.getMessage());
 		}
 	}
 
+	/**
+	 * Closes the text log, the iterators can't be used afterwards
+	 */
+	@Override
+	public void close() throws IOException {
+		if (log != null) {
+			log.close();
+		}
+	}
+
+	/**
+	 * Iterates the messages of the log, without their timestamp
+	 */
 	@Override
 	public Iterator<String> iterator() {
-		return lignes.iterator();
+		if (log == null) {
+			return lignes.iterator();
+		}
+		final MappedLogReader.Cursor cursor = log.cursor();
+		return new Iterator<String>() {
+			private boolean read = false;
+			private boolean available;
+
+			public boolean hasNext() {
+				if (!read) {
+					available = cursor.next();
+					read = true;
+				}
+				return available;
+			}
+
+			public String next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				read = false;
+				return cursor.getMessage();
+			}
+
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
 	}
 }
@@ -12,6 +12,7 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
 import java.util.logging.Logger;
 
 import javax.swing.JButton;
@@ -24,7 +25,9 @@ import calibrate.PrintLog;
 import common.TypeCalibration;
 
 import data.Data;
-import fr.dgac.ivy.Ivy;
+import imu.Bus;
+import imu.IvyBus;
+import imu.IvyRequester;
 import fr.dgac.ivy.IvyClient;
 import fr.dgac.ivy.IvyException;
 import fr.dgac.ivy.IvyMessageListener;
@@ -50,7 +53,7 @@ public class IMUtest implements IvyMessageListener {
 	/**
 	 * the bus used by the drone
 	 */
-	private static Ivy bus;
+	private static Bus bus;
 	/**
 	 * the idDrone currently used for the calibration
 	 */
@@ -74,9 +77,9 @@ public class IMUtest implements IvyMessageListener {
 	 */
 	private String telemetryMode = null;
 	/**
-	 * id of the config request
+	 * sends the config requests and correlates their answers
 	 */
-	private int reqid = 42;
+	private IvyRequester requester;
 	/**
 	 * the setting mode
 	 */
@@ -104,6 +107,18 @@ public class IMUtest implements IvyMessageListener {
 	 * @throws IvyException
 	 */
 	public IMUtest(final JLabel label) throws IvyException {
+		this(label, new IvyBus("IMU", "IMU Ready"));
+	}
+
+	/**
+	 * allows to get back the right RAW_DATA messages
+	 * 
+	 * @param label
+	 * @param bus
+	 *            the bus to listen, started here
+	 * @throws IvyException
+	 */
+	public IMUtest(final JLabel label, Bus bus) throws IvyException {
 		timerlabel = new Timer(2000, new ActionListener() {
 			public void actionPerformed(ActionEvent arg0) {
 				SwingUtilities.invokeLater(new Runnable() {
@@ -136,8 +151,9 @@ public class IMUtest implements IvyMessageListener {
 		logger.info("Debut IMU");
 		// this.calibration = calibration;
 		// starts the bus on the default domain
-		bus = new Ivy("IMU", "IMU Ready", null);
+		IMUtest.bus = bus;
 		bus.start(null);
+		requester = new IvyRequester(bus, "calibrate");
 	}
 
 	/**
@@ -174,12 +190,10 @@ public class IMUtest implements IvyMessageListener {
 			String test = regexp.toString();
 			bus.bindMsg(test, new IvyMessageListener() {
 				public void receive(IvyClient arg0, final String args[]) {
-					data.store(Integer.valueOf(args[0]),
-							Integer.valueOf(args[1]), Integer.valueOf(args[2]));
-					log.add(idDrone
-							+ (TypeCalibration.MAGNETOMETER.equals(calibration) ? " IMU_MAG_RAW"
-									: " IMU_ACCEL_RAW") + " " + args[0] + " "
-							+ args[1] + " " + args[2]);
+					long seq = data.store(Integer.parseInt(args[0]),
+							Integer.parseInt(args[1]),
+							Integer.parseInt(args[2]), System.nanoTime());
+					log.add(idDrone, calibration, data.getRing(), seq);
 					timerlabel.restart();
 					SwingUtilities.invokeLater(new Runnable() {
 						public void run() {
@@ -283,12 +297,6 @@ public class IMUtest implements IvyMessageListener {
 		bus.bindMsg("^" + idDrone + " IMU_[A-Z]+_RAW(.*)",
 				new IvyMessageListener() {
 					public void receive(IvyClient arg0, String[] args) {
-						try {
-							Thread.sleep(20);
-						} catch (InterruptedException e) {
-							// TODO Auto-generated catch block
-							e.printStackTrace();
-						}
 						rawOnBus = true;
 						timerlabel.restart();
 						SwingUtilities.invokeLater(new Runnable() {
@@ -310,12 +318,6 @@ public class IMUtest implements IvyMessageListener {
 							telemetryMode = args[1].split(",")[indexTelemetry];
 						// comboMod.setSelectedIndex(Double.valueOf(telemetryMode).intValue());
 						// comboMod.repaint();
-						try {
-							Thread.sleep(20);
-						} catch (InterruptedException e) {
-							// TODO Auto-generated catch block
-							e.printStackTrace();
-						}
 						// it is considered that the two first DL_SETTINGS of
 						// the .XML of
 						// the drone are unused
@@ -459,33 +461,26 @@ public class IMUtest implements IvyMessageListener {
 			IvyException, InterruptedException {
 		logger.info("Ivyconfig");
 		this.idDrone = idDrone;
-		Thread.sleep(20);
 		sendRequest();
 	}
 
 	/**
-	 * Bind to a config message once and then send a request message which
-	 * triggers the send of the message
+	 * Sends a config request and waits for its answer, at most
+	 * IvyRequester.DEFAULT_TIMEOUT
 	 * 
 	 * @throws IvyException
 	 * @throws InterruptedException
 	 */
 	public void sendRequest() throws IvyException, InterruptedException {
-		// busBind only once
-		bus.bindMsgOnce(("^" + reqid + " " + "[A-Za-z0-9]+ CONFIG (.*)"),
-				new IvyMessageListener() {
-					public void receive(IvyClient arg0, String[] args) {
-						// logger.info(args[0]);
-						String temp[] = args[0].split(" ");
-						settings = temp[4];
-						acName = temp[6];
-					}
-				});
-		Thread.sleep(20);
-		bus.sendMsg("calibrate " + reqid + " CONFIG_REQ " + idDrone);
-		Thread.sleep(1000);
-		reqid++;
-
+		try {
+			String temp[] = requester
+					.request("[A-Za-z0-9]+", "CONFIG",
+							String.valueOf(idDrone)).get().split(" ");
+			settings = temp[4];
+			acName = temp[6];
+		} catch (ExecutionException e) {
+			logger.warning(e.getCause().getMessage());
+		}
 	}
 
 	/**
@@ -565,7 +560,7 @@ public class IMUtest implements IvyMessageListener {
 	public static void main(String args[]) {
 		String filePath = "/home/alinoe/workspace/autofocus/calibration/Logs/13_04_03__13_49_35.data";
 
-		bus = new Ivy("IMU", "IMU Ready", null);
+		bus = new IvyBus("IMU", "IMU Ready");
 		try {
 			bus.start(null);
 		} catch (IvyException e) {
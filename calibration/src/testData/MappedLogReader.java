@@ -0,0 +1,333 @@
+package testData;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+import data.TelemetryDecoder;
+
+/**
+ * Reads a Paparazzi .data log ("3.045 14 IMU_MAG_RAW 46 -195 -2038") mapped in
+ * memory. The file is split in chunks ending on line boundaries, each chunk
+ * can be read by its own thread. The records are read through a cursor, a
+ * view on the current line : no line is copied unless asked.
+ */
+public class MappedLogReader implements Closeable {
+
+	private static Logger logger = Logger.getLogger(MappedLogReader.class
+			.getName());
+
+	/** Default size of the chunks */
+	public static final int DEFAULT_CHUNK_SIZE = 64 << 20;
+	/** Smallest size of the chunks, each chunk being a mapping of the file */
+	public static final int MIN_CHUNK_SIZE = 1 << 16;
+
+	private static final Charset LATIN1 = Charset.forName("ISO-8859-1");
+
+	private final FileChannel channel;
+	/** Size of the file */
+	private final long size;
+	/** The chunks mapped */
+	private final List<MappedByteBuffer> chunks = new ArrayList<MappedByteBuffer>();
+	/** Offset of each chunk in the file */
+	private final List<Long> offsets = new ArrayList<Long>();
+
+	/**
+	 * Maps a log with chunks of DEFAULT_CHUNK_SIZE
+	 *
+	 * @param fileName
+	 * @throws IOException
+	 */
+	public MappedLogReader(String fileName) throws IOException {
+		this(fileName, DEFAULT_CHUNK_SIZE);
+	}
+
+	/**
+	 * Maps a log
+	 *
+	 * @param fileName
+	 * @param chunkSize
+	 *            size of the chunks, each one extended to the end of its last
+	 *            line, at least MIN_CHUNK_SIZE
+	 * @throws IOException
+	 */
+	public MappedLogReader(String fileName, int chunkSize) throws IOException {
+		channel = FileChannel.open(Paths.get(fileName),
+				StandardOpenOption.READ);
+		size = channel.size();
+		chunkSize = Math.max(chunkSize, MIN_CHUNK_SIZE);
+		long start = 0;
+		while (start < size) {
+			long end = start + chunkSize >= size ? size
+					: nextLineStart(start + chunkSize);
+			if (end - start > Integer.MAX_VALUE) {
+				channel.close();
+				throw new IOException("line too long in " + fileName
+						+ " at offset " + start);
+			}
+			chunks.add(channel.map(FileChannel.MapMode.READ_ONLY, start, end
+					- start));
+			offsets.add(start);
+			start = end;
+		}
+		logger.fine(fileName + " mapped in " + chunks.size() + " chunk(s)");
+	}
+
+	/**
+	 * @return the offset of the line following the one containing from
+	 */
+	private long nextLineStart(long from) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(4096);
+		long pos = from;
+		while (pos < size) {
+			buffer.clear();
+			int n = channel.read(buffer, pos);
+			if (n <= 0) {
+				break;
+			}
+			for (int i = 0; i < n; i++) {
+				if (buffer.get(i) == '\n') {
+					return pos + i + 1;
+				}
+			}
+			pos += n;
+		}
+		return size;
+	}
+
+	/**
+	 * @return the size of the file
+	 */
+	public long size() {
+		return size;
+	}
+
+	/**
+	 * @return the number of chunks
+	 */
+	public int getNbChunks() {
+		return chunks.size();
+	}
+
+	/**
+	 * @return a cursor on all the records of the file
+	 */
+	public Cursor cursor() {
+		return new Cursor(0, chunks.size());
+	}
+
+	/**
+	 * @param chunk
+	 *            index of the chunk
+	 * @return a cursor on the records of a chunk, to be used by a single
+	 *         thread
+	 */
+	public Cursor cursor(int chunk) {
+		return new Cursor(chunk, chunk + 1);
+	}
+
+	/**
+	 * Closes the file, the chunks stay mapped until they are collected
+	 */
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	/**
+	 * View on a record of the log : timestamp, aircraft id, message name and
+	 * payload. The view is moved to the next record by next()
+	 */
+	public class Cursor {
+
+		/** Chunks read by the cursor */
+		private int chunk;
+		private final int lastChunk;
+		/** The chunk of the current record */
+		private ByteBuffer buffer;
+		/** Position of the next line in the chunk */
+		private int pos = 0;
+
+		/** Bounds of the current record in the chunk, without end of line */
+		private int start;
+		private int end;
+		/** End of the timestamp */
+		private int timeEnd;
+		/** Beginning of the aircraft id */
+		private int idStart;
+		/** Bounds of the name */
+		private int nameStart;
+		private int nameEnd;
+		/** Id of the aircraft, -1 if not a number */
+		private int acId;
+
+		private final TelemetryDecoder decoder = new TelemetryDecoder();
+
+		private Cursor(int firstChunk, int lastChunk) {
+			this.chunk = firstChunk;
+			this.lastChunk = lastChunk;
+			this.buffer = firstChunk < lastChunk ? chunks.get(firstChunk)
+					: null;
+		}
+
+		/**
+		 * Moves to the next record, the empty lines are skipped
+		 *
+		 * @return false if there is no more record
+		 */
+		public boolean next() {
+			while (buffer != null) {
+				int limit = buffer.limit();
+				while (pos < limit) {
+					start = pos;
+					int eol = start;
+					while (eol < limit && buffer.get(eol) != '\n') {
+						eol++;
+					}
+					pos = eol < limit ? eol + 1 : limit;
+					end = eol;
+					if (end > start && buffer.get(end - 1) == '\r') {
+						end--;
+					}
+					if (end > start) {
+						parse();
+						return true;
+					}
+				}
+				chunk++;
+				buffer = chunk < lastChunk ? chunks.get(chunk) : null;
+				pos = 0;
+			}
+			return false;
+		}
+
+		/**
+		 * Finds the tokens of the current line
+		 */
+		private void parse() {
+			timeEnd = skipToken(start);
+			idStart = skipSpaces(timeEnd);
+			int idEnd = skipToken(idStart);
+			acId = idEnd > idStart ? 0 : -1;
+			for (int i = idStart; i < idEnd && acId >= 0; i++) {
+				byte c = buffer.get(i);
+				if (c < '0' || c > '9' || acId > (Integer.MAX_VALUE - 9) / 10) {
+					acId = -1;
+				} else {
+					acId = acId * 10 + (c - '0');
+				}
+			}
+			nameStart = skipSpaces(idEnd);
+			nameEnd = skipToken(nameStart);
+		}
+
+		private int skipToken(int i) {
+			while (i < end && buffer.get(i) != ' ') {
+				i++;
+			}
+			return i;
+		}
+
+		private int skipSpaces(int i) {
+			while (i < end && buffer.get(i) == ' ') {
+				i++;
+			}
+			return i;
+		}
+
+		/**
+		 * @return the offset of the record in the file
+		 */
+		public long getOffset() {
+			return offsets.get(chunk) + start;
+		}
+
+		/**
+		 * @return the length of the record, without end of line
+		 */
+		public int getLength() {
+			return end - start;
+		}
+
+		/**
+		 * @return the id of the aircraft, -1 if the record has none
+		 */
+		public int getAcId() {
+			return acId;
+		}
+
+		/**
+		 * @return the time of the record, in seconds since the beginning of
+		 *         the log
+		 * @throws NumberFormatException
+		 *             if the record has no timestamp
+		 */
+		public double getTime() {
+			return decoder.reset(buffer, start, timeEnd).nextDouble();
+		}
+
+		/**
+		 * @param name
+		 * @return true if the message of the record has this name
+		 */
+		public boolean nameEquals(CharSequence name) {
+			if (nameEnd - nameStart != name.length()) {
+				return false;
+			}
+			for (int i = nameStart; i < nameEnd; i++) {
+				if ((char) (buffer.get(i) & 0xff) != name.charAt(i - nameStart)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * @return the name of the message, as a new string
+		 */
+		public String getName() {
+			return string(nameStart, nameEnd);
+		}
+
+		/**
+		 * Starts the decoding of the fields of the message, without copying
+		 * them
+		 *
+		 * @param d
+		 *            the decoder to reset
+		 * @return the decoder
+		 */
+		public TelemetryDecoder payload(TelemetryDecoder d) {
+			return d.reset(buffer, nameEnd, end);
+		}
+
+		/**
+		 * @return the record without its timestamp, as sent on the bus
+		 */
+		public String getMessage() {
+			return string(idStart, end);
+		}
+
+		/**
+		 * @return the whole record, as a new string
+		 */
+		public String getLine() {
+			return string(start, end);
+		}
+
+		private String string(int from, int to) {
+			byte[] bytes = new byte[to - from];
+			for (int i = from; i < to; i++) {
+				bytes[i - from] = buffer.get(i);
+			}
+			return new String(bytes, LATIN1);
+		}
+	}
+}
@@ -0,0 +1,290 @@
+package testData;
+
+import imu.IMU;
+import imu.LoopbackBus;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+
+import calibrate.CalibrationSession;
+import calibrate.SessionManager;
+import calibrate.SessionReader;
+import ellipsoide.Sphere;
+import filtre.FilterMagneto;
+
+/**
+ * Replays a recorded log (.data or .afs) : each message is sent at its
+ * recorded time, divided by a speed factor, or as fast as possible to measure
+ * the throughput of the receiver.
+ */
+public class ReplayEngine {
+
+	private static Logger logger = Logger.getLogger(ReplayEngine.class
+			.getName());
+
+	/** Speed of the replay without waiting between the messages */
+	public static final double MAX_SPEED = Double.POSITIVE_INFINITY;
+
+	/**
+	 * Receives the messages replayed
+	 */
+	public interface Sink {
+		/**
+		 * @param message
+		 *            the message, without its timestamp
+		 * @throws Exception
+		 *             stops the replay
+		 */
+		void send(String message) throws Exception;
+	}
+
+	/**
+	 * Counters of a replay
+	 */
+	public static class Stats {
+		private long nbMessages;
+		private long elapsedNanos;
+		/** Largest delay of a message after its scheduled time */
+		private long maxLateNanos;
+
+		public long getNbMessages() {
+			return nbMessages;
+		}
+
+		public long getElapsedNanos() {
+			return elapsedNanos;
+		}
+
+		public long getMaxLateNanos() {
+			return maxLateNanos;
+		}
+
+		/**
+		 * @return the number of messages sent per second during the replay
+		 */
+		public double getMessagesPerSecond() {
+			return elapsedNanos == 0 ? 0 : nbMessages * 1e9 / elapsedNanos;
+		}
+
+		@Override
+		public String toString() {
+			return String.format(Locale.US,
+					"%d messages in %.3f s : %.0f messages/s, max late %.3f ms",
+					nbMessages, elapsedNanos / 1e9, getMessagesPerSecond(),
+					maxLateNanos / 1e6);
+		}
+	}
+
+	/** The log replayed */
+	private final String fileName;
+	/** Factor applied to the recorded times, MAX_SPEED to not wait */
+	private final double speed;
+	private volatile boolean stopped = false;
+
+	/**
+	 * @param fileName
+	 *            the log, .data text log or .afs binary session
+	 * @param speed
+	 *            1 for the recorded rate, 10 for ten times faster, MAX_SPEED
+	 *            for as fast as possible
+	 */
+	public ReplayEngine(String fileName, double speed) {
+		if (!(speed > 0)) {
+			throw new IllegalArgumentException("invalid replay speed " + speed);
+		}
+		this.fileName = fileName;
+		this.speed = speed;
+	}
+
+	/**
+	 * Parses a speed : "max" or a factor ("10", "10x", "0.5")
+	 *
+	 * @param value
+	 * @return the speed, 1 if value is null or empty
+	 * @throws NumberFormatException
+	 *             if value is not a speed
+	 */
+	public static double parseSpeed(String value) {
+		if (value == null || value.trim().isEmpty()) {
+			return 1;
+		}
+		String v = value.trim().toLowerCase(Locale.US);
+		if (v.equals("max")) {
+			return MAX_SPEED;
+		}
+		if (v.endsWith("x")) {
+			v = v.substring(0, v.length() - 1);
+		}
+		return Double.parseDouble(v);
+	}
+
+	public double getSpeed() {
+		return speed;
+	}
+
+	/**
+	 * Stops the replay in progress after the current message
+	 */
+	public void stop() {
+		stopped = true;
+	}
+
+	/**
+	 * Sends all the messages of the log to the sink, in the thread of the
+	 * caller
+	 *
+	 * @param sink
+	 * @return the counters of the replay
+	 * @throws Exception
+	 *             if the log can't be read or the sink fails
+	 */
+	public Stats replay(Sink sink) throws Exception {
+		stopped = false;
+		Stats stats = new Stats();
+		Clock clock = new Clock(stats);
+		if (fileName.endsWith(".afs")) {
+			SessionReader session = new SessionReader(fileName);
+			for (int i = 0; i < session.size() && !stopped; i++) {
+				clock.await(TimeUnit.MICROSECONDS.toNanos(session
+						.getTMicros(i)));
+				sink.send(session.getMessage(i));
+				stats.nbMessages++;
+			}
+		} else {
+			MappedLogReader log = new MappedLogReader(fileName);
+			try {
+				MappedLogReader.Cursor record = log.cursor();
+				while (!stopped && record.next()) {
+					clock.await(time(record));
+					sink.send(record.getMessage());
+					stats.nbMessages++;
+				}
+			} finally {
+				log.close();
+			}
+		}
+		stats.elapsedNanos = System.nanoTime() - clock.start;
+		logger.info("replay of " + fileName + " at speed " + speed + " : "
+				+ stats);
+		return stats;
+	}
+
+	/**
+	 * @return the recorded time of a record in nanoseconds, -1 if the record
+	 *         has none
+	 */
+	private static long time(MappedLogReader.Cursor record) {
+		try {
+			return (long) (record.getTime() * 1e9);
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * Waits for the time of each message, relative to the first one
+	 */
+	private class Clock {
+		private final Stats stats;
+		private final long start = System.nanoTime();
+		/** Recorded time of the first message, -1 before it */
+		private long first = -1;
+
+		Clock(Stats stats) {
+			this.stats = stats;
+		}
+
+		/**
+		 * @param recorded
+		 *            time of the message in the log, -1 to send it at once
+		 */
+		void await(long recorded) {
+			if (speed == MAX_SPEED || recorded < 0) {
+				return;
+			}
+			if (first < 0) {
+				first = recorded;
+			}
+			long deadline = start + (long) ((recorded - first) / speed);
+			long now = System.nanoTime();
+			while (now < deadline && !stopped) {
+				LockSupport.parkNanos(deadline - now);
+				now = System.nanoTime();
+			}
+			stats.maxLateNanos = Math.max(stats.maxLateNanos, now - deadline);
+		}
+	}
+
+	/**
+	 * Measures the throughput of the calibration : the log is replayed as
+	 * fast as possible on a loopback bus, through the IMU, the data and the
+	 * filter of a session for each aircraft of the log.
+	 *
+	 * @param args
+	 *            log [aircraft id]
+	 */
+	public static void main(String args[]) {
+		if (args.length < 1) {
+			System.err.println("usage: ReplayEngine log [aircraft_id]");
+			System.exit(1);
+		}
+		try {
+			final LoopbackBus bus = new LoopbackBus();
+			IMU imu = new IMU(bus);
+			SessionManager manager = new SessionManager(imu,
+					SessionManager.getNbThreads(new Properties()));
+			Set<Integer> acIds = args.length > 1 ? Collections
+					.singleton(Integer.valueOf(args[1])) : aircrafts(args[0]);
+			for (int acId : acIds) {
+				manager.start(acId, new FilterMagneto(new Sphere(7, 7, 100)));
+			}
+			Stats stats = new ReplayEngine(args[0], MAX_SPEED)
+					.replay(new Sink() {
+						public void send(String message) {
+							bus.sendMsg(message);
+						}
+					});
+			System.out.println(stats);
+			for (CalibrationSession session : manager.getSessions()) {
+				System.out.println(session + " : " + session.size()
+						+ " samples received");
+			}
+			manager.shutdown();
+			imu.close();
+			System.exit(0);
+		} catch (Exception e) {
+			logger.warning(e.getMessage());
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * @return the ids of the aircrafts of a log
+	 */
+	private static Set<Integer> aircrafts(String fileName) throws IOException {
+		Set<Integer> acIds = new TreeSet<Integer>();
+		if (fileName.endsWith(".afs")) {
+			acIds.add(new SessionReader(fileName).getAcId());
+			return acIds;
+		}
+		MappedLogReader log = new MappedLogReader(fileName);
+		try {
+			MappedLogReader.Cursor record = log.cursor();
+			while (record.next()) {
+				if (record.getAcId() >= 0) {
+					acIds.add(record.getAcId());
+				}
+			}
+			return acIds;
+		} finally {
+			log.close();
+		}
+	}
+}
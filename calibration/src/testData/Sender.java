@@ -1,9 +1,10 @@
 package testData;
 
-import java.util.Iterator;
+import imu.Bus;
+import imu.IvyBus;
+
 import java.util.logging.Logger;
 
-import fr.dgac.ivy.Ivy;
 import fr.dgac.ivy.IvyClient;
 import fr.dgac.ivy.IvyException;
 import fr.dgac.ivy.IvyMessageListener;
@@ -12,37 +13,63 @@ public class Sender extends Thread implements IvyMessageListener {
 
 	private static Logger logger = Logger.getLogger(Sender.class.getName());
 
-	private DataReader dr;
-	private Ivy bus;
+	private ReplayEngine replay;
+	private Bus bus;
 
 	public Sender(String arg) throws IvyException, InterruptedException {
-		dr = new DataReader(arg);
-		bus = new Ivy("Sender", "Sender Ready", null);
-		bus.start(null);
-		bus.sendToSelf(true);
+		this(arg, 1);
 	}
 
 	/**
-	 * permit to send a message to the drone in order to set the new telemetry
-	 * mode.
-	 * 
+	 * @param arg
+	 *            the log to send
+	 * @param speed
+	 *            factor applied to the recorded rate, ReplayEngine.MAX_SPEED
+	 *            for as fast as possible
 	 * @throws IvyException
 	 * @throws InterruptedException
 	 */
-	public void sendRawMessage() throws IvyException, InterruptedException {
-		logger.info("starting sending IMU test data...");
-		Iterator<String> i = dr.iterator();
-		String temp = new String();
-		while (i.hasNext()) {
-			temp = i.next();
-			bus.sendMsg(temp);
-			Thread.sleep(20);
-		}
+	public Sender(String arg, double speed) throws IvyException,
+			InterruptedException {
+		this(arg, speed, new IvyBus("Sender", "Sender Ready"));
+		((IvyBus) bus).sendToSelf(true);
+	}
+
+	/**
+	 * @param arg
+	 *            the log to send
+	 * @param speed
+	 *            factor applied to the recorded rate
+	 * @param bus
+	 *            the bus to send the log on, started here
+	 * @throws IvyException
+	 */
+	public Sender(String arg, double speed, Bus bus) throws IvyException {
+		replay = new ReplayEngine(arg, speed);
+		this.bus = bus;
+		bus.start(null);
+	}
+
+	/**
+	 * sends the messages of the log on the bus, each one at its recorded time
+	 * divided by the speed
+	 * 
+	 * @throws Exception
+	 */
+	public void sendRawMessage() throws Exception {
+		logger.info("starting sending IMU test data at speed "
+				+ replay.getSpeed() + "...");
+		replay.replay(new ReplayEngine.Sink() {
+			public void send(String message) throws IvyException {
+				bus.sendMsg(message);
+			}
+		});
 		logger.info("stopped sending IMU test data");
 	}
 
 	public void arret() {
 		try {
+			replay.stop();
 			bus.stop();
 			logger.info("stopped sending IMU test data");
 		} catch (Exception e) {